@@ -0,0 +1,216 @@
+package io.github.poshjosh.ratelimiter.web.core.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes the names of rate limited classes to {@value #INDEX_LOCATION}, at compile time.
+ * <p>
+ * A class is rate limited if it, or any of its constructors or methods, is annotated with
+ * {@code @Rate}, {@code @RateCondition} or {@code @RateGroup}, or with an annotation which is
+ * itself annotated with one of these (e.g a rate group). Annotations are matched by name, so
+ * that the processor needs nothing else on the processor path.
+ * </p>
+ * <p>
+ * Classes rate limited only via properties bear no annotations. The packages of such classes may
+ * be indexed in full, via option {@value #PACKAGES_OPTION}, a comma separated list of packages.
+ * </p>
+ * <p>
+ * On incremental compilation, entries of the existing index whose classes still exist, and were
+ * not compiled again, are kept.
+ * </p>
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(RateLimitedClassesIndexer.PACKAGES_OPTION)
+public final class RateLimitedClassesIndexer extends AbstractProcessor {
+
+    /** Must match {@code IndexedClassesInPackageFinder.INDEX_LOCATION} of rate-limiter-web-core. */
+    public static final String INDEX_LOCATION = "META-INF/rate-limiter/rate-limited-classes";
+
+    public static final String PACKAGES_OPTION = "ratelimiter.index.packages";
+
+    private static final Set<String> RATE_ANNOTATIONS = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("io.github.poshjosh.ratelimiter.annotations.Rate",
+                    "io.github.poshjosh.ratelimiter.annotations.Rate.List",
+                    "io.github.poshjosh.ratelimiter.annotations.RateCondition",
+                    "io.github.poshjosh.ratelimiter.annotations.RateGroup")));
+
+    private final Set<String> indexed = new TreeSet<>();
+    private final Set<String> processed = new HashSet<>();
+    private final Map<String, Boolean> rateAnnotations = new HashMap<>();
+    private List<String> packages = Collections.emptyList();
+
+    public RateLimitedClassesIndexer() { }
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        final String option = processingEnv.getOptions().get(PACKAGES_OPTION);
+        if (option != null && !option.trim().isEmpty()) {
+            final List<String> list = new ArrayList<>();
+            for (String name : option.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    list.add(name.trim());
+                }
+            }
+            packages = list;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        } else {
+            for (Element element : roundEnv.getRootElements()) {
+                if (element instanceof TypeElement) {
+                    visit((TypeElement) element);
+                }
+            }
+        }
+        // Other processors may claim the same annotations
+        return false;
+    }
+
+    private void visit(TypeElement type) {
+        final String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+        processed.add(name);
+        if (isInIndexedPackage(type) || isRateLimited(type)) {
+            indexed.add(name);
+        }
+        for (Element enclosed : type.getEnclosedElements()) {
+            if (enclosed instanceof TypeElement) {
+                visit((TypeElement) enclosed);
+            }
+        }
+    }
+
+    private boolean isInIndexedPackage(TypeElement type) {
+        if (packages.isEmpty()) {
+            return false;
+        }
+        final PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        final String packageName = packageElement.getQualifiedName().toString();
+        for (String indexedPackage : packages) {
+            if (packageName.equals(indexedPackage) || packageName.startsWith(indexedPackage + '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isRateLimited(TypeElement type) {
+        if (isAnnotated(type)) {
+            return true;
+        }
+        for (Element enclosed : type.getEnclosedElements()) {
+            final ElementKind kind = enclosed.getKind();
+            if ((kind == ElementKind.METHOD || kind == ElementKind.CONSTRUCTOR) && isAnnotated(enclosed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isAnnotated(Element element) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (isRateAnnotation((TypeElement) mirror.getAnnotationType().asElement())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isRateAnnotation(TypeElement annotationType) {
+        final String name = annotationType.getQualifiedName().toString();
+        if (RATE_ANNOTATIONS.contains(name)) {
+            return true;
+        }
+        final Boolean cached = rateAnnotations.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        // Annotations are meta-annotated only one level deep
+        boolean result = false;
+        for (AnnotationMirror mirror : annotationType.getAnnotationMirrors()) {
+            final TypeElement metaType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (RATE_ANNOTATIONS.contains(metaType.getQualifiedName().toString())) {
+                result = true;
+                break;
+            }
+        }
+        rateAnnotations.put(name, result);
+        return result;
+    }
+
+    private void writeIndex() {
+        final Set<String> names = new TreeSet<>(indexed);
+        names.addAll(readRetainedEntries());
+        if (names.isEmpty()) {
+            return;
+        }
+        try {
+            final FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write("# Rate limited classes, generated by " + getClass().getName() + '\n');
+                for (String name : names) {
+                    writer.write(name);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to write " + INDEX_LOCATION + ", " + e);
+        }
+    }
+
+    /** @return Entries of an existing index, for classes which exist but were not compiled again */
+    private Set<String> readRetainedEntries() {
+        final Set<String> result = new HashSet<>();
+        try {
+            final FileObject file = processingEnv.getFiler()
+                    .getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(file.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final String name = line.trim();
+                    if (name.isEmpty() || name.startsWith("#") || processed.contains(name)) {
+                        continue;
+                    }
+                    if (processingEnv.getElementUtils().getTypeElement(name.replace('$', '.')) != null) {
+                        result.add(name);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // No existing index
+        }
+        return result;
+    }
+}
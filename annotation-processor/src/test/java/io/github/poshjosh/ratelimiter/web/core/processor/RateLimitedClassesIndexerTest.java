@@ -0,0 +1,128 @@
+package io.github.poshjosh.ratelimiter.web.core.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitedClassesIndexerTest {
+
+    private static final JavaFileObject RATE = source("io.github.poshjosh.ratelimiter.annotations.Rate",
+            "package io.github.poshjosh.ratelimiter.annotations;\n"
+                    + "public @interface Rate { String value() default \"\"; }");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void givenAnnotatedClassOrMethod_shouldIndexIt() throws IOException {
+        compile(Collections.emptyList(),
+                source("com.example.Annotated", "package com.example;\n"
+                        + "@io.github.poshjosh.ratelimiter.annotations.Rate class Annotated { }"),
+                source("com.example.AnnotatedMethod", "package com.example;\n"
+                        + "class AnnotatedMethod { @io.github.poshjosh.ratelimiter.annotations.Rate void m() { } }"),
+                source("com.example.NotAnnotated", "package com.example;\n"
+                        + "@Deprecated class NotAnnotated { void m() { } }"));
+        assertEquals(Arrays.asList("com.example.Annotated", "com.example.AnnotatedMethod"), readIndex());
+    }
+
+    @Test
+    void givenMetaAnnotatedClass_shouldIndexIt() throws IOException {
+        compile(Collections.emptyList(),
+                source("com.example.Limited", "package com.example;\n"
+                        + "@io.github.poshjosh.ratelimiter.annotations.Rate(\"1/s\") @interface Limited { }"),
+                source("com.example.Other", "package com.example;\n"
+                        + "@interface Other { }"),
+                source("com.example.MetaAnnotated", "package com.example;\n"
+                        + "class MetaAnnotated { @Limited void m() { } }"),
+                source("com.example.OtherAnnotated", "package com.example;\n"
+                        + "@Other class OtherAnnotated { }"));
+        assertEquals(Arrays.asList("com.example.Limited", "com.example.MetaAnnotated"), readIndex());
+    }
+
+    @Test
+    void givenNestedClass_shouldIndexBinaryName() throws IOException {
+        compile(Collections.emptyList(),
+                source("com.example.Outer", "package com.example;\n"
+                        + "class Outer { static class Inner { "
+                        + "@io.github.poshjosh.ratelimiter.annotations.Rate void m() { } } }"));
+        assertEquals(Collections.singletonList("com.example.Outer$Inner"), readIndex());
+    }
+
+    @Test
+    void givenPackagesOption_shouldIndexEveryClassOfPackages() throws IOException {
+        compile(Collections.singletonList("-A" + RateLimitedClassesIndexer.PACKAGES_OPTION
+                        + "=com.example.api, com.example.admin"),
+                source("com.example.api.Resource", "package com.example.api;\nclass Resource { }"),
+                source("com.example.api.v1.Resource", "package com.example.api.v1;\nclass Resource { }"),
+                source("com.example.apix.Resource", "package com.example.apix;\nclass Resource { }"),
+                source("com.example.admin.Resource", "package com.example.admin;\nclass Resource { }"),
+                source("com.example.Other", "package com.example;\nclass Other { }"));
+        assertEquals(Arrays.asList("com.example.admin.Resource",
+                "com.example.api.Resource", "com.example.api.v1.Resource"), readIndex());
+    }
+
+    @Test
+    void givenIncrementalCompilation_shouldKeepEntriesOfExistingClassesNotCompiledAgain()
+            throws IOException {
+        compile(Collections.emptyList(),
+                source("com.example.Kept", "package com.example;\n"
+                        + "@io.github.poshjosh.ratelimiter.annotations.Rate class Kept { }"),
+                source("com.example.Changed", "package com.example;\n"
+                        + "@io.github.poshjosh.ratelimiter.annotations.Rate class Changed { }"),
+                source("com.example.Deleted", "package com.example;\n"
+                        + "@io.github.poshjosh.ratelimiter.annotations.Rate class Deleted { }"));
+        Files.delete(dir.resolve("com/example/Deleted.class"));
+
+        compile(Collections.emptyList(),
+                source("com.example.Changed", "package com.example;\nclass Changed { }"),
+                source("com.example.Added", "package com.example;\n"
+                        + "@io.github.poshjosh.ratelimiter.annotations.Rate class Added { }"));
+
+        assertEquals(Arrays.asList("com.example.Added", "com.example.Kept"), readIndex());
+    }
+
+    private void compile(List<String> options, JavaFileObject... sources) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager =
+                     compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(dir.toFile()));
+            fileManager.setLocation(StandardLocation.CLASS_PATH, Collections.singletonList(dir.toFile()));
+            final List<JavaFileObject> units = new ArrayList<>(Arrays.asList(sources));
+            if (!Files.exists(dir.resolve("io/github/poshjosh/ratelimiter/annotations/Rate.class"))) {
+                units.add(RATE);
+            }
+            final JavaCompiler.CompilationTask task = compiler.getTask(
+                    null, fileManager, diagnostics, options, null, units);
+            task.setProcessors(Collections.singletonList(new RateLimitedClassesIndexer()));
+            assertTrue(task.call(), () -> diagnostics.getDiagnostics().toString());
+        }
+    }
+
+    private List<String> readIndex() throws IOException {
+        return Files.readAllLines(dir.resolve(RateLimitedClassesIndexer.INDEX_LOCATION),
+                StandardCharsets.UTF_8).stream()
+                .filter(line -> !line.startsWith("#"))
+                .collect(Collectors.toList());
+    }
+
+    private static JavaFileObject source(String className, String content) {
+        final URI uri = URI.create("string:///" + className.replace('.', '/')
+                + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return content;
+            }
+        };
+    }
+}
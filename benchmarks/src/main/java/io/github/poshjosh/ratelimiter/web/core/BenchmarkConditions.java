@@ -0,0 +1,33 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rate conditions, one for each kind of {@link WebExpressionKey}. Each condition matches
+ * requests created via {@link InMemoryRequestInfo#ofDefaults(String, String)}.
+ */
+final class BenchmarkConditions {
+
+    private BenchmarkConditions() { }
+
+    static final Map<String, String> BY_KEY_TYPE;
+    static {
+        final Map<String, String> map = new LinkedHashMap<>();
+        map.put("attribute", WebExpressionKey.ATTRIBUTE + "[tenant] = tenant-1");
+        map.put("auth.scheme", WebExpressionKey.AUTH_SCHEME + " = BASIC");
+        map.put("cookie", WebExpressionKey.COOKIE + "[theme] = dark");
+        map.put("header", WebExpressionKey.HEADER + "[X-API-KEY] = key-7");
+        map.put("ip", WebExpressionKey.IP + " = 10.20.30.40");
+        map.put("ip.range", WebExpressionKey.IP + " in [10.0.0.0/8 | 192.168.0.0/16]");
+        map.put("locale", WebExpressionKey.LOCALE + " = [en_US | en_GB]");
+        map.put("parameter", WebExpressionKey.PARAMETER + "[page] = 1");
+        map.put("remote.address", WebExpressionKey.REMOTE_ADDRESS + " = 10.20.30.40");
+        map.put("uri", WebExpressionKey.REQUEST_URI + " != /login");
+        map.put("user.principal", WebExpressionKey.USER_PRINCIPAL + " = user-1");
+        map.put("user.role", WebExpressionKey.USER_ROLE + " = [ADMIN | USER]");
+        map.put("session.id", WebExpressionKey.SESSION_ID + " = session-1");
+        BY_KEY_TYPE = Collections.unmodifiableMap(map);
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks, writing results as JSON to {@code jmh-result.json} by default,
+ * so that results of different releases can be diffed.
+ * <p>All JMH command line options are supported e.g {@code -t 8} (threads),
+ * {@code -p endpointCount=100} (parameters), {@code -rff other.json} (result file).</p>
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() { }
+
+    public static void main(String... args) throws Exception {
+        final List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add("-rf");
+            options.add("json");
+        }
+        if (!options.contains("-rff")) {
+            options.add("-rff");
+            options.add("jmh-result.json");
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
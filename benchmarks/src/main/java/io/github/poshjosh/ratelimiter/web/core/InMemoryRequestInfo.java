@@ -0,0 +1,134 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import java.security.Principal;
+import java.util.*;
+
+/**
+ * A {@link RequestInfo} backed by plain fields, so that benchmarks measure the rate limiter
+ * rather than a servlet container.
+ */
+final class InMemoryRequestInfo implements RequestInfo {
+
+    private final Map<String, List<String>> headers = new HashMap<>();
+    private final Map<String, List<String>> parameters = new HashMap<>();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final Set<String> roles = new HashSet<>();
+    private final List<Cookie> cookies = new ArrayList<>();
+    private final List<Locale> locales = new ArrayList<>();
+
+    private String method = "GET";
+    private String contextPath = "";
+    private String servletPath = "";
+    private String requestUri = "/";
+    private String remoteAddr = "127.0.0.1";
+    private String sessionId = "session-1";
+    private String authScheme = "BASIC";
+    private String characterEncoding = "UTF-8";
+    private Principal principal = () -> "user-1";
+
+    static InMemoryRequestInfo of(String method, String requestUri) {
+        final InMemoryRequestInfo request = new InMemoryRequestInfo();
+        request.method = method;
+        request.requestUri = requestUri;
+        return request;
+    }
+
+    /**
+     * @return A request with a value for each kind of web expression key.
+     */
+    static InMemoryRequestInfo ofDefaults(String method, String requestUri) {
+        return of(method, requestUri)
+                .header("Content-Type", "application/json")
+                .header("X-API-KEY", "key-7")
+                .parameter("page", "1")
+                .attribute("tenant", "tenant-1")
+                .cookie("theme", "dark")
+                .locale(Locale.US)
+                .role("USER")
+                .remoteAddr("10.20.30.40");
+    }
+
+    InMemoryRequestInfo header(String name, String value) {
+        headers.computeIfAbsent(name.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(value);
+        return this;
+    }
+
+    InMemoryRequestInfo parameter(String name, String value) {
+        parameters.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+        return this;
+    }
+
+    InMemoryRequestInfo attribute(String name, Object value) {
+        attributes.put(name, value);
+        return this;
+    }
+
+    InMemoryRequestInfo cookie(String name, String value) {
+        cookies.add(Cookie.of(name, value));
+        return this;
+    }
+
+    InMemoryRequestInfo locale(Locale locale) {
+        locales.add(locale);
+        return this;
+    }
+
+    InMemoryRequestInfo role(String role) {
+        roles.add(role);
+        return this;
+    }
+
+    InMemoryRequestInfo remoteAddr(String remoteAddr) {
+        this.remoteAddr = remoteAddr;
+        return this;
+    }
+
+    InMemoryRequestInfo contextPath(String contextPath) {
+        this.contextPath = contextPath;
+        return this;
+    }
+
+    InMemoryRequestInfo servletPath(String servletPath) {
+        this.servletPath = servletPath;
+        return this;
+    }
+
+    @Override public String getAuthScheme(String resultIfNone) {
+        return authScheme == null ? resultIfNone : authScheme;
+    }
+    @Override public String getCharacterEncoding(String resultIfNone) {
+        return characterEncoding == null ? resultIfNone : characterEncoding;
+    }
+    @Override public String getContextPath() { return contextPath; }
+    @Override public List<Cookie> getCookies() { return cookies.isEmpty() ? null : cookies; }
+    @Override public List<String> getHeaders(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+    @Override public Object getAttribute(String name, Object resultIfNone) {
+        return attributes.getOrDefault(name, resultIfNone);
+    }
+    @Override public List<String> getParameters(String name) { return parameters.get(name); }
+    @Override public String getRemoteAddr(String resultIfNone) {
+        return remoteAddr == null ? resultIfNone : remoteAddr;
+    }
+    @Override public String getPeerAddress(String resultIfNone) {
+        return getRemoteAddr(resultIfNone);
+    }
+    @Override public List<Locale> getLocales() { return locales; }
+    @Override public String getMethod() { return method; }
+    @Override public String getRequestUri() { return requestUri; }
+    @Override public String getServletPath() { return servletPath; }
+    @Override public String getSessionId(String resultIfNone) {
+        return sessionId == null ? resultIfNone : sessionId;
+    }
+    @Override public String getRequestedSessionId(String resultIfNone) {
+        return getSessionId(resultIfNone);
+    }
+    @Override public Principal getUserPrincipal(Principal resultIfNone) {
+        return principal == null ? resultIfNone : principal;
+    }
+    @Override public boolean isUserInRole(String role) { return roles.contains(role); }
+    @Override public String toString() {
+        return "InMemoryRequestInfo{" + method + ' ' + requestUri + '}';
+    }
+}
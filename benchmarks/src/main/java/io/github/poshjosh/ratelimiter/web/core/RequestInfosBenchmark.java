@@ -0,0 +1,86 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the accessors of {@link RequestInfo}s created via {@link RequestInfos},
+ * backed by an in-memory {@link HttpServletRequest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestInfosBenchmark {
+
+    @Param({"4", "32"})
+    public int headerCount;
+
+    private HttpServletRequest servletRequest;
+
+    @Setup
+    public void setUp() {
+        final Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount - 1; i++) {
+            headers.put("X-Header-" + i, "value-" + i);
+        }
+        headers.put("X-API-KEY", "key-7");
+        final Cookie [] cookies = { new Cookie("theme", "dark"), new Cookie("JSESSIONID", "s1") };
+        servletRequest = (HttpServletRequest)Proxy.newProxyInstance(
+                HttpServletRequest.class.getClassLoader(),
+                new Class[]{HttpServletRequest.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getHeaderNames": return Collections.enumeration(headers.keySet());
+                        case "getHeaders":
+                            final String value = headers.get((String)args[0]);
+                            return Collections.enumeration(value == null ?
+                                    Collections.emptyList() : Collections.singletonList(value));
+                        case "getHeader": return headers.get((String)args[0]);
+                        case "getCookies": return cookies;
+                        case "getRemoteAddr": return "10.20.30.40";
+                        case "getLocales": return Collections.enumeration(Collections.singletonList(Locale.US));
+                        case "getMethod": return "GET";
+                        case "getRequestURI": return "/api/users";
+                        case "getContextPath":
+                        case "getServletPath": return "";
+                        case "getCharacterEncoding": return "UTF-8";
+                        case "hashCode": return System.identityHashCode(proxy);
+                        case "equals": return proxy == args[0];
+                        case "toString": return "HttpServletRequest{/api/users}";
+                        default: return null;
+                    }
+                });
+    }
+
+    @Benchmark
+    public void servletRequestAccessors(Blackhole blackhole) {
+        readAccessors(RequestInfos.of(servletRequest), blackhole);
+    }
+
+    @Benchmark
+    public void cachingRequestAccessors(Blackhole blackhole) {
+        readAccessors(RequestInfos.caching(RequestInfos.of(servletRequest)), blackhole);
+    }
+
+    /**
+     * Reads each value twice, as happens when a request is matched against many conditions.
+     */
+    private static void readAccessors(RequestInfo request, Blackhole blackhole) {
+        for (int i = 0; i < 2; i++) {
+            blackhole.consume(request.getHeaders("X-API-KEY"));
+            blackhole.consume(request.getRemoteAddr(null));
+            blackhole.consume(request.getCookies());
+            blackhole.consume(request.getLocales());
+            blackhole.consume(request.getCharacterEncoding(null));
+        }
+    }
+}
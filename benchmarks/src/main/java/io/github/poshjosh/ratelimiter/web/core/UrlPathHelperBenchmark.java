@@ -0,0 +1,47 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlPathHelperBenchmark {
+
+    /**
+     * plain - nothing to decode, encoded - percent encoded characters,
+     * semicolon - semicolon content and duplicate slashes.
+     */
+    @Param({"plain", "encoded", "semicolon"})
+    public String uriType;
+
+    @Param({"0", "1024"})
+    public int pathCacheSize;
+
+    private UrlPathHelper urlPathHelper;
+
+    private RequestInfo request;
+
+    @Setup
+    public void setUp() {
+        final String path;
+        switch (uriType) {
+            case "plain": path = "/api/users/123/orders"; break;
+            case "encoded": path = "/api/users/J%C3%BCrgen%20M/orders"; break;
+            case "semicolon": path = "/api/users;jsessionid=A1B2C3//123/orders"; break;
+            default: throw new IllegalArgumentException("Unexpected URI type: " + uriType);
+        }
+        urlPathHelper = new UrlPathHelper("", pathCacheSize);
+        request = InMemoryRequestInfo.of("GET", "/context" + path)
+                .contextPath("/context").servletPath("/api");
+    }
+
+    @Benchmark
+    public String getPathWithinServlet() {
+        return urlPathHelper.getPathWithinServlet(request);
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.expression.ExpressionMatcher;
+import io.github.poshjosh.ratelimiter.expression.Expressions;
+import io.github.poshjosh.ratelimiter.matcher.Matchers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures matching of a rate condition, for each kind of {@link WebExpressionKey}.
+ * @see BenchmarkConditions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebExpressionMatcherBenchmark {
+
+    @Param({"attribute", "auth.scheme", "cookie", "header", "ip", "ip.range", "locale",
+            "parameter", "remote.address", "uri", "user.principal", "user.role", "session.id"})
+    public String keyType;
+
+    private ExpressionMatcher<RequestInfo> matcher;
+
+    private RequestInfo request;
+
+    @Setup
+    public void setUp() {
+        final String condition = BenchmarkConditions.BY_KEY_TYPE.get(keyType);
+        matcher = new WebExpressionMatcher().matcher(Expressions.of(condition));
+        request = InMemoryRequestInfo.ofDefaults("GET", "/api/users");
+        if (Matchers.NO_MATCH.equals(matcher.match(request))) {
+            throw new IllegalStateException("Condition does not match request: " + condition);
+        }
+    }
+
+    @Benchmark
+    public String match() {
+        return matcher.match(request);
+    }
+
+    @Benchmark
+    public String matchCachingRequest() {
+        return matcher.match(RequestInfos.caching(request));
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.model.Rate;
+import io.github.poshjosh.ratelimiter.model.Rates;
+import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfo;
+import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfos;
+import io.github.poshjosh.ratelimiter.web.core.util.ResourcePath;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-request overhead of the registry. Limits are set high enough that
+ * requests are never rejected.
+ * <p>Run with e.g {@code -t 8} to measure contention between threads.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebRateLimiterRegistryBenchmark {
+
+    private static final int REQUEST_COUNT = 1024;
+
+    private static final RequestInfo UNMATCHED = InMemoryRequestInfo.ofDefaults("GET", "/unmatched");
+
+    @Param({"10", "100", "1000"})
+    public int endpointCount;
+
+    /**
+     * none - no conditions, header - a header condition on every endpoint,
+     * all - endpoints cycle through conditions of all kinds of web expression keys.
+     */
+    @Param({"none", "header", "all"})
+    public String conditionMix;
+
+    private WebRateLimiterRegistry registry;
+
+    private RequestInfo [] requests;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+        int next() {
+            return next++ & (REQUEST_COUNT - 1);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        final Map<String, ResourceInfo> resources = new HashMap<>();
+        final List<Rates> rates = new ArrayList<>(endpointCount);
+        final List<String> conditions = new ArrayList<>(BenchmarkConditions.BY_KEY_TYPE.values());
+        for (int i = 0; i < endpointCount; i++) {
+            final String id = "endpoint-" + i;
+            resources.put(id, ResourceInfos.of(new ExactResourcePath(toPath(i)), "GET"));
+            final String condition;
+            switch (conditionMix) {
+                case "none": condition = ""; break;
+                case "header": condition = BenchmarkConditions.BY_KEY_TYPE.get("header"); break;
+                case "all": condition = conditions.get(i % conditions.size()); break;
+                default: throw new IllegalArgumentException("Unexpected condition mix: " + conditionMix);
+            }
+            rates.add(Rates.of(id, Rate.of(1_000_000_000L, Duration.ofSeconds(1), condition)));
+        }
+        registry = WebRateLimiterRegistries.of(WebRateLimiterContext.builder()
+                .resourceInfoProvider(source ->
+                        resources.getOrDefault(source.getId(), ResourceInfos.none()))
+                .rates(rates)
+                .build());
+        final Random random = new Random(1);
+        requests = new RequestInfo[REQUEST_COUNT];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = InMemoryRequestInfo.ofDefaults("GET", toPath(random.nextInt(endpointCount)));
+        }
+    }
+
+    private static String toPath(int endpoint) {
+        return "/api/resource" + endpoint + "/items";
+    }
+
+    @Benchmark
+    public boolean isWithinLimit(Cursor cursor) {
+        return registry.isWithinLimit(requests[cursor.next()]);
+    }
+
+    @Benchmark
+    public boolean tryAcquire(Cursor cursor) {
+        return registry.tryAcquire(requests[cursor.next()], 1, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    public boolean tryAcquireUnmatched() {
+        return registry.tryAcquire(UNMATCHED, 1, 0, TimeUnit.NANOSECONDS);
+    }
+
+    private static final class ExactResourcePath implements ResourcePath {
+        private final String path;
+        private ExactResourcePath(String path) {
+            this.path = Objects.requireNonNull(path);
+        }
+        @Override public ResourcePath combine(ResourcePath other) {
+            return other;
+        }
+        @Override public List<String> getPatterns() {
+            return Collections.singletonList(path);
+        }
+        @Override public boolean matches(String path) {
+            return this.path.equals(path);
+        }
+        @Override public String toString() {
+            return path;
+        }
+    }
+}
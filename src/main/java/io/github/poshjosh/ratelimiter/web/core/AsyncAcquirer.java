@@ -0,0 +1,138 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.RateLimiter;
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.util.Ticker;
+
+import java.util.Objects;
+import java.util.concurrent.*;
+
+/**
+ * Acquires permits without blocking the calling thread.
+ * <p>
+ * Permits are first tried for immediately, on the calling thread. If they are not available,
+ * a retry is scheduled for when the limiter's bandwidth estimates they will be, and so on until
+ * the permits are acquired or the timeout elapses. Each attempt is made with a zero timeout, so
+ * the scheduler thread is never parked by a rate limiter.
+ * </p>
+ */
+final class AsyncAcquirer {
+
+    /** Lower bound of the delay between retries, so that contended limiters are not spun on. */
+    private static final long MIN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Upper bound of the delay between retries, when the wait length could not be estimated. */
+    private static final long MAX_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static volatile ScheduledExecutorService sharedScheduler;
+
+    private AsyncAcquirer() { }
+
+    /**
+     * @return A single daemon thread scheduler, shared by all asynchronous acquisitions
+     * for which no scheduler was specified.
+     */
+    static ScheduledExecutorService sharedScheduler() {
+        ScheduledExecutorService scheduler = sharedScheduler;
+        if (scheduler == null) {
+            synchronized (AsyncAcquirer.class) {
+                scheduler = sharedScheduler;
+                if (scheduler == null) {
+                    final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                        final Thread thread = new Thread(runnable, "rate-limiter-async-acquirer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.setRemoveOnCancelPolicy(true);
+                    sharedScheduler = scheduler = executor;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * @param rateLimiter The rate limiter to acquire permits from
+     * @param permits The number of permits to acquire
+     * @param timeout The maximum time to wait for the permits. Zero or negative means no wait.
+     * @param unit The time unit of the timeout argument
+     * @param scheduler The scheduler on which to retry
+     * @param ticker The ticker of the rate limiter's bandwidth, used to estimate when the
+     *               permits will be available. If null, retries are made at short intervals.
+     * @return A stage which completes with true when the permits are acquired, or with false
+     * if the permits could not be acquired within the timeout. Cancelling the stage's
+     * {@link CompletionStage#toCompletableFuture() future} stops further retries.
+     */
+    static CompletableFuture<Boolean> tryAcquire(RateLimiter rateLimiter, int permits,
+            long timeout, TimeUnit unit, ScheduledExecutorService scheduler, Ticker ticker) {
+        final Waiter waiter = new Waiter(rateLimiter, permits,
+                System.nanoTime() + Math.max(0, unit.toNanos(timeout)),
+                Objects.requireNonNull(scheduler), ticker);
+        waiter.run();
+        return waiter;
+    }
+
+    /**
+     * @param rateLimiter The rate limiter whose permits are waited for
+     * @param ticker The ticker of the rate limiter's bandwidth, or null
+     * @param remaining The remaining time to wait, in nanoseconds
+     * @return The time to wait, in nanoseconds, before trying for the permits again
+     */
+    static long estimateDelayNanos(RateLimiter rateLimiter, Ticker ticker, long remaining) {
+        final Bandwidth bandwidth = ticker == null ? null : rateLimiter.getBandwidth();
+        if (bandwidth == null) {
+            return Math.max(MIN_DELAY_NANOS, Math.min(remaining, MAX_POLL_NANOS));
+        }
+        final long nowMicros = ticker.elapsedMicros();
+        final long waitMicros = bandwidth.queryEarliestAvailable(nowMicros) - nowMicros;
+        return Math.max(MIN_DELAY_NANOS, TimeUnit.MICROSECONDS.toNanos(waitMicros));
+    }
+
+    private static final class Waiter extends CompletableFuture<Boolean> implements Runnable {
+        private final RateLimiter rateLimiter;
+        private final int permits;
+        private final long deadlineNanos;
+        private final ScheduledExecutorService scheduler;
+        private final Ticker ticker;
+        private volatile ScheduledFuture<?> scheduled;
+        private Waiter(RateLimiter rateLimiter, int permits, long deadlineNanos,
+                ScheduledExecutorService scheduler, Ticker ticker) {
+            this.rateLimiter = Objects.requireNonNull(rateLimiter);
+            this.permits = permits;
+            this.deadlineNanos = deadlineNanos;
+            this.scheduler = scheduler;
+            this.ticker = ticker;
+        }
+        @Override public void run() {
+            if (isDone()) {
+                return;
+            }
+            try {
+                if (rateLimiter.tryAcquire(permits, 0, TimeUnit.NANOSECONDS)) {
+                    complete(Boolean.TRUE);
+                    return;
+                }
+                final long remaining = deadlineNanos - System.nanoTime();
+                final long delay = estimateDelayNanos(rateLimiter, ticker, remaining);
+                if (remaining <= 0 || delay > remaining) {
+                    complete(Boolean.FALSE);
+                    return;
+                }
+                scheduled = scheduler.schedule(this, delay, TimeUnit.NANOSECONDS);
+                if (isCancelled()) {
+                    scheduled.cancel(false);
+                }
+            } catch (RuntimeException e) {
+                completeExceptionally(e);
+            }
+        }
+        @Override public boolean cancel(boolean mayInterruptIfRunning) {
+            final boolean cancelled = super.cancel(mayInterruptIfRunning);
+            final ScheduledFuture<?> current = scheduled;
+            if (current != null) {
+                current.cancel(false);
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.RateLimiter;
+import io.github.poshjosh.ratelimiter.RateLimiterProvider;
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.model.Rate;
+import io.github.poshjosh.ratelimiter.model.Rates;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Groups the rate limiter lookups and permit attempts of a batch of requests by rate id.
+ * <p>
+ * Outside of a batch, lookups are passed through to the delegate. Within a batch, the
+ * rate limiter for each rate id is looked up once. Once a rate limiter denies an attempt
+ * made without waiting, further such attempts within the batch for as many or more permits
+ * are denied, without updating its bandwidth or reading its store. The batch is thus decided
+ * as of a single instant, per rate limiter.
+ * </p>
+ */
+final class BatchingRateLimiterProvider implements RateLimiterProvider {
+
+    private static final class Batch {
+        private final Map<String, BatchRateLimiter> rateLimiters = new HashMap<>();
+        private final Map<String, BatchRateLimiter> ratesLimiters = new HashMap<>();
+    }
+
+    private final RateLimiterProvider delegate;
+
+    private final ThreadLocal<Batch> batches = new ThreadLocal<>();
+
+    BatchingRateLimiterProvider(RateLimiterProvider delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    /**
+     * Run the action as a batch. Nested batches are part of the enclosing batch.
+     * @param action The action which evaluates the batch of requests
+     * @param <T> The type of the result of the action
+     * @return The result of the action
+     */
+    <T> T inBatch(Supplier<T> action) {
+        if (batches.get() != null) {
+            return action.get();
+        }
+        batches.set(new Batch());
+        try {
+            return action.get();
+        } finally {
+            batches.remove();
+        }
+    }
+
+    @Override
+    public RateLimiter getRateLimiter(String key, Rate rate) {
+        final Batch batch = batches.get();
+        if (batch == null) {
+            return delegate.getRateLimiter(key, rate);
+        }
+        return batch.rateLimiters.computeIfAbsent(key,
+                k -> new BatchRateLimiter(delegate.getRateLimiter(k, rate)));
+    }
+
+    @Override
+    public RateLimiter getRateLimiter(String key, Rates rates) {
+        final Batch batch = batches.get();
+        if (batch == null) {
+            return delegate.getRateLimiter(key, rates);
+        }
+        return batch.ratesLimiters.computeIfAbsent(key,
+                k -> new BatchRateLimiter(delegate.getRateLimiter(k, rates)));
+    }
+
+    private static final class BatchRateLimiter implements RateLimiter {
+        private final RateLimiter delegate;
+        /** The fewest permits denied without waiting, within the batch. */
+        private int deniedPermits = Integer.MAX_VALUE;
+        private BatchRateLimiter(RateLimiter delegate) {
+            this.delegate = Objects.requireNonNull(delegate);
+        }
+        @Override public Bandwidth getBandwidth() {
+            return delegate.getBandwidth();
+        }
+        @Override public double acquire(int permits) {
+            return delegate.acquire(permits);
+        }
+        @Override public boolean tryAcquire(int permits, long timeout, TimeUnit unit) {
+            if (timeout > 0) {
+                return delegate.tryAcquire(permits, timeout, unit);
+            }
+            if (permits >= deniedPermits) {
+                return false;
+            }
+            final boolean result = delegate.tryAcquire(permits, timeout, unit);
+            if (!result) {
+                deniedPermits = permits;
+            }
+            return result;
+        }
+        @Override public String toString() {
+            return "BatchRateLimiter{" + delegate + '}';
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.RateLimiterRegistry;
+import io.github.poshjosh.ratelimiter.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acquires permits, blocking the calling thread for up to the timeout.
+ * <p>
+ * This version leaves the waiting to the rate limiters. A Java 21 version, packaged in
+ * the multi-release jar, waits outside of the rate limiters' monitors instead, so that
+ * waiting virtual threads do not pin their carrier threads.
+ * </p>
+ */
+final class BlockingAcquirer {
+
+    private BlockingAcquirer() { }
+
+    /**
+     * @param registry The registry of the rate limiters to acquire permits from
+     * @param request The request to acquire permits for
+     * @param permits The number of permits to acquire
+     * @param timeout The maximum time to wait for the permits. Zero or negative means no wait.
+     * @param unit The time unit of the timeout argument
+     * @param ticker The ticker of the rate limiters' bandwidths, or null
+     * @return true if the permits were acquired, otherwise false
+     */
+    static boolean tryAcquire(RateLimiterRegistry<RequestInfo> registry, RequestInfo request,
+            int permits, long timeout, TimeUnit unit, Ticker ticker) {
+        return registry.tryAcquire(request, permits, timeout, unit);
+    }
+}
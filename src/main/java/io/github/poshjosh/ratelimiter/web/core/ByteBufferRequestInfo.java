@@ -0,0 +1,408 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.*;
+
+/**
+ * A {@link RequestInfo} over the raw bytes of an HTTP/1.1 request line and headers.
+ * <p>
+ * The request line and the offsets of each header name and value are indexed once, on
+ * creation. Thereafter, only the names and values actually asked for are decoded into strings.
+ * Bytes are read in place, without copying the buffer. Header bytes are decoded as ISO-8859-1.
+ * </p>
+ * <p>
+ * There is no servlet context, so the context path and servlet path are empty. There are no
+ * attributes, sessions or authenticated users. Parameters are read from the query string only.
+ * </p>
+ * <p>Instances are scoped to a single request and are not thread-safe.</p>
+ */
+final class ByteBufferRequestInfo implements RequestInfo {
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    /** The number of ints per header in the index: name start, name end, value start, value end. */
+    private static final int FIELDS = 4;
+
+    private final ByteBuffer buffer;
+
+    private final int methodEnd;
+    private final int targetStart;
+    private final int targetEnd;
+
+    private int [] headers;
+    private int headerCount;
+
+    private final String remoteAddr;
+
+    private String method;
+    private String requestUri;
+
+    /**
+     * @param buffer The bytes from the buffer's position to its limit are read. The buffer's
+     *               position is not changed, and its content must not change while this
+     *               instance is in use.
+     * @param remoteAddr The address of the peer which sent the request, or null
+     */
+    ByteBufferRequestInfo(ByteBuffer buffer, String remoteAddr) {
+        this.buffer = Objects.requireNonNull(buffer);
+        this.remoteAddr = remoteAddr;
+        final int start = buffer.position();
+        final int limit = buffer.limit();
+        final int lineEnd = indexOf(LF, start, limit);
+        final int requestLineEnd = lineEnd == -1 ? limit : trimCr(start, lineEnd);
+        this.methodEnd = indexOf((byte)' ', start, requestLineEnd);
+        this.targetStart = methodEnd + 1;
+        final int end = indexOf((byte)' ', targetStart, requestLineEnd);
+        this.targetEnd = end == -1 ? requestLineEnd : end;
+        if (methodEnd <= start || targetEnd <= targetStart) {
+            throw new IllegalArgumentException("Invalid HTTP request line: " +
+                    decode(start, Math.min(requestLineEnd, start + 128)));
+        }
+        this.headers = new int[FIELDS * 16];
+        if (lineEnd != -1) {
+            indexHeaders(lineEnd + 1, limit);
+        }
+    }
+
+    private void indexHeaders(int offset, int limit) {
+        while (offset < limit) {
+            int lineEnd = indexOf(LF, offset, limit);
+            final int next = lineEnd == -1 ? limit : lineEnd + 1;
+            lineEnd = trimCr(offset, lineEnd == -1 ? limit : lineEnd);
+            if (lineEnd == offset) {
+                return; // The empty line which ends the headers
+            }
+            final int colon = indexOf((byte)':', offset, lineEnd);
+            if (colon > offset) {
+                if (headerCount * FIELDS == headers.length) {
+                    headers = Arrays.copyOf(headers, headers.length * 2);
+                }
+                final int i = headerCount++ * FIELDS;
+                headers[i] = offset;
+                headers[i + 1] = colon;
+                int valueStart = colon + 1;
+                int valueEnd = lineEnd;
+                while (valueStart < valueEnd && isWhitespace(buffer.get(valueStart))) {
+                    ++valueStart;
+                }
+                while (valueEnd > valueStart && isWhitespace(buffer.get(valueEnd - 1))) {
+                    --valueEnd;
+                }
+                headers[i + 2] = valueStart;
+                headers[i + 3] = valueEnd;
+            }
+            offset = next;
+        }
+    }
+
+    @Override public String getAuthScheme(String resultIfNone) {
+        final String authorization = getHeader("Authorization");
+        if (authorization == null || authorization.isEmpty()) {
+            return resultIfNone;
+        }
+        final int space = authorization.indexOf(' ');
+        return (space == -1 ? authorization : authorization.substring(0, space))
+                .toUpperCase(Locale.ROOT);
+    }
+
+    @Override public String getCharacterEncoding(String resultIfNone) {
+        final String contentType = getHeader("Content-Type");
+        if (contentType == null) {
+            return resultIfNone;
+        }
+        final int index = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (index == -1) {
+            return resultIfNone;
+        }
+        final int end = contentType.indexOf(';', index);
+        String charset = contentType.substring(index + 8, end == -1 ? contentType.length() : end).trim();
+        if (charset.length() > 1 && charset.charAt(0) == '"' && charset.endsWith("\"")) {
+            charset = charset.substring(1, charset.length() - 1);
+        }
+        return charset.isEmpty() ? resultIfNone : charset;
+    }
+
+    @Override public String getContextPath() {
+        return "";
+    }
+
+    @Override public List<Cookie> getCookies() {
+        List<Cookie> cookies = null;
+        for (int i = 0; i < headerCount; i++) {
+            if (!nameEquals(i, "Cookie")) {
+                continue;
+            }
+            final int end = headers[i * FIELDS + 3];
+            int offset = headers[i * FIELDS + 2];
+            while (offset < end) {
+                int pairEnd = indexOf((byte)';', offset, end);
+                pairEnd = pairEnd == -1 ? end : pairEnd;
+                final int equals = indexOf((byte)'=', offset, pairEnd);
+                if (equals != -1) {
+                    if (cookies == null) {
+                        cookies = new ArrayList<>();
+                    }
+                    cookies.add(Cookie.of(decodeTrimmed(offset, equals),
+                            unquote(decodeTrimmed(equals + 1, pairEnd))));
+                }
+                offset = pairEnd + 1;
+            }
+        }
+        return cookies;
+    }
+
+    @Override public List<String> getHeaders(String name) {
+        List<String> values = null;
+        for (int i = 0; i < headerCount; i++) {
+            if (nameEquals(i, name)) {
+                if (values == null) {
+                    values = new ArrayList<>(1);
+                }
+                values.add(decode(headers[i * FIELDS + 2], headers[i * FIELDS + 3]));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @param name The name of the header, compared ignoring case
+     * @return The value of the first header with the given name, or null if there is none
+     */
+    String getHeader(String name) {
+        for (int i = 0; i < headerCount; i++) {
+            if (nameEquals(i, name)) {
+                return decode(headers[i * FIELDS + 2], headers[i * FIELDS + 3]);
+            }
+        }
+        return null;
+    }
+
+    @Override public Object getAttribute(String name, Object resultIfNone) {
+        return resultIfNone;
+    }
+
+    @Override public List<String> getParameters(String name) {
+        final int queryStart = indexOf((byte)'?', targetStart, targetEnd);
+        if (queryStart == -1) {
+            return null;
+        }
+        List<String> values = null;
+        int offset = queryStart + 1;
+        while (offset < targetEnd) {
+            int pairEnd = indexOf((byte)'&', offset, targetEnd);
+            pairEnd = pairEnd == -1 ? targetEnd : pairEnd;
+            int equals = indexOf((byte)'=', offset, pairEnd);
+            equals = equals == -1 ? pairEnd : equals;
+            if (parameterNameEquals(offset, equals, name)) {
+                if (values == null) {
+                    values = new ArrayList<>(1);
+                }
+                values.add(equals == pairEnd ? "" : urlDecode(equals + 1, pairEnd));
+            }
+            offset = pairEnd + 1;
+        }
+        return values;
+    }
+
+    @Override public String getRemoteAddr(String resultIfNone) {
+        for (String header : RequestInfos.IP_ADDR_RELATED_HEADERS) {
+            String ip = getHeader(header);
+            if (ip != null && !ip.isEmpty() && !"unknown".equalsIgnoreCase(ip)) {
+                final int comma = ip.indexOf(',');
+                return comma == -1 ? ip : ip.substring(0, comma);
+            }
+        }
+        return remoteAddr == null ? resultIfNone : remoteAddr;
+    }
+
+    @Override public String getPeerAddress(String resultIfNone) {
+        return remoteAddr == null ? resultIfNone : remoteAddr;
+    }
+
+    @Override public List<Locale> getLocales() {
+        final String acceptLanguage = getHeader("Accept-Language");
+        if (acceptLanguage == null || acceptLanguage.isEmpty()) {
+            return Collections.singletonList(Locale.getDefault());
+        }
+        final List<Locale> locales = new ArrayList<>();
+        final List<Double> qualities = new ArrayList<>();
+        for (String range : acceptLanguage.split(",")) {
+            final int semicolon = range.indexOf(';');
+            final String tag = (semicolon == -1 ? range : range.substring(0, semicolon)).trim();
+            if (tag.isEmpty() || "*".equals(tag)) {
+                continue;
+            }
+            final double quality = semicolon == -1 ? 1.0 : toQuality(range.substring(semicolon + 1));
+            int index = locales.size();
+            while (index > 0 && qualities.get(index - 1) < quality) {
+                --index;
+            }
+            locales.add(index, Locale.forLanguageTag(tag));
+            qualities.add(index, quality);
+        }
+        return locales.isEmpty() ? Collections.singletonList(Locale.getDefault()) : locales;
+    }
+
+    private static double toQuality(String parameters) {
+        final String param = parameters.trim();
+        if (!param.startsWith("q=")) {
+            return 1.0;
+        }
+        try {
+            return Double.parseDouble(param.substring(2).trim());
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    @Override public String getMethod() {
+        if (method == null) {
+            method = decode(buffer.position(), methodEnd);
+        }
+        return method;
+    }
+
+    /**
+     * @return The path of the request target, without the query string. If the target is in
+     * absolute form e.g {@code http://host/path}, the scheme and authority are removed.
+     * Like {@code HttpServletRequest#getRequestURI()}, the path is not decoded.
+     */
+    @Override public String getRequestUri() {
+        if (requestUri == null) {
+            int start = targetStart;
+            final int schemeEnd = indexOf((byte)':', start, targetEnd);
+            if (schemeEnd != -1 && schemeEnd + 2 < targetEnd
+                    && buffer.get(schemeEnd + 1) == '/' && buffer.get(schemeEnd + 2) == '/'
+                    && buffer.get(start) != '/') {
+                final int pathStart = indexOf((byte)'/', schemeEnd + 3, targetEnd);
+                start = pathStart == -1 ? targetEnd : pathStart;
+            }
+            final int query = indexOf((byte)'?', start, targetEnd);
+            final int end = query == -1 ? targetEnd : query;
+            requestUri = start == end ? "/" : decode(start, end);
+        }
+        return requestUri;
+    }
+
+    @Override public String getServletPath() {
+        return "";
+    }
+
+    @Override public String getSessionId(String resultIfNone) {
+        return resultIfNone;
+    }
+
+    @Override public String getRequestedSessionId(String resultIfNone) {
+        return resultIfNone;
+    }
+
+    @Override public Principal getUserPrincipal(Principal resultIfNone) {
+        return resultIfNone;
+    }
+
+    @Override public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    int getHeaderCount() {
+        return headerCount;
+    }
+
+    private boolean nameEquals(int header, String name) {
+        final int start = headers[header * FIELDS];
+        final int end = headers[header * FIELDS + 1];
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (toLowerCase((char)(buffer.get(start + i) & 0xFF)) != toLowerCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean parameterNameEquals(int start, int end, String name) {
+        for (int i = start; i < end; i++) {
+            final byte b = buffer.get(i);
+            if (b == '%' || b == '+') {
+                return urlDecode(start, end).equals(name);
+            }
+        }
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if ((buffer.get(start + i) & 0xFF) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String urlDecode(int start, int end) {
+        final String value = decode(start, end);
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (IllegalArgumentException | java.io.UnsupportedEncodingException e) {
+            return value;
+        }
+    }
+
+    private static char toLowerCase(char ch) {
+        return ch >= 'A' && ch <= 'Z' ? (char)(ch + ('a' - 'A')) : ch;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private static String unquote(String value) {
+        return value.length() > 1 && value.charAt(0) == '"' && value.endsWith("\"") ?
+                value.substring(1, value.length() - 1) : value;
+    }
+
+    private int trimCr(int start, int end) {
+        return end > start && buffer.get(end - 1) == CR ? end - 1 : end;
+    }
+
+    private int indexOf(byte b, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String decodeTrimmed(int start, int end) {
+        while (start < end && isWhitespace(buffer.get(start))) {
+            ++start;
+        }
+        while (end > start && isWhitespace(buffer.get(end - 1))) {
+            --end;
+        }
+        return decode(start, end);
+    }
+
+    private String decode(int start, int end) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start,
+                    end - start, StandardCharsets.ISO_8859_1);
+        }
+        final char [] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char)(buffer.get(start + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    @Override public String toString() {
+        return "ByteBufferRequestInfo{" + getMethod() + ' '
+                + decode(targetStart, targetEnd) + ", headers=" + headerCount + '}';
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.util.ClassesInPackageFinder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scans each package once, so that registries rebuilt on reload do not scan the classpath again.
+ * The classes of a package are cached unfiltered, and filtered per call.
+ */
+final class CachingClassesInPackageFinder implements ClassesInPackageFinder {
+
+    private final ClassesInPackageFinder delegate;
+    private final Map<String, List<Class<?>>> classesByPackage;
+
+    CachingClassesInPackageFinder(ClassesInPackageFinder delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.classesByPackage = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public List<Class<?>> findClasses(String packageName, ClassFilter classFilter) {
+        final List<Class<?>> classes = classesByPackage.computeIfAbsent(packageName,
+                k -> Collections.unmodifiableList(new ArrayList<>(delegate.findClasses(k, clazz -> true))));
+        final List<Class<?>> result = new ArrayList<>(classes.size());
+        for (Class<?> clazz : classes) {
+            if (classFilter.test(clazz)) {
+                result.add(clazz);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CachingClassesInPackageFinder{packages=" + classesByPackage.size()
+                + ", delegate=" + delegate + '}';
+    }
+}
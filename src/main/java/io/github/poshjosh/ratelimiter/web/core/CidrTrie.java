@@ -0,0 +1,248 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * An immutable set of IP address ranges in CIDR notation e.g {@code 10.0.0.0/8}, {@code 2001:db8::/32}.
+ * <p>
+ * The ranges are stored in a path compressed binary trie over the 128 bits of each address.
+ * IPv4 ranges are mapped into the IPv6 address space. Each node holds a prefix; a node has at
+ * most 2 children, and chains of single child nodes are collapsed into one node. A lookup thus
+ * visits at most one node per branching point, rather than one per bit.
+ * </p>
+ * <p>
+ * Nodes are stored in parallel primitive arrays, to keep the trie compact when holding
+ * hundreds of thousands of ranges.
+ * </p>
+ */
+final class CidrTrie {
+
+    private static final int NONE = -1;
+    private static final int ROOT = 0;
+
+    private long [] highs;
+    private long [] lows;
+    private int [] prefixLengths;
+    private int [] zeroChildren;
+    private int [] oneChildren;
+    private boolean [] terminals;
+    private int nodeCount;
+    private int size;
+
+    /**
+     * @param lines Addresses or ranges, one per line. Blank lines, and text after {@code #} are ignored.
+     * @return A trie containing the ranges
+     */
+    static CidrTrie ofLines(Path lines) {
+        final CidrTrie trie = new CidrTrie(1024);
+        try (BufferedReader reader = Files.newBufferedReader(lines, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                ++lineNumber;
+                final int comment = line.indexOf('#');
+                final String text = (comment == -1 ? line : line.substring(0, comment)).trim();
+                if (text.isEmpty()) {
+                    continue;
+                }
+                try {
+                    trie.add(text);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(
+                            "Invalid entry at line " + lineNumber + " of " + lines + ", " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read: " + lines, e);
+        }
+        return trie.trimToSize();
+    }
+
+    /**
+     * @param values Addresses or ranges e.g {@code 192.168.0.1}, {@code 192.168.0.0/16}
+     * @return A trie containing the ranges
+     */
+    static CidrTrie of(String... values) {
+        final CidrTrie trie = new CidrTrie(values.length * 2 + 1);
+        for (String value : values) {
+            trie.add(value.trim());
+        }
+        return trie.trimToSize();
+    }
+
+    private CidrTrie(int capacity) {
+        highs = new long[capacity];
+        lows = new long[capacity];
+        prefixLengths = new int[capacity];
+        zeroChildren = new int[capacity];
+        oneChildren = new int[capacity];
+        terminals = new boolean[capacity];
+        newNode(0, 0, 0, false); // The root, which has an empty prefix
+    }
+
+    /**
+     * @param address The address to check
+     * @return true if the address falls within any of the ranges in this trie
+     */
+    boolean contains(IpAddress address) {
+        if (address == null) {
+            return false;
+        }
+        final long high = address.getHigh();
+        final long low = address.getLow();
+        int node = ROOT;
+        while (true) {
+            if (terminals[node]) {
+                return true;
+            }
+            final int prefixLength = prefixLengths[node];
+            if (prefixLength == IpAddress.BITS) {
+                return false;
+            }
+            node = IpAddress.bitAt(high, low, prefixLength) == 0 ? zeroChildren[node] : oneChildren[node];
+            if (node == NONE || !hasPrefix(high, low, node)) {
+                return false;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void add(String cidr) {
+        final int slash = cidr.indexOf('/');
+        final String addressText = slash == -1 ? cidr : cidr.substring(0, slash);
+        final IpAddress address = IpAddress.ofNullable(addressText);
+        if (address == null) {
+            throw new IllegalArgumentException("Invalid IP address: " + cidr);
+        }
+        final boolean ipv4 = addressText.indexOf(':') == -1;
+        final int maxLength = ipv4 ? IpAddress.BITS - IpAddress.IPV4_MAPPED_PREFIX_BITS : IpAddress.BITS;
+        final int length;
+        if (slash == -1) {
+            length = maxLength;
+        } else {
+            try {
+                length = Integer.parseInt(cidr.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid prefix length: " + cidr);
+            }
+            if (length < 0 || length > maxLength) {
+                throw new IllegalArgumentException("Invalid prefix length: " + cidr);
+            }
+        }
+        add(address.getHigh(), address.getLow(),
+                ipv4 ? length + IpAddress.IPV4_MAPPED_PREFIX_BITS : length);
+        ++size;
+    }
+
+    private void add(long high, long low, int length) {
+        high &= highMask(length);
+        low &= lowMask(length);
+        int node = ROOT;
+        while (true) {
+            final int nodeLength = prefixLengths[node];
+            if (nodeLength == length) {
+                terminals[node] = true;
+                return;
+            }
+            final int bit = IpAddress.bitAt(high, low, nodeLength);
+            final int child = bit == 0 ? zeroChildren[node] : oneChildren[node];
+            if (child == NONE) {
+                setChild(node, bit, newNode(high, low, length, true));
+                return;
+            }
+            final int common = Math.min(Math.min(length, prefixLengths[child]),
+                    commonPrefixLength(high, low, highs[child], lows[child]));
+            if (common == prefixLengths[child]) {
+                node = child;
+                continue;
+            }
+            // Split the edge to the child, at the point where the prefixes diverge
+            final int split = newNode(high & highMask(common), low & lowMask(common), common, common == length);
+            setChild(split, IpAddress.bitAt(highs[child], lows[child], common), child);
+            setChild(node, bit, split);
+            if (common != length) {
+                setChild(split, IpAddress.bitAt(high, low, common), newNode(high, low, length, true));
+            }
+            return;
+        }
+    }
+
+    private boolean hasPrefix(long high, long low, int node) {
+        final int length = prefixLengths[node];
+        return ((high ^ highs[node]) & highMask(length)) == 0 && ((low ^ lows[node]) & lowMask(length)) == 0;
+    }
+
+    private static int commonPrefixLength(long high0, long low0, long high1, long low1) {
+        final long high = high0 ^ high1;
+        if (high != 0) {
+            return Long.numberOfLeadingZeros(high);
+        }
+        return 64 + Long.numberOfLeadingZeros(low0 ^ low1);
+    }
+
+    private static long highMask(int length) {
+        if (length >= 64) {
+            return -1L;
+        }
+        return length == 0 ? 0 : -1L << (64 - length);
+    }
+
+    private static long lowMask(int length) {
+        if (length <= 64) {
+            return 0;
+        }
+        return length == IpAddress.BITS ? -1L : -1L << (IpAddress.BITS - length);
+    }
+
+    private void setChild(int node, int bit, int child) {
+        if (bit == 0) {
+            zeroChildren[node] = child;
+        } else {
+            oneChildren[node] = child;
+        }
+    }
+
+    private int newNode(long high, long low, int length, boolean terminal) {
+        if (nodeCount == highs.length) {
+            resize(nodeCount * 2);
+        }
+        final int node = nodeCount++;
+        highs[node] = high;
+        lows[node] = low;
+        prefixLengths[node] = length;
+        zeroChildren[node] = NONE;
+        oneChildren[node] = NONE;
+        terminals[node] = terminal;
+        return node;
+    }
+
+    private CidrTrie trimToSize() {
+        if (nodeCount < highs.length) {
+            resize(nodeCount);
+        }
+        return this;
+    }
+
+    private void resize(int capacity) {
+        highs = Arrays.copyOf(highs, capacity);
+        lows = Arrays.copyOf(lows, capacity);
+        prefixLengths = Arrays.copyOf(prefixLengths, capacity);
+        zeroChildren = Arrays.copyOf(zeroChildren, capacity);
+        oneChildren = Arrays.copyOf(oneChildren, capacity);
+        terminals = Arrays.copyOf(terminals, capacity);
+    }
+
+    @Override
+    public String toString() {
+        return "CidrTrie{size=" + size + ", nodes=" + nodeCount + '}';
+    }
+}
@@ -0,0 +1,211 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Resolves the IP address of the client of a request, from the headers set by trusted proxies.
+ * <p>
+ * Each proxy appends the address of its peer to a forwarding header. Only the entries appended
+ * by trusted proxies can be relied upon; entries to their left may have been set by the client.
+ * The peer of the request is therefore checked first. If it is not a trusted proxy, it is the
+ * client, and headers are ignored. If it is unknown, it is not trusted either, so no client is
+ * resolved. Otherwise, entries of the first header present (in order of
+ * priority) are read right to left, skipping trusted proxies. The first untrusted address is the
+ * client. If an entry is not a valid address e.g {@code unknown}, the nearest valid address read
+ * is the client. If every entry is a trusted proxy, the left-most is the client.
+ * </p>
+ * <p>
+ * Header {@code Forwarded} is parsed as specified by RFC 7239 i.e the {@code for} parameter of
+ * each element, with optional quotes, brackets and ports. Any other header is read as a comma
+ * separated list of addresses, as in {@code X-Forwarded-For}. Multiple lines of a header are
+ * read as one list. Entries are scanned in place; only the address resolved is copied.
+ * </p>
+ * <pre>
+ * WebRateLimiterContext context = WebRateLimiterContext.builder()
+ *         .resourceInfoProvider(resourceInfoProvider)
+ *         .clientIpResolver(ClientIpResolver.of("10.0.0.0/8", "192.168.0.0/16"))
+ *         .build();
+ * </pre>
+ */
+public final class ClientIpResolver {
+
+    public static final String FORWARDED = "Forwarded";
+
+    public static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    /**
+     * @param trustedProxies The addresses or CIDR ranges of trusted proxies e.g {@code 10.0.0.0/8}
+     * @return A resolver reading headers {@value #FORWARDED}, then {@value #X_FORWARDED_FOR}
+     */
+    public static ClientIpResolver of(String... trustedProxies) {
+        return of(Arrays.asList(trustedProxies), Arrays.asList(FORWARDED, X_FORWARDED_FOR));
+    }
+
+    /**
+     * @param trustedProxies The addresses or CIDR ranges of trusted proxies e.g {@code 10.0.0.0/8}
+     * @param headers The forwarding headers to read, in order of priority. Only the first
+     *                header present in a request is read.
+     * @return A resolver of client addresses
+     * @throws IllegalArgumentException If any trusted proxy is not a valid address or range
+     */
+    public static ClientIpResolver of(List<String> trustedProxies, List<String> headers) {
+        return new ClientIpResolver(CidrTrie.of(trustedProxies.toArray(new String[0])), headers);
+    }
+
+    private final CidrTrie trustedProxies;
+    private final List<String> headers;
+
+    private ClientIpResolver(CidrTrie trustedProxies, List<String> headers) {
+        this.trustedProxies = Objects.requireNonNull(trustedProxies);
+        this.headers = Collections.unmodifiableList(new ArrayList<>(headers));
+    }
+
+    /**
+     * @param request The request whose client address is to be resolved
+     * @param resultIfNone The value to return if the request has no peer address. Headers are
+     *                     not read, as they can not be trusted without a trusted peer.
+     * @return The address of the client of the request
+     */
+    public String resolve(RequestInfo request, String resultIfNone) {
+        final String peer = request.getPeerAddress(null);
+        if (peer == null) {
+            // An unknown peer could be anyone, so its forwarding headers are not trusted
+            return resultIfNone;
+        }
+        if (!trustedProxies.contains(IpAddress.ofNullable(peer))) {
+            return peer;
+        }
+        for (String header : headers) {
+            final List<String> lines = request.getHeaders(header);
+            if (lines == null || lines.isEmpty()) {
+                continue;
+            }
+            final boolean forwarded = FORWARDED.equalsIgnoreCase(header);
+            final Hop hop = new Hop();
+            for (int i = lines.size() - 1; i >= 0; i--) {
+                final String line = lines.get(i);
+                if (line == null) {
+                    continue;
+                }
+                if (!(forwarded ? hop.scanForwarded(line) : hop.scanList(line))) {
+                    break;
+                }
+            }
+            return hop.text == null ? peer : hop.text.substring(hop.start, hop.end);
+        }
+        return peer;
+    }
+
+    /**
+     * The nearest address read, which is either untrusted, or the left-most so far.
+     */
+    private final class Hop {
+        private String text;
+        private int start;
+        private int end;
+
+        /** @return true if scanning should continue to the left, otherwise false */
+        private boolean scanList(String line) {
+            int elementEnd = line.length();
+            for (int i = elementEnd - 1; i >= -1; i--) {
+                if (i == -1 || line.charAt(i) == ',') {
+                    if (!visit(line, i + 1, elementEnd)) {
+                        return false;
+                    }
+                    elementEnd = i;
+                }
+            }
+            return true;
+        }
+
+        /** @return true if scanning should continue to the left, otherwise false */
+        private boolean scanForwarded(String line) {
+            int elementEnd = line.length();
+            boolean quoted = false;
+            for (int i = elementEnd - 1; i >= -1; i--) {
+                if (i >= 0 && line.charAt(i) == '"') {
+                    quoted = !quoted;
+                } else if (i == -1 || (!quoted && line.charAt(i) == ',')) {
+                    if (!visitForwardedElement(line, i + 1, elementEnd)) {
+                        return false;
+                    }
+                    elementEnd = i;
+                }
+            }
+            return true;
+        }
+
+        /** Visit the {@code for} parameter of an element e.g {@code for=192.0.2.60;proto=http} */
+        private boolean visitForwardedElement(String line, int start, int end) {
+            int pairStart = start;
+            boolean quoted = false;
+            for (int i = start; i <= end; i++) {
+                if (i < end && line.charAt(i) == '"') {
+                    quoted = !quoted;
+                } else if (i == end || (!quoted && line.charAt(i) == ';')) {
+                    final int name = skipSpaces(line, pairStart, i);
+                    if (i - name > 4 && line.regionMatches(true, name, "for=", 0, 4)) {
+                        return visit(line, name + 4, i);
+                    }
+                    pairStart = i + 1;
+                }
+            }
+            // An element without a for parameter says nothing of the client
+            return false;
+        }
+
+        /**
+         * @return true if the address is a trusted proxy, so that scanning should continue to
+         * the left, otherwise false.
+         */
+        private boolean visit(String line, int start, int end) {
+            start = skipSpaces(line, start, end);
+            while (end > start && line.charAt(end - 1) == ' ') {
+                --end;
+            }
+            if (end - start > 1 && line.charAt(start) == '"' && line.charAt(end - 1) == '"') {
+                ++start;
+                --end;
+            }
+            if (start < end && line.charAt(start) == '[') {
+                // [IPv6] or [IPv6]:port
+                final int bracket = line.indexOf(']', start);
+                if (bracket == -1 || bracket >= end) {
+                    return false;
+                }
+                ++start;
+                end = bracket;
+            } else {
+                // IPv4:port
+                final int colon = line.indexOf(':', start);
+                if (colon != -1 && colon < end && line.lastIndexOf(':', end - 1) == colon) {
+                    end = colon;
+                }
+            }
+            final IpAddress address = IpAddress.ofNullable(line, start, end);
+            if (address == null) {
+                return false;
+            }
+            text = line;
+            this.start = start;
+            this.end = end;
+            return trustedProxies.contains(address);
+        }
+    }
+
+    private static int skipSpaces(String text, int start, int end) {
+        while (start < end && text.charAt(start) == ' ') {
+            ++start;
+        }
+        return start;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientIpResolver{trustedProxies=" + trustedProxies + ", headers=" + headers + '}';
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded, concurrent cache, shared by the caches of the request path.
+ * <p>
+ * Reads are lock free. When full, entries are evicted using the CLOCK algorithm (an
+ * approximation of LRU): each read marks its entry as referenced, and the clock hand
+ * evicts the first unreferenced entry, clearing reference marks as it passes them.
+ * </p>
+ * <p>
+ * A key is only admitted to the cache the second time it is missed within a window,
+ * as tracked by a small bit set (the doorkeeper). Keys that are seen once e.g paths
+ * with ids, thus never displace frequently used keys. The doorkeeper is cleared after
+ * every few multiples of capacity misses.
+ * </p>
+ * @param <K> The type of the keys, which should cache their hash code
+ * @param <V> The type of the values
+ */
+final class ClockCache<K, V> {
+
+    private static final class Entry<K, V> {
+        private final K key;
+        private final V value;
+        private volatile boolean referenced;
+        private Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final int DOORKEEPER_RESET_FACTOR = 4;
+
+    private final int capacity;
+    private final Map<K, Entry<K, V>> entries;
+
+    // Not a monitor, so that virtual threads are not pinned while waiting for it
+    private final ReentrantLock lock;
+    // Guarded by lock
+    private final Entry<K, V> [] clock;
+    private int hand;
+    private int size;
+
+    private final AtomicLongArray doorkeeper;
+    private final int doorkeeperMask;
+    private final LongAdder doorkeeperCount;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    @SuppressWarnings("unchecked")
+    ClockCache(int capacity) {
+        if (capacity < 1 || capacity > (1 << 24)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^24, found: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+        this.lock = new ReentrantLock();
+        this.clock = new Entry[capacity];
+        final int doorkeeperBits = Integer.highestOneBit(Math.max(capacity, 128) * 8 - 1) << 1;
+        this.doorkeeper = new AtomicLongArray(doorkeeperBits / 64);
+        this.doorkeeperMask = doorkeeperBits - 1;
+        this.doorkeeperCount = new LongAdder();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * @param key The key of the value to return
+     * @return The cached value, or null if no value is cached for the key
+     */
+    V get(K key) {
+        final Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Cache the value, if its key has been seen before.
+     * @param key The key of the value to cache
+     * @param value The value to cache
+     */
+    void put(K key, V value) {
+        if (!admit(key.hashCode())) {
+            return;
+        }
+        final Entry<K, V> entry = new Entry<>(Objects.requireNonNull(key), Objects.requireNonNull(value));
+        lock.lock();
+        try {
+            if (entries.containsKey(key)) {
+                return;
+            }
+            if (size < capacity) {
+                clock[size++] = entry;
+            } else {
+                // Bounded, in case concurrent reads keep marking entries as referenced
+                for (int i = 0; i < capacity && clock[hand].referenced; i++) {
+                    clock[hand].referenced = false;
+                    hand = (hand + 1) % capacity;
+                }
+                entries.remove(clock[hand].key);
+                clock[hand] = entry;
+                hand = (hand + 1) % capacity;
+            }
+            entries.put(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean admit(int hash) {
+        final int bit0 = spread(hash) & doorkeeperMask;
+        final int bit1 = spread(hash * 0x9E3779B9) & doorkeeperMask;
+        if (isSet(bit0) && isSet(bit1)) {
+            return true;
+        }
+        set(bit0);
+        set(bit1);
+        doorkeeperCount.increment();
+        if (doorkeeperCount.sum() > (long)capacity * DOORKEEPER_RESET_FACTOR) {
+            doorkeeperCount.reset();
+            for (int i = 0; i < doorkeeper.length(); i++) {
+                doorkeeper.set(i, 0);
+            }
+        }
+        return false;
+    }
+
+    private boolean isSet(int bit) {
+        return (doorkeeper.get(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    private void set(int bit) {
+        final int index = bit >>> 6;
+        final long mask = 1L << bit;
+        long current;
+        while (((current = doorkeeper.get(index)) & mask) == 0) {
+            if (doorkeeper.compareAndSet(index, current, current | mask)) {
+                return;
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ClockCache{size=" + size() + ", capacity=" + capacity
+                + ", hits=" + getHitCount() + ", misses=" + getMissCount() + '}';
+    }
+}
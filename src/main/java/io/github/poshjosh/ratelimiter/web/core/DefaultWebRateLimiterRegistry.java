@@ -5,86 +5,388 @@ import io.github.poshjosh.ratelimiter.matcher.MatchContext;
 import io.github.poshjosh.ratelimiter.matcher.Matcher;
 import io.github.poshjosh.ratelimiter.matcher.Matchers;
 import io.github.poshjosh.ratelimiter.model.RateSource;
+import io.github.poshjosh.ratelimiter.model.Rates;
 import io.github.poshjosh.ratelimiter.util.*;
+import io.github.poshjosh.ratelimiter.web.core.metrics.MetricsListener;
 import io.github.poshjosh.ratelimiter.web.core.registry.Registry;
+import io.github.poshjosh.ratelimiter.web.core.util.WebRateLimitProperties;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+/**
+ * Publishes an immutable snapshot of the rate limiting configuration, read once per request.
+ * <p>
+ * On reload, a new snapshot is built while requests proceed on the current one, and is then
+ * swapped in atomically. Reloads are serialized, but request threads never wait for them.
+ * Matchers are reused for ids whose rates are unchanged, and rate limiters are shared across
+ * snapshots, so that unchanged limits keep their state while changed limits start afresh.
+ * </p>
+ * <p>
+ * Each snapshot may cache the requests to which no rate applies (see {@link NoMatchCache}),
+ * while every rate is matched by http method and path alone. The cache is replaced whenever
+ * sources are registered or deregistered.
+ * </p>
+ */
 final class DefaultWebRateLimiterRegistry implements WebRateLimiterRegistry {
 
-    private final Map<String, List<Matcher<RequestInfo>>> matchers;
-    private final RateLimiterRegistry<RequestInfo> delegate;
+    private static final class Snapshot {
+        private final RateLimiterRegistry<RequestInfo> delegate;
+        // Lists may be added to concurrently, while matchers are created in parallel
+        private final Map<String, CopyOnWriteArrayList<Matcher<RequestInfo>>> matchers;
+        private final int noMatchCacheSize;
+        /** Null if disabled, or if any matcher depends on more than the method and path of requests. */
+        private volatile NoMatchCache noMatchCache;
+        private Snapshot(RateLimiterRegistry<RequestInfo> delegate,
+                Map<String, CopyOnWriteArrayList<Matcher<RequestInfo>>> matchers, int noMatchCacheSize) {
+            this.delegate = Objects.requireNonNull(delegate);
+            this.matchers = Objects.requireNonNull(matchers);
+            this.noMatchCacheSize = noMatchCacheSize;
+            resetNoMatchCache();
+        }
+        /**
+         * Replace the cache, whenever the rates change. Requests in flight, which were matched
+         * against the previous rates, thus fill the previous cache.
+         */
+        private void resetNoMatchCache() {
+            noMatchCache = noMatchCacheSize > 0 && isMatchedByHttpRequestAlone() ?
+                    new NoMatchCache(noMatchCacheSize) : null;
+        }
+        private boolean isMatchedByHttpRequestAlone() {
+            for (List<Matcher<RequestInfo>> list : matchers.values()) {
+                for (Matcher<RequestInfo> matcher : list) {
+                    if (!WebMatcherProvider.isHttpRequestMatcher(matcher)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    private volatile Snapshot snapshot;
+
+    /** Null when metrics are disabled, so that the request path costs nothing extra. */
+    private final MetricsListener metricsListener;
+
+    /** The ticker of the rate limiters, used to estimate when waited for permits will be available. */
+    private final Ticker ticker;
+
+    /** Null if client addresses are read from the requests as is. */
+    private final ClientIpResolver clientIpResolver;
+
+    private final SessionIdMode sessionIdMode;
+
+    /** Null if the context has no rate limiter provider, in which case batches are not grouped. */
+    private final BatchingRateLimiterProvider batchingProvider;
+
+    private final MemoizingMatcherProvider memoizingMatcherProvider;
+    private final Registry<Matcher<RequestInfo>> matcherRegistry;
+
+    private final Object reloadLock = new Object();
+
+    // Guarded by reloadLock
+    private WebRateLimiterContext webRateLimiterContext;
+    private final Map<String, RateSource> registered;
 
     DefaultWebRateLimiterRegistry(WebRateLimiterContext webRateLimiterContext) {
-        this.matchers = new ConcurrentHashMap<>();
+        this.metricsListener = webRateLimiterContext.getMetricsListenerOptional().orElse(null);
+        this.ticker = webRateLimiterContext.getTicker();
+        this.clientIpResolver = webRateLimiterContext.getClientIpResolverOptional().orElse(null);
+        this.sessionIdMode = webRateLimiterContext.getSessionIdMode() == null ?
+                SessionIdMode.CREATE_SESSION : webRateLimiterContext.getSessionIdMode();
 
-        final Registry<Matcher<RequestInfo>> matcherRegistry = Registry.ofDefaults();
+        this.matcherRegistry = Registry.ofDefaults();
 
         // Collect user defined config
         webRateLimiterContext.getConfigurerOptional()
                 .ifPresent(configurer -> configurer.configureMatchers(matcherRegistry));
 
+        this.memoizingMatcherProvider =
+                new MemoizingMatcherProvider(webRateLimiterContext.getMatcherProvider());
+
+        final RateLimiterProvider rateLimiterProvider = keepAlive(
+                webRateLimiterContext.getRateLimiterProvider(), webRateLimiterContext);
+        this.batchingProvider = rateLimiterProvider == null ?
+                null : new BatchingRateLimiterProvider(rateLimiterProvider);
+
+        this.webRateLimiterContext = webRateLimiterContext;
+        this.registered = new LinkedHashMap<>();
+        this.memoizingMatcherProvider.startBuild();
+        this.snapshot = build(webRateLimiterContext);
+        this.memoizingMatcherProvider.finishBuild();
+    }
+
+    private Snapshot build(WebRateLimiterContext webRateLimiterContext) {
+        final Map<String, CopyOnWriteArrayList<Matcher<RequestInfo>>> matchers = new ConcurrentHashMap<>();
+
         // Compose existing and user defined
-        final MatcherProvider<RequestInfo> matcherProvider = new MatcherProviderMultiSource(
-                webRateLimiterContext.getMatcherProvider(),
+        final MatcherProvider<RequestInfo> multiSourceMatcherProvider = new MatcherProviderMultiSource(
+                memoizingMatcherProvider,
                 matcherRegistry,
-                (name, matcher) -> {
-                    final List<Matcher<RequestInfo>> list = matchers
-                            .computeIfAbsent(name, k -> new ArrayList<>());
-                    if (!list.contains(matcher)) {
-                        list.add(matcher);
-                    }
-                });
+                (name, matcher) -> matchers
+                        .computeIfAbsent(name, k -> new CopyOnWriteArrayList<>())
+                        .addIfAbsent(matcher));
+
+        // Changed ids start afresh, whether their matchers were created or registered
+        final MatcherProvider<RequestInfo> versionedMatcherProvider =
+                new VersionedMatcherProvider(multiSourceMatcherProvider);
+
+        final MatcherProvider<RequestInfo> matcherProvider = metricsListener == null ?
+                versionedMatcherProvider :
+                new MeteredMatcherProvider(versionedMatcherProvider, metricsListener);
+
+        final int noMatchCacheSize = getNoMatchCacheSize(webRateLimiterContext);
+        final int parallelism = getBuildParallelism(webRateLimiterContext);
+        if (parallelism < 2) {
+            return new Snapshot(build(webRateLimiterContext, matcherProvider), matchers, noMatchCacheSize);
+        }
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            final ParallelMatcherProvider parallelMatcherProvider =
+                    new ParallelMatcherProvider(matcherProvider, pool);
+            final RateLimiterRegistry<RequestInfo> delegate =
+                    build(webRateLimiterContext, parallelMatcherProvider);
+            parallelMatcherProvider.complete();
+            return new Snapshot(delegate, matchers, noMatchCacheSize);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private RateLimiterRegistry<RequestInfo> build(WebRateLimiterContext webRateLimiterContext,
+            MatcherProvider<RequestInfo> matcherProvider) {
+        final RateLimiterContext<RequestInfo> context =
+                webRateLimiterContext.withMatcherProvider(matcherProvider);
+        return RateLimiterRegistries.of(batchingProvider == null ?
+                context : context.withRateLimiterProvider(batchingProvider));
+    }
+
+    private static int getBuildParallelism(WebRateLimiterContext webRateLimiterContext) {
+        if (!(webRateLimiterContext.getProperties() instanceof WebRateLimitProperties)) {
+            return 0;
+        }
+        final int parallelism =
+                ((WebRateLimitProperties) webRateLimiterContext.getProperties()).getBuildParallelism();
+        return parallelism < 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+    }
+
+    private static int getNoMatchCacheSize(WebRateLimiterContext webRateLimiterContext) {
+        return webRateLimiterContext.getProperties() instanceof WebRateLimitProperties ?
+                ((WebRateLimitProperties) webRateLimiterContext.getProperties()).getNoMatchCacheSize() : 0;
+    }
+
+    @Override public void reload(RateLimitProperties properties) {
+        Objects.requireNonNull(properties);
+        synchronized (reloadLock) {
+            reload(webRateLimiterContext.withProperties(properties));
+        }
+    }
+
+    @Override public void reload(List<Rates> rates) {
+        Objects.requireNonNull(rates);
+        synchronized (reloadLock) {
+            reload(webRateLimiterContext.withRates(rates));
+        }
+    }
+
+    // Guarded by reloadLock
+    private void reload(WebRateLimiterContext next) {
+        final Map<String, Rates> previousRates = memoizingMatcherProvider.startBuild();
+        final Snapshot nextSnapshot;
+        try {
+            // Matchers reused for unchanged rates refer to range files, which may have changed
+            next.getExpressionMatcherOptional()
+                    .filter(WebExpressionMatcher.class::isInstance)
+                    .ifPresent(matcher -> ((WebExpressionMatcher)matcher).reloadRangeFiles());
+            // The matchers of ids are versioned by their rates, so changed limits start afresh
+            nextSnapshot = build(next);
+            // Sources registered at runtime outlive reloads
+            registered.values().forEach(nextSnapshot.delegate::register);
+            if (!registered.isEmpty()) {
+                nextSnapshot.resetNoMatchCache();
+            }
+        } catch (RuntimeException e) {
+            // The current snapshot stays in use
+            memoizingMatcherProvider.cancelBuild(previousRates);
+            throw e;
+        }
+        memoizingMatcherProvider.finishBuild();
+        this.webRateLimiterContext = next;
+        this.snapshot = nextSnapshot;
+    }
 
-        this.delegate = RateLimiterRegistries.of(
-                webRateLimiterContext.withMatcherProvider(matcherProvider));
+    private static RateLimiterProvider keepAlive(RateLimiterProvider rateLimiterProvider,
+            WebRateLimiterContext webRateLimiterContext) {
+        if (rateLimiterProvider == null
+                || !(webRateLimiterContext.getProperties() instanceof WebRateLimitProperties)) {
+            return rateLimiterProvider;
+        }
+        final WebRateLimitProperties properties =
+                (WebRateLimitProperties) webRateLimiterContext.getProperties();
+        if (properties.getMaxRateLimiterKeys() < 1) {
+            return rateLimiterProvider;
+        }
+        return new KeyedRateLimiterProvider(rateLimiterProvider, webRateLimiterContext.getTicker(),
+                properties.getMaxRateLimiterKeys(), properties.getRateLimiterIdleTimeout(),
+                webRateLimiterContext.getMetricsListenerOptional().orElse(null));
+    }
+
+    private RequestInfo caching(RequestInfo request) {
+        return RequestInfos.caching(request, clientIpResolver, sessionIdMode);
     }
 
     @Override public boolean isWithinLimit(RequestInfo httpServletRequest) {
-        return delegate.isWithinLimit(httpServletRequest);
+        if (metricsListener == null) {
+            return isWithinLimit(snapshot, caching(httpServletRequest));
+        }
+        final long start = System.nanoTime();
+        final boolean result = isWithinLimit(snapshot, caching(httpServletRequest));
+        metricsListener.onRequest(result, System.nanoTime() - start);
+        return result;
+    }
+
+    private static boolean isWithinLimit(Snapshot current, RequestInfo request) {
+        final NoMatchCache noMatchCache = current.noMatchCache;
+        if (noMatchCache == null) {
+            return current.delegate.isWithinLimit(request);
+        }
+        final NoMatchCache.Key key = NoMatchCache.Key.of(request);
+        if (noMatchCache.contains(key)) {
+            return true;
+        }
+        final boolean result = current.delegate.isWithinLimit(request);
+        if (result && !((RequestInfos.CachingRequestInfo) request).isMatched()) {
+            noMatchCache.add(key);
+        }
+        return result;
     }
 
     @Override public boolean tryAcquire(RequestInfo httpServletRequest, int permits,
             long timeout, TimeUnit timeUnit) {
-        return delegate.tryAcquire(httpServletRequest, permits, timeout, timeUnit);
+        if (metricsListener == null) {
+            return tryAcquire(snapshot, caching(httpServletRequest), permits, timeout, timeUnit);
+        }
+        final long start = System.nanoTime();
+        final boolean result = tryAcquire(
+                snapshot, caching(httpServletRequest), permits, timeout, timeUnit);
+        metricsListener.onRequest(result, System.nanoTime() - start);
+        return result;
+    }
+
+    private boolean tryAcquire(Snapshot current, RequestInfo request, int permits,
+            long timeout, TimeUnit timeUnit) {
+        final NoMatchCache noMatchCache = current.noMatchCache;
+        if (noMatchCache == null) {
+            return BlockingAcquirer.tryAcquire(current.delegate, request, permits, timeout, timeUnit, ticker);
+        }
+        final NoMatchCache.Key key = NoMatchCache.Key.of(request);
+        if (noMatchCache.contains(key)) {
+            return true;
+        }
+        final boolean result = BlockingAcquirer.tryAcquire(
+                current.delegate, request, permits, timeout, timeUnit, ticker);
+        if (result && !((RequestInfos.CachingRequestInfo) request).isMatched()) {
+            noMatchCache.add(key);
+        }
+        return result;
+    }
+
+    @Override public BitSet isWithinLimit(List<RequestInfo> requests) {
+        if (batchingProvider == null) {
+            return WebRateLimiterRegistry.super.isWithinLimit(requests);
+        }
+        return batchingProvider.inBatch(() -> WebRateLimiterRegistry.super.isWithinLimit(requests));
+    }
+
+    @Override public BitSet tryAcquire(List<RequestInfo> requests, int permits) {
+        if (batchingProvider == null) {
+            return WebRateLimiterRegistry.super.tryAcquire(requests, permits);
+        }
+        return batchingProvider.inBatch(() -> WebRateLimiterRegistry.super.tryAcquire(requests, permits));
+    }
+
+    @Override public CompletionStage<Boolean> tryAcquireAsync(RequestInfo httpServletRequest,
+            int permits, long timeout, TimeUnit timeUnit, ScheduledExecutorService scheduler) {
+        final RateLimiter rateLimiter = getRateLimiterOrDefault(httpServletRequest, null);
+        if (rateLimiter == null) {
+            return CompletableFuture.completedFuture(Boolean.TRUE);
+        }
+        return AsyncAcquirer.tryAcquire(rateLimiter, permits, timeout, timeUnit, scheduler, ticker);
     }
 
     @Override public Set<String> getRateNames() {
-        return delegate.getRateNames();
+        return snapshot.delegate.getRateNames();
     }
 
     @Override public void visitRates(Consumer<MatchContext<RequestInfo>> visitor) {
-        delegate.visitRates(visitor);
+        snapshot.delegate.visitRates(visitor);
     }
 
     @Override public MatchContext<RequestInfo> getMatchContextOrDefault(
             String id, MatchContext<RequestInfo> resultIfNone) {
-        return delegate.getMatchContextOrDefault(id, resultIfNone);
+        return snapshot.delegate.getMatchContextOrDefault(id, resultIfNone);
     }
 
     @Override public RateLimiterRegistry<RequestInfo> deregister(String id) {
-        return delegate.deregister(id);
+        synchronized (reloadLock) {
+            registered.remove(id);
+            final Snapshot current = snapshot;
+            final RateLimiterRegistry<RequestInfo> result = current.delegate.deregister(id);
+            current.resetNoMatchCache();
+            return result;
+        }
     }
 
     @Override public RateLimiterRegistry<RequestInfo> register(RateSource rateSource) {
-        return delegate.register(rateSource);
+        synchronized (reloadLock) {
+            registered.put(rateSource.getId(), rateSource);
+            final Snapshot current = snapshot;
+            final RateLimiterRegistry<RequestInfo> result = current.delegate.register(rateSource);
+            current.resetNoMatchCache();
+            return result;
+        }
     }
 
     @Override public RateLimiter getRateLimiterOrDefault(RequestInfo requestInfo,
             RateLimiter resultIfNone) {
-        return delegate.getRateLimiterOrDefault(requestInfo, resultIfNone);
+        final Snapshot current = snapshot;
+        final NoMatchCache noMatchCache = current.noMatchCache;
+        final RequestInfo request = caching(requestInfo);
+        if (noMatchCache == null) {
+            return current.delegate.getRateLimiterOrDefault(request, resultIfNone);
+        }
+        final NoMatchCache.Key key = NoMatchCache.Key.of(request);
+        if (noMatchCache.contains(key)) {
+            return resultIfNone;
+        }
+        final RateLimiter rateLimiter = current.delegate.getRateLimiterOrDefault(request, null);
+        if (rateLimiter == null) {
+            noMatchCache.add(key);
+            return resultIfNone;
+        }
+        return rateLimiter;
     }
 
     @Override public RateLimiter getRateLimiterOrDefault(RateSource rateSource,
             RateLimiter resultIfNone) {
-        return delegate.getRateLimiterOrDefault(rateSource, resultIfNone);
+        return snapshot.delegate.getRateLimiterOrDefault(rateSource, resultIfNone);
+    }
+
+    /** @return The no-match cache of the current snapshot, or null if disabled */
+    NoMatchCache getNoMatchCache() {
+        return snapshot.noMatchCache;
     }
 
     @Override public boolean isRegistered(String name) {
-        return delegate.isRegistered(name);
+        return snapshot.delegate.isRegistered(name);
     }
 
     @Override
@@ -97,7 +399,7 @@ final class DefaultWebRateLimiterRegistry implements WebRateLimiterRegistry {
      * @return All the matchers that will be applied for the given id
      */
     private List<Matcher<RequestInfo>> getMatchers(String id) {
-        List<Matcher<RequestInfo>> result = matchers.get(id);
+        List<Matcher<RequestInfo>> result = snapshot.matchers.get(id);
         return result == null ? Collections.emptyList() : Collections.unmodifiableList(result);
     }
 }
@@ -0,0 +1,227 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+/**
+ * An IPv4 or IPv6 address, packed into 128 bits.
+ * <p>IPv4 addresses are mapped into the IPv6 address space i.e {@code ::ffff:a.b.c.d}.
+ * Parsing does not create intermediate strings.</p>
+ */
+final class IpAddress {
+
+    static final int BITS = 128;
+
+    /** The number of bits prefixed to an IPv4 address, to map it into the IPv6 address space. */
+    static final int IPV4_MAPPED_PREFIX_BITS = 96;
+
+    private static final long IPV4_MAPPED_LOW_PREFIX = 0x0000_FFFF_0000_0000L;
+
+    private final long high;
+    private final long low;
+
+    private IpAddress(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * @param text The text to parse e.g {@code 192.168.0.1}, {@code ::1}, {@code [fe80::1%eth0]}
+     * @return The parsed address, or null if the text is not a valid IP address
+     */
+    static IpAddress ofNullable(String text) {
+        if (text == null) {
+            return null;
+        }
+        return ofNullable(text, 0, text.length());
+    }
+
+    /**
+     * @param text The text containing the address to parse
+     * @param start The index of the first char of the address, inclusive
+     * @param end The index of the last char of the address, exclusive
+     * @return The parsed address, or null if the range is not a valid IP address
+     * @see #ofNullable(String)
+     */
+    static IpAddress ofNullable(String text, int start, int end) {
+        while (start < end && text.charAt(start) == ' ') {
+            ++start;
+        }
+        while (end > start && text.charAt(end - 1) == ' ') {
+            --end;
+        }
+        if (end - start > 1 && text.charAt(start) == '[' && text.charAt(end - 1) == ']') {
+            ++start;
+            --end;
+        }
+        final int zone = indexOf(text, '%', start, end);
+        if (zone != -1) {
+            end = zone;
+        }
+        if (start >= end) {
+            return null;
+        }
+        if (indexOf(text, ':', start, end) == -1) {
+            final long ipv4 = parseIpv4(text, start, end);
+            return ipv4 == -1 ? null : new IpAddress(0, IPV4_MAPPED_LOW_PREFIX | ipv4);
+        }
+        return parseIpv6(text, start, end);
+    }
+
+    private static int indexOf(String text, char ch, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    long getHigh() {
+        return high;
+    }
+
+    long getLow() {
+        return low;
+    }
+
+    /**
+     * @param high The most significant 64 bits of the address
+     * @param low The least significant 64 bits of the address
+     * @param index The index of the bit, from 0 (most significant) to 127 (least significant)
+     * @return The bit at the given index i.e either 0 or 1
+     */
+    static int bitAt(long high, long low, int index) {
+        return index < 64 ? (int)((high >>> (63 - index)) & 1) : (int)((low >>> (127 - index)) & 1);
+    }
+
+    /**
+     * @return -1 if invalid, otherwise the address in the lower 32 bits of the result.
+     */
+    private static long parseIpv4(String text, int start, int end) {
+        long result = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = start; i < end; i++) {
+            final char ch = text.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                value = value == -1 ? ch - '0' : value * 10 + (ch - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else if (ch == '.') {
+                if (value == -1 || octets == 3) {
+                    return -1;
+                }
+                result = (result << 8) | value;
+                ++octets;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (value == -1 || octets != 3) {
+            return -1;
+        }
+        return (result << 8) | value;
+    }
+
+    private static IpAddress parseIpv6(String text, int start, int end) {
+        // Up to 8 groups of 16 bits. The '::', if present, is expanded after all groups are read.
+        final int [] groups = new int[8];
+        int count = 0;
+        int compressedAt = -1;
+        int i = start;
+        if (text.startsWith("::", i)) {
+            compressedAt = 0;
+            i += 2;
+        }
+        while (i < end) {
+            if (count == 8) {
+                return null;
+            }
+            int j = i;
+            int value = 0;
+            while (j < end && j - i < 4 && Character.digit(text.charAt(j), 16) != -1) {
+                value = (value << 4) | Character.digit(text.charAt(j), 16);
+                ++j;
+            }
+            if (j < end && text.charAt(j) == '.') {
+                // Embedded IPv4 e.g ::ffff:192.168.0.1
+                final long ipv4 = parseIpv4(text, i, end);
+                if (ipv4 == -1 || count > 6) {
+                    return null;
+                }
+                groups[count++] = (int)(ipv4 >>> 16);
+                groups[count++] = (int)(ipv4 & 0xFFFF);
+                i = end;
+                break;
+            }
+            if (j == i) {
+                return null;
+            }
+            groups[count++] = value;
+            if (j == end) {
+                i = j;
+                break;
+            }
+            if (text.charAt(j) != ':') {
+                return null;
+            }
+            if (j + 1 < end && text.charAt(j + 1) == ':') {
+                if (compressedAt != -1) {
+                    return null;
+                }
+                compressedAt = count;
+                i = j + 2;
+            } else {
+                if (j + 1 == end) {
+                    return null;
+                }
+                i = j + 1;
+            }
+        }
+        if (compressedAt == -1 && count != 8) {
+            return null;
+        }
+        if (compressedAt != -1 && count == 8) {
+            return null;
+        }
+        long high = 0;
+        long low = 0;
+        final int gap = 8 - count;
+        for (int g = 0; g < 8; g++) {
+            final int value;
+            if (compressedAt == -1 || g < compressedAt) {
+                value = groups[g];
+            } else if (g < compressedAt + gap) {
+                value = 0;
+            } else {
+                value = groups[g - gap];
+            }
+            if (g < 4) {
+                high = (high << 16) | value;
+            } else {
+                low = (low << 16) | value;
+            }
+        }
+        return new IpAddress(high, low);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        IpAddress that = (IpAddress) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high) * 31 + Long.hashCode(low);
+    }
+
+    @Override
+    public String toString() {
+        return "IpAddress{" + Long.toHexString(high) + ':' + Long.toHexString(low) + '}';
+    }
+}
@@ -0,0 +1,273 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.RateLimiter;
+import io.github.poshjosh.ratelimiter.RateLimiterProvider;
+import io.github.poshjosh.ratelimiter.model.Rate;
+import io.github.poshjosh.ratelimiter.model.Rates;
+import io.github.poshjosh.ratelimiter.util.Ticker;
+import io.github.poshjosh.ratelimiter.web.core.metrics.MetricsListener;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the rate limiters of a delegate provider alive, while they are used, up to a maximum number of keys.
+ * <p>
+ * The default provider and store hold rate limiters weakly, by key. Keys returned by matchers per
+ * request e.g session ids are therefore dropped at any garbage collection, resetting their limits,
+ * while a custom store keeps them forever. This provider holds each key, and thus its rate limiter
+ * and bandwidth, until it expires or is evicted.
+ * </p>
+ * <p>
+ * A rate limiter expires once it has been unused for the idle timeout, and its bandwidth has no
+ * permits reserved into the future. The idle timeout of a rate limiter is at least the longest
+ * duration of its rates, the time its bandwidth takes to fully replenish. A bandwidth which
+ * expired partially drained would otherwise come back full, granting an extra burst. Expiry is tracked on a {@link TimingWheel}, with the time of
+ * last use checked, and the key scheduled again if need be, only when its slot is reached.
+ * Using a rate limiter thus only writes a timestamp.
+ * </p>
+ * <p>
+ * Beyond the maximum number of keys, the least recently used of a sample of keys is evicted,
+ * whatever the state of its bandwidth. An evicted key, if used again, starts afresh.
+ * </p>
+ * <p>
+ * Maintenance, i.e expiry and eviction, runs on request threads: at most once per tick, by
+ * whichever thread gets the lock, and always when there are too many keys.
+ * </p>
+ */
+final class KeyedRateLimiterProvider implements RateLimiterProvider {
+
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private static final long MIN_TICK_MICROS = 1_000;
+
+    private static final class Entry extends TimingWheel.Node {
+        private final String key;
+        private final RateLimiter rateLimiter;
+        private final boolean multiRate;
+        private final long idleTimeoutMicros;
+        private volatile long lastUsedMicros;
+        private Entry(String key, RateLimiter rateLimiter, boolean multiRate,
+                long idleTimeoutMicros, long nowMicros) {
+            this.key = key;
+            this.rateLimiter = Objects.requireNonNull(rateLimiter);
+            this.multiRate = multiRate;
+            this.idleTimeoutMicros = idleTimeoutMicros;
+            this.lastUsedMicros = nowMicros;
+        }
+    }
+
+    private final RateLimiterProvider delegate;
+    private final Ticker ticker;
+    private final int maxKeys;
+    private final long idleTimeoutMicros;
+    private final long tickMicros;
+
+    /** Null when metrics are disabled. */
+    private final MetricsListener metricsListener;
+
+    private final Map<String, Entry> entries;
+    private final AtomicInteger size;
+    private final Queue<Entry> added;
+
+    // Guarded by maintenanceLock
+    private final ReentrantLock maintenanceLock;
+    private final TimingWheel<Entry> wheel;
+    private Iterator<Entry> evictionCursor;
+    private volatile long nextMaintenanceMicros;
+
+    private final LongAdder expirations;
+    private final LongAdder evictions;
+
+    KeyedRateLimiterProvider(RateLimiterProvider delegate, Ticker ticker,
+            int maxKeys, Duration idleTimeout, MetricsListener metricsListener) {
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("Max keys must be positive, found: " + maxKeys);
+        }
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Idle timeout must be positive, found: " + idleTimeout);
+        }
+        this.delegate = Objects.requireNonNull(delegate);
+        this.ticker = Objects.requireNonNull(ticker);
+        this.maxKeys = maxKeys;
+        this.idleTimeoutMicros = TimeUnit.NANOSECONDS.toMicros(idleTimeout.toNanos());
+        // Expiry is accurate to about 1/64 of the idle timeout
+        this.tickMicros = Math.max(MIN_TICK_MICROS, idleTimeoutMicros / 64);
+        this.metricsListener = metricsListener;
+        this.entries = new ConcurrentHashMap<>();
+        this.size = new AtomicInteger();
+        this.added = new ConcurrentLinkedQueue<>();
+        this.maintenanceLock = new ReentrantLock();
+        final long nowMicros = ticker.elapsedMicros();
+        this.wheel = new TimingWheel<>(nowMicros / tickMicros);
+        this.nextMaintenanceMicros = nowMicros + tickMicros;
+        this.expirations = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    @Override
+    public RateLimiter getRateLimiter(String key, Rate rate) {
+        return getRateLimiter(key, false, () -> delegate.getRateLimiter(key, rate),
+                () -> idleTimeoutMicros(rate));
+    }
+
+    @Override
+    public RateLimiter getRateLimiter(String key, Rates rates) {
+        return getRateLimiter(key, true, () -> delegate.getRateLimiter(key, rates),
+                () -> idleTimeoutMicros(rates));
+    }
+
+    private long idleTimeoutMicros(Rates rates) {
+        long result = idleTimeoutMicros;
+        if (rates != null) {
+            for (Rate rate : rates.getAllLimits()) {
+                result = Math.max(result, idleTimeoutMicros(rate));
+            }
+        }
+        return result;
+    }
+
+    private long idleTimeoutMicros(Rate rate) {
+        if (rate == null || rate.getDuration() == null) {
+            return idleTimeoutMicros;
+        }
+        return Math.max(idleTimeoutMicros, TimeUnit.NANOSECONDS.toMicros(rate.getDuration().toNanos()));
+    }
+
+    private RateLimiter getRateLimiter(String key, boolean multiRate,
+            Supplier<RateLimiter> factory, LongSupplier idleTimeout) {
+        final long nowMicros = ticker.elapsedMicros();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = entries.computeIfAbsent(key, k -> {
+                final Entry created = new Entry(
+                        k, factory.get(), multiRate, idleTimeout.getAsLong(), nowMicros);
+                size.incrementAndGet();
+                added.add(created);
+                return created;
+            });
+        } else if (entry.multiRate != multiRate) {
+            // The same key used for both a rate and rates. Rare; not kept alive.
+            return factory.get();
+        } else if (nowMicros - entry.lastUsedMicros >= tickMicros) {
+            // Finer updates would not change when the key expires
+            entry.lastUsedMicros = nowMicros;
+        }
+        maintain(nowMicros);
+        return entry.rateLimiter;
+    }
+
+    private void maintain(long nowMicros) {
+        if (size.get() > maxKeys) {
+            maintenanceLock.lock();
+        } else if (nowMicros < nextMaintenanceMicros || !maintenanceLock.tryLock()) {
+            return;
+        }
+        try {
+            nextMaintenanceMicros = nowMicros + tickMicros;
+            Entry entry;
+            while ((entry = added.poll()) != null) {
+                if (entries.get(entry.key) == entry) {
+                    wheel.schedule(entry, toTick(entry.lastUsedMicros + entry.idleTimeoutMicros));
+                }
+            }
+            wheel.advance(toTick(nowMicros), e -> expireOrReschedule(e, nowMicros));
+            while (size.get() > maxKeys) {
+                evictOne();
+            }
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    private long toTick(long micros) {
+        return micros / tickMicros + 1;
+    }
+
+    private void expireOrReschedule(Entry entry, long nowMicros) {
+        final long idleUntilMicros = entry.lastUsedMicros + entry.idleTimeoutMicros;
+        if (idleUntilMicros > nowMicros) {
+            wheel.schedule(entry, toTick(idleUntilMicros));
+            return;
+        }
+        final long availableMicros = entry.rateLimiter.getBandwidth().queryEarliestAvailable(nowMicros);
+        if (availableMicros > nowMicros) {
+            // Permits are reserved into the future; forgetting them would reset the limit
+            wheel.schedule(entry, toTick(availableMicros));
+            return;
+        }
+        if (remove(entry)) {
+            expirations.increment();
+            if (metricsListener != null) {
+                metricsListener.onRateLimiterRemoved(entry.key, true);
+            }
+        }
+    }
+
+    private void evictOne() {
+        Entry oldest = null;
+        for (int i = 0; i < EVICTION_SAMPLE_SIZE; i++) {
+            if (evictionCursor == null || !evictionCursor.hasNext()) {
+                evictionCursor = entries.values().iterator();
+                if (!evictionCursor.hasNext()) {
+                    break;
+                }
+            }
+            final Entry entry = evictionCursor.next();
+            if (oldest == null || entry.lastUsedMicros < oldest.lastUsedMicros) {
+                oldest = entry;
+            }
+        }
+        if (oldest == null) {
+            return;
+        }
+        wheel.cancel(oldest);
+        if (remove(oldest)) {
+            evictions.increment();
+            if (metricsListener != null) {
+                metricsListener.onRateLimiterRemoved(oldest.key, false);
+            }
+        }
+    }
+
+    private boolean remove(Entry entry) {
+        if (entries.remove(entry.key, entry)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /** @return The number of keys whose rate limiters are kept alive */
+    int size() {
+        return size.get();
+    }
+
+    /** @return The number of keys removed after being idle */
+    long getExpirations() {
+        return expirations.sum();
+    }
+
+    /** @return The number of keys removed to stay within the maximum number of keys */
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "KeyedRateLimiterProvider{size=" + size() + ", maxKeys=" + maxKeys
+                + ", expirations=" + getExpirations() + ", evictions=" + getEvictions()
+                + ", delegate=" + delegate + '}';
+    }
+}
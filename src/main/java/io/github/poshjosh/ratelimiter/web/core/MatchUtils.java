@@ -21,6 +21,20 @@ final class MatchUtils {
             default: throw invalidOperator(operator);
         }
     }
+    static boolean matchesList(Operator operator, List<?> values, StringSet supplied) {
+        switch(operator) {
+            case AND: return allMatch(values, supplied);
+            case OR: return anyMatch(values, supplied);
+            default: throw invalidOperator(operator);
+        }
+    }
+    static boolean matchesValue(Operator operator, Object value, StringSet supplied) {
+        switch(operator) {
+            case AND: return allMatch(value, supplied);
+            case OR: return anyMatch(value, supplied);
+            default: throw invalidOperator(operator);
+        }
+    }
     private static RuntimeException invalidOperator(Operator operator) {
         return new UnsupportedOperationException("Unexpected " +
                 Operator.class.getName() + ": " + operator);
@@ -79,6 +93,56 @@ final class MatchUtils {
         }
         return Arrays.asList(supplied).contains(value);
     }
+    private static boolean allMatch(List<?> values, StringSet supplied) {
+        if (isNullOrEmpty(values)) {
+            return false;
+        }
+        if (supplied.size() == 0 || supplied.size() > values.size()) {
+            return false;
+        }
+        // All supplied must be found in values. Values are not hashed, so searching values for
+        // each supplied would be O(n*k). Rather, we walk values once, probing supplied, and count
+        // the distinct values found. Those are at most supplied.size(), bounding the dedupe set.
+        if (supplied.size() == 1) {
+            for (Object value : values) {
+                if (supplied.contains(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        final Set<Object> found = new HashSet<>(Math.min(supplied.size(), 16) * 2);
+        for (Object value : values) {
+            if (supplied.contains(value) && found.add(value) && found.size() == supplied.size()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    private static boolean allMatch(Object value, StringSet supplied) {
+        if (isNullOrEmpty(value)) {
+            return false;
+        }
+        return supplied.size() == 1 && supplied.contains(value);
+    }
+    private static boolean anyMatch(List<?> values, StringSet supplied) {
+        if (isNullOrEmpty(values)) {
+            return false;
+        }
+        // Any value must be found in supplied
+        for (Object value : values) {
+            if (supplied.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    private static boolean anyMatch(Object value, StringSet supplied) {
+        if (isNullOrEmpty(value)) {
+            return false;
+        }
+        return supplied.contains(value);
+    }
     private static boolean isNullOrEmpty(List<?> list) {
         return list == null || list.isEmpty();
     }
@@ -0,0 +1,114 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.matcher.Matcher;
+import io.github.poshjosh.ratelimiter.model.RateConfig;
+import io.github.poshjosh.ratelimiter.model.Rates;
+import io.github.poshjosh.ratelimiter.util.MatcherProvider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reuses the matchers of each id, across builds of a registry, for as long as the rates of the
+ * id are unchanged.
+ * <p>
+ * A registry is built afresh on reload. Creating matchers e.g parsing paths and rate condition
+ * expressions, is the bulk of that work, and is thus only done for ids whose rates changed.
+ * Also records the rates of each id built, from which reloads are diffed.
+ * </p>
+ */
+final class MemoizingMatcherProvider implements MatcherProvider<RequestInfo> {
+
+    private static final class Entry {
+        private final Rates rates;
+        private volatile Matcher<RequestInfo> mainMatcher;
+        private volatile List<Matcher<RequestInfo>> subMatchers;
+        private Entry(Rates rates) {
+            this.rates = rates;
+        }
+    }
+
+    private final MatcherProvider<RequestInfo> delegate;
+    private final Map<String, Entry> entries;
+
+    /** The rates of each id of the latest build, or of the build in progress. */
+    private volatile Map<String, Rates> built;
+
+    MemoizingMatcherProvider(MatcherProvider<RequestInfo> delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.entries = new ConcurrentHashMap<>();
+        this.built = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public Matcher<RequestInfo> createMainMatcher(RateConfig rateConfig) {
+        final Entry entry = entryOf(rateConfig);
+        Matcher<RequestInfo> result = entry.mainMatcher;
+        if (result == null) {
+            result = delegate.createMainMatcher(rateConfig);
+            entry.mainMatcher = result;
+        }
+        return result;
+    }
+
+    @Override
+    public List<Matcher<RequestInfo>> createSubMatchers(RateConfig rateConfig) {
+        final Entry entry = entryOf(rateConfig);
+        List<Matcher<RequestInfo>> result = entry.subMatchers;
+        if (result == null) {
+            result = Collections.unmodifiableList(delegate.createSubMatchers(rateConfig));
+            entry.subMatchers = result;
+        }
+        return result;
+    }
+
+    private Entry entryOf(RateConfig rateConfig) {
+        final String id = rateConfig.getId();
+        final Rates rates = rateConfig.getRates();
+        built.put(id, rates);
+        final Entry existing = entries.get(id);
+        if (existing != null && Objects.equals(existing.rates, rates)) {
+            return existing;
+        }
+        final Entry created = new Entry(rates);
+        entries.put(id, created);
+        return created;
+    }
+
+    /**
+     * Start recording the rates of a new build. Should not be called concurrently.
+     * @return The rates of each id of the previous build
+     */
+    Map<String, Rates> startBuild() {
+        final Map<String, Rates> previous = built;
+        built = new ConcurrentHashMap<>();
+        return Collections.unmodifiableMap(new HashMap<>(previous));
+    }
+
+    /**
+     * Drop the matchers of ids absent from the build just completed.
+     * @return The rates of each id of the build
+     */
+    Map<String, Rates> finishBuild() {
+        final Map<String, Rates> current = built;
+        entries.keySet().retainAll(current.keySet());
+        return Collections.unmodifiableMap(new HashMap<>(current));
+    }
+
+    /**
+     * Discard the build in progress.
+     * @param previous The rates of each id of the previous build, as returned by {@link #startBuild()}
+     */
+    void cancelBuild(Map<String, Rates> previous) {
+        built = new ConcurrentHashMap<>(previous);
+    }
+
+    @Override
+    public String toString() {
+        return "MemoizingMatcherProvider{ids=" + entries.size() + ", delegate=" + delegate + '}';
+    }
+}
@@ -0,0 +1,47 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.store.BandwidthsStore;
+import io.github.poshjosh.ratelimiter.web.core.metrics.MetricsListener;
+
+import java.util.Objects;
+
+/**
+ * Reports the round-trip time of each store operation to a {@link MetricsListener}.
+ * Only used when metrics are enabled.
+ */
+final class MeteredBandwidthsStore<K> implements BandwidthsStore<K> {
+
+    private final BandwidthsStore<K> delegate;
+    private final MetricsListener metricsListener;
+
+    MeteredBandwidthsStore(BandwidthsStore<K> delegate, MetricsListener metricsListener) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.metricsListener = Objects.requireNonNull(metricsListener);
+    }
+
+    @Override
+    public Bandwidth get(K key) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.get(key);
+        } finally {
+            metricsListener.onStoreAccess("get", System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void put(K key, Bandwidth bandwidth) {
+        final long start = System.nanoTime();
+        try {
+            delegate.put(key, bandwidth);
+        } finally {
+            metricsListener.onStoreAccess("put", System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MeteredBandwidthsStore{" + delegate + '}';
+    }
+}
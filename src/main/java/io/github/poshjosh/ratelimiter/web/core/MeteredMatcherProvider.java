@@ -0,0 +1,78 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.matcher.Matcher;
+import io.github.poshjosh.ratelimiter.matcher.Matchers;
+import io.github.poshjosh.ratelimiter.model.RateConfig;
+import io.github.poshjosh.ratelimiter.util.MatcherProvider;
+import io.github.poshjosh.ratelimiter.web.core.metrics.MetricsListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reports the evaluation time of each matcher to a {@link MetricsListener}.
+ * Only used when metrics are enabled.
+ */
+final class MeteredMatcherProvider implements MatcherProvider<RequestInfo> {
+
+    private final MatcherProvider<RequestInfo> delegate;
+    private final MetricsListener metricsListener;
+
+    MeteredMatcherProvider(MatcherProvider<RequestInfo> delegate, MetricsListener metricsListener) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.metricsListener = Objects.requireNonNull(metricsListener);
+    }
+
+    @Override
+    public Matcher<RequestInfo> createMainMatcher(RateConfig rateConfig) {
+        return metered(rateConfig.getId(), delegate.createMainMatcher(rateConfig));
+    }
+
+    @Override
+    public List<Matcher<RequestInfo>> createSubMatchers(RateConfig rateConfig) {
+        final List<Matcher<RequestInfo>> matchers = delegate.createSubMatchers(rateConfig);
+        final List<Matcher<RequestInfo>> result = new ArrayList<>(matchers.size());
+        for (Matcher<RequestInfo> matcher : matchers) {
+            result.add(metered(rateConfig.getId(), matcher));
+        }
+        return result;
+    }
+
+    private Matcher<RequestInfo> metered(String id, Matcher<RequestInfo> matcher) {
+        if (matcher == null || Matchers.matchNone().equals(matcher)) {
+            return matcher;
+        }
+        return new MeteredMatcher(id, matcher, metricsListener);
+    }
+
+    private static final class MeteredMatcher implements Matcher<RequestInfo> {
+        private final String id;
+        private final Matcher<RequestInfo> delegate;
+        private final MetricsListener metricsListener;
+        private MeteredMatcher(String id, Matcher<RequestInfo> delegate, MetricsListener metricsListener) {
+            this.id = Objects.requireNonNull(id);
+            this.delegate = Objects.requireNonNull(delegate);
+            this.metricsListener = metricsListener;
+        }
+        @Override public String match(RequestInfo request) {
+            final long start = System.nanoTime();
+            final String result = delegate.match(request);
+            metricsListener.onMatch(id, !Matchers.NO_MATCH.equals(result), System.nanoTime() - start);
+            return result;
+        }
+        @Override public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            return delegate.equals(((MeteredMatcher) o).delegate);
+        }
+        @Override public int hashCode() {
+            return delegate.hashCode();
+        }
+        @Override public String toString() {
+            return "MeteredMatcher{" + delegate + '}';
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.RateLimiter;
+import io.github.poshjosh.ratelimiter.RateLimiterProvider;
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.model.Rate;
+import io.github.poshjosh.ratelimiter.model.Rates;
+import io.github.poshjosh.ratelimiter.web.core.metrics.MetricsListener;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports permits granted or denied, and the time taken to acquire them, to a
+ * {@link MetricsListener}. Only used when metrics are enabled.
+ */
+final class MeteredRateLimiterProvider implements RateLimiterProvider {
+
+    private final RateLimiterProvider delegate;
+    private final MetricsListener metricsListener;
+
+    MeteredRateLimiterProvider(RateLimiterProvider delegate, MetricsListener metricsListener) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.metricsListener = Objects.requireNonNull(metricsListener);
+    }
+
+    @Override
+    public RateLimiter getRateLimiter(String key, Rate rate) {
+        return new MeteredRateLimiter(key, delegate.getRateLimiter(key, rate), metricsListener);
+    }
+
+    @Override
+    public RateLimiter getRateLimiter(String key, Rates rates) {
+        return new MeteredRateLimiter(key, delegate.getRateLimiter(key, rates), metricsListener);
+    }
+
+    private static final class MeteredRateLimiter implements RateLimiter {
+        private final String key;
+        private final RateLimiter delegate;
+        private final MetricsListener metricsListener;
+        private MeteredRateLimiter(String key, RateLimiter delegate, MetricsListener metricsListener) {
+            this.key = key;
+            this.delegate = Objects.requireNonNull(delegate);
+            this.metricsListener = metricsListener;
+        }
+        @Override public Bandwidth getBandwidth() {
+            return delegate.getBandwidth();
+        }
+        @Override public double acquire(int permits) {
+            final long start = System.nanoTime();
+            final double result = delegate.acquire(permits);
+            metricsListener.onAcquire(key, permits, true, System.nanoTime() - start);
+            return result;
+        }
+        @Override public boolean tryAcquire(int permits, long timeout, TimeUnit unit) {
+            final long start = System.nanoTime();
+            final boolean result = delegate.tryAcquire(permits, timeout, unit);
+            metricsListener.onAcquire(key, permits, result, System.nanoTime() - start);
+            return result;
+        }
+        @Override public String toString() {
+            return "MeteredRateLimiter{" + delegate + '}';
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import java.util.Objects;
+
+/**
+ * A bounded, concurrent set of requests to which no rate applies.
+ * <p>
+ * Requests are keyed by http method, and by the raw parts from which their path is resolved:
+ * the request URI, context path, servlet path and character encoding. A known request thus
+ * costs one hash lookup, without resolving its path. The cache is only valid while every
+ * matcher depends on nothing but the method and path of requests, and must be replaced
+ * whenever the rates change.
+ * </p>
+ * <p>
+ * Entries are evicted by the CLOCK algorithm, and a request is only admitted the second time
+ * it is added, see {@link ClockCache}. Requests seen once e.g paths with random ids, thus
+ * never displace frequently seen requests.
+ * </p>
+ */
+final class NoMatchCache {
+
+    static final class Key {
+        private final String method;
+        private final String requestUri;
+        private final String contextPath;
+        private final String servletPath;
+        private final String encoding;
+        private final int hash;
+        private Key(String method, String requestUri, String contextPath, String servletPath, String encoding) {
+            this.method = method;
+            this.requestUri = requestUri;
+            this.contextPath = contextPath;
+            this.servletPath = servletPath;
+            this.encoding = encoding;
+            this.hash = Objects.hash(method, requestUri, contextPath, servletPath, encoding);
+        }
+        static Key of(RequestInfo request) {
+            return new Key(request.getMethod(), request.getRequestUri(), request.getContextPath(),
+                    request.getServletPath(), request.getCharacterEncoding(null));
+        }
+        @Override public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            Key key = (Key) o;
+            return hash == key.hash && Objects.equals(requestUri, key.requestUri)
+                    && Objects.equals(method, key.method)
+                    && Objects.equals(contextPath, key.contextPath)
+                    && Objects.equals(servletPath, key.servletPath)
+                    && Objects.equals(encoding, key.encoding);
+        }
+        @Override public int hashCode() {
+            return hash;
+        }
+        @Override public String toString() {
+            return "Key{" + method + ' ' + contextPath + ", " + servletPath + ", " + requestUri + ", " + encoding + '}';
+        }
+    }
+
+    private final ClockCache<Key, Boolean> keys;
+
+    NoMatchCache(int capacity) {
+        this.keys = new ClockCache<>(capacity);
+    }
+
+    /**
+     * @param key The key of the request to check
+     * @return true if no rate applies to the request, otherwise false
+     */
+    boolean contains(Key key) {
+        return keys.get(key) != null;
+    }
+
+    /**
+     * Cache the request, if it has been added before.
+     * @param key The key of a request to which no rate applies
+     */
+    void add(Key key) {
+        keys.put(key, Boolean.TRUE);
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    int getCapacity() {
+        return keys.getCapacity();
+    }
+
+    @Override
+    public String toString() {
+        return "NoMatchCache{size=" + size() + ", capacity=" + getCapacity() + '}';
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.matcher.Matcher;
+import io.github.poshjosh.ratelimiter.matcher.Matchers;
+import io.github.poshjosh.ratelimiter.model.RateConfig;
+import io.github.poshjosh.ratelimiter.util.MatcherProvider;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Creates main matchers on a fork-join pool, while a registry is built.
+ * <p>
+ * The registry's tree of rate configs is walked on the building thread. For each config, the
+ * main matcher is created by a task on the pool, and a deferred matcher, bound to the config,
+ * returned at once. Which matcher goes with which config thus does not depend on the order in
+ * which the tasks complete, and the tree built is the same as when building serially.
+ * {@link #complete()} must be called once the registry is built, and before it is used, to
+ * wait for all the tasks. Thereafter matchers are created on the calling thread.
+ * </p>
+ * <p>
+ * A deferred matcher is never {@link Matchers#matchNone()}, even if the matcher it defers to
+ * is. Configs without a matcher thus remain in the tree, where they never match. Sub-matchers,
+ * usually few, are created on the calling thread.
+ * </p>
+ */
+final class ParallelMatcherProvider implements MatcherProvider<RequestInfo> {
+
+    private final MatcherProvider<RequestInfo> delegate;
+    private final ForkJoinPool pool;
+    private final Queue<DeferredMatcher> pending;
+    private volatile boolean complete;
+
+    ParallelMatcherProvider(MatcherProvider<RequestInfo> delegate, ForkJoinPool pool) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.pool = Objects.requireNonNull(pool);
+        this.pending = new ConcurrentLinkedQueue<>();
+    }
+
+    @Override
+    public Matcher<RequestInfo> createMainMatcher(RateConfig rateConfig) {
+        if (complete) {
+            return delegate.createMainMatcher(rateConfig);
+        }
+        final DeferredMatcher deferred = new DeferredMatcher(
+                pool.submit(() -> delegate.createMainMatcher(rateConfig)));
+        pending.add(deferred);
+        return deferred;
+    }
+
+    @Override
+    public List<Matcher<RequestInfo>> createSubMatchers(RateConfig rateConfig) {
+        return delegate.createSubMatchers(rateConfig);
+    }
+
+    /**
+     * Wait for all matchers to be created.
+     * @throws RuntimeException The first exception thrown while creating a matcher
+     */
+    void complete() {
+        complete = true;
+        DeferredMatcher deferred;
+        while ((deferred = pending.poll()) != null) {
+            deferred.resolve();
+        }
+    }
+
+    private static final class DeferredMatcher implements Matcher<RequestInfo> {
+        private final ForkJoinTask<Matcher<RequestInfo>> task;
+        // Set by complete(), before the registry is published. A thread which still sees null joins the task.
+        private Matcher<RequestInfo> resolved;
+        private DeferredMatcher(ForkJoinTask<Matcher<RequestInfo>> task) {
+            this.task = task;
+        }
+        private Matcher<RequestInfo> resolve() {
+            Matcher<RequestInfo> result = resolved;
+            if (result == null) {
+                result = task.join();
+                if (result == null) {
+                    result = Matchers.matchNone();
+                }
+                resolved = result;
+            }
+            return result;
+        }
+        @Override public String match(RequestInfo request) {
+            return resolve().match(request);
+        }
+        @Override public String toString() {
+            final boolean created = task.isDone() && !task.isCompletedAbnormally();
+            return "DeferredMatcher{" + (created ? resolve() : "pending") + '}';
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import java.util.Objects;
+
+/**
+ * A bounded, concurrent cache of normalized request paths.
+ * <p>
+ * Entries are evicted by the CLOCK algorithm, and a key is only admitted the second time
+ * it is missed, see {@link ClockCache}. Keys that are seen once e.g paths with ids, thus
+ * never displace frequently used keys.
+ * </p>
+ */
+final class PathCache {
+
+    static final class Key {
+        private final String requestUri;
+        private final String contextPath;
+        private final String servletPath;
+        private final String encoding;
+        private final int hash;
+        Key(String requestUri, String contextPath, String servletPath, String encoding) {
+            this.requestUri = Objects.requireNonNull(requestUri);
+            this.contextPath = contextPath;
+            this.servletPath = servletPath;
+            this.encoding = encoding;
+            this.hash = Objects.hash(requestUri, contextPath, servletPath, encoding);
+        }
+        @Override public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            Key key = (Key) o;
+            return hash == key.hash && requestUri.equals(key.requestUri)
+                    && Objects.equals(contextPath, key.contextPath)
+                    && Objects.equals(servletPath, key.servletPath)
+                    && Objects.equals(encoding, key.encoding);
+        }
+        @Override public int hashCode() {
+            return hash;
+        }
+        @Override public String toString() {
+            return "Key{" + contextPath + ", " + servletPath + ", " + requestUri + ", " + encoding + '}';
+        }
+    }
+
+    private final ClockCache<Key, String> cache;
+
+    PathCache(int capacity) {
+        this.cache = new ClockCache<>(capacity);
+    }
+
+    /**
+     * @param key The key of the path to return
+     * @return The cached path, or null if no path is cached for the key
+     */
+    String get(Key key) {
+        return cache.get(key);
+    }
+
+    /**
+     * Cache the path, if its key has been seen before.
+     * @param key The key of the path to cache
+     * @param path The path to cache
+     */
+    void put(Key key, String path) {
+        cache.put(key, path);
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    int getCapacity() {
+        return cache.getCapacity();
+    }
+
+    long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    @Override
+    public String toString() {
+        return "PathCache{size=" + size() + ", capacity=" + getCapacity()
+                + ", hits=" + getHitCount() + ", misses=" + getMissCount() + '}';
+    }
+}
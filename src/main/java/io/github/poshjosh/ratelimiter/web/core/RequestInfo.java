@@ -60,6 +60,18 @@ public interface RequestInfo {
 
     String getRemoteAddr(String resultIfNone);
 
+    /**
+     * @param resultIfNone The value to return if there is no peer address
+     * @return The address of the immediate peer of this request i.e the client or the nearest
+     * proxy, regardless of any forwarding headers. By default, {@code resultIfNone}, as
+     * {@link #getRemoteAddr(String)} may be derived from forwarding headers. Implementations
+     * which know the peer should override this method.
+     * @see ClientIpResolver
+     */
+    default String getPeerAddress(String resultIfNone) {
+        return resultIfNone;
+    }
+
     List<Locale> getLocales();
 
     String getMethod();
@@ -70,6 +82,18 @@ public interface RequestInfo {
 
     String getSessionId(String resultIfNone);
 
+    /**
+     * @param resultIfNone The value to return if the request has no valid session
+     * @return The id of the existing session requested via cookie or URL. Implementations
+     * should not create a session. By default, {@code resultIfNone}, as
+     * {@link #getSessionId(String)} may create a session. Implementations which support
+     * {@link SessionIdMode#EXISTING_SESSION} should override this method.
+     * @see SessionIdMode#EXISTING_SESSION
+     */
+    default String getRequestedSessionId(String resultIfNone) {
+        return resultIfNone;
+    }
+
     Principal getUserPrincipal(Principal resultIfNone);
 
     boolean isUserInRole(String role);
@@ -5,9 +5,10 @@ import org.slf4j.LoggerFactory;
 
 import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.nio.ByteBuffer;
 import java.security.Principal;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public final class RequestInfos {
     private static final Logger LOG = LoggerFactory.getLogger(RequestInfos.class);
@@ -16,9 +17,224 @@ public final class RequestInfos {
         return new JavaxServletRequest(request);
     }
 
+    /**
+     * Create a request over the raw bytes of an HTTP/1.1 request line and headers, e.g as
+     * received by a gateway, before any request object is created.
+     * <p>The request line and header offsets are indexed once. Only the header names and values
+     * asked for are then decoded. The buffer's position is not changed, and its content must
+     * not change while the returned instance is in use.</p>
+     * <p>The context path and servlet path are empty. Parameters are read from the query
+     * string only. There are no attributes, sessions or authenticated users.</p>
+     * @param requestHead The request line and headers, from the buffer's position to its limit
+     * @param remoteAddr The address of the peer which sent the request, or null
+     * @return A request over the provided bytes
+     * @throws IllegalArgumentException If the request line is invalid
+     */
+    public static RequestInfo of(ByteBuffer requestHead, String remoteAddr) {
+        return new ByteBufferRequestInfo(requestHead, remoteAddr);
+    }
+
+    /**
+     * Wrap the provided request, so that values derived from it are computed at most once.
+     * <p>The servlet-relative path, client IP address, locales, cookies (and their values, by
+     * name) and character encoding are resolved lazily, on first access, and then reused.</p>
+     * <p>The returned instance is scoped to a single request and is not thread-safe.</p>
+     * @param request The request to wrap
+     * @return A caching view of the request, or the request itself if it is already caching.
+     */
+    public static RequestInfo caching(RequestInfo request) {
+        return caching(request, null, SessionIdMode.CREATE_SESSION);
+    }
+
+    /**
+     * @param request The request to wrap
+     * @param clientIpResolver Resolves the client address of the request, or null to use
+     *                         the remote address of the request as is
+     * @param sessionIdMode How the session id of the request is resolved
+     * @return A caching view of the request, or the request itself if it is already caching.
+     * @see #caching(RequestInfo)
+     */
+    static RequestInfo caching(RequestInfo request, ClientIpResolver clientIpResolver,
+            SessionIdMode sessionIdMode) {
+        if (request instanceof CachingRequestInfo) {
+            return request;
+        }
+        return new CachingRequestInfo(request, clientIpResolver, sessionIdMode);
+    }
+
+    static final class CachingRequestInfo implements RequestInfo {
+        private final RequestInfo delegate;
+        private final ClientIpResolver clientIpResolver;
+        private final SessionIdMode sessionIdMode;
+
+        private UrlPathHelper pathHelper;
+        private String pathWithinServlet;
+
+        private ResourcePathIndex resourcePathIndex;
+        private Set<String> candidateResourceIds;
+
+        private boolean remoteAddrResolved;
+        private String remoteAddr;
+
+        private boolean ipAddressResolved;
+        private IpAddress ipAddress;
+
+        private boolean localesResolved;
+        private List<Locale> locales;
+
+        private boolean cookiesResolved;
+        private List<Cookie> cookies;
+        private Map<String, String> cookieValues;
+
+        private boolean characterEncodingResolved;
+        private String characterEncoding;
+
+        private boolean matched;
+
+        private CachingRequestInfo(RequestInfo delegate, ClientIpResolver clientIpResolver,
+                SessionIdMode sessionIdMode) {
+            this.delegate = Objects.requireNonNull(delegate);
+            this.clientIpResolver = clientIpResolver;
+            this.sessionIdMode = Objects.requireNonNull(sessionIdMode);
+        }
+
+        String getPathWithinServlet(UrlPathHelper urlPathHelper) {
+            if (pathHelper != urlPathHelper) {
+                pathWithinServlet = urlPathHelper.resolvePathWithinServlet(this);
+                pathHelper = urlPathHelper;
+            }
+            return pathWithinServlet;
+        }
+
+        Set<String> getCandidateResourceIds(
+                ResourcePathIndex index, UrlPathHelper urlPathHelper) {
+            if (resourcePathIndex != index) {
+                candidateResourceIds = index.getCandidates(
+                        getMethod(), getPathWithinServlet(urlPathHelper));
+                resourcePathIndex = index;
+            }
+            return candidateResourceIds;
+        }
+
+        /**
+         * @param name The case-sensitive name of the cookie whose value is to be returned
+         * @return The value of the first cookie with the given name, or null if there is none.
+         */
+        String getCookieValue(String name) {
+            if (cookieValues == null) {
+                final List<Cookie> list = getCookies();
+                if (list == null || list.isEmpty()) {
+                    cookieValues = Collections.emptyMap();
+                } else {
+                    cookieValues = new HashMap<>(list.size() * 4 / 3 + 1);
+                    for (Cookie cookie : list) {
+                        cookieValues.putIfAbsent(cookie.name(), cookie.value());
+                    }
+                }
+            }
+            return cookieValues.get(name);
+        }
+
+        /** Called by matchers of http methods and paths, when they match this request. */
+        void markMatched() {
+            matched = true;
+        }
+
+        /**
+         * @return true if a matcher of http methods and paths matched this request, otherwise false.
+         * @see NoMatchCache
+         */
+        boolean isMatched() {
+            return matched;
+        }
+
+        /**
+         * @return The client IP address in packed form, or null if the request does not have
+         * a valid client IP address.
+         */
+        IpAddress getIpAddress() {
+            if (!ipAddressResolved) {
+                ipAddress = IpAddress.ofNullable(getRemoteAddr(null));
+                ipAddressResolved = true;
+            }
+            return ipAddress;
+        }
+
+        @Override public String getAuthScheme(String resultIfNone) {
+            return delegate.getAuthScheme(resultIfNone);
+        }
+        @Override public String getCharacterEncoding(String resultIfNone) {
+            if (!characterEncodingResolved) {
+                characterEncoding = delegate.getCharacterEncoding(null);
+                characterEncodingResolved = true;
+            }
+            return characterEncoding == null ? resultIfNone : characterEncoding;
+        }
+        @Override public String getContextPath() { return delegate.getContextPath(); }
+        @Override public List<Cookie> getCookies() {
+            if (!cookiesResolved) {
+                final List<Cookie> list = delegate.getCookies();
+                cookies = list == null ? null : Collections.unmodifiableList(list);
+                cookiesResolved = true;
+            }
+            return cookies;
+        }
+        @Override public List<String> getHeaders(String name) {
+            return delegate.getHeaders(name);
+        }
+        @Override public Object getAttribute(String name, Object resultIfNone) {
+            return delegate.getAttribute(name, resultIfNone);
+        }
+        @Override public List<String> getParameters(String name) {
+            return delegate.getParameters(name);
+        }
+        @Override public String getRemoteAddr(String resultIfNone) {
+            if (!remoteAddrResolved) {
+                remoteAddr = clientIpResolver == null ?
+                        delegate.getRemoteAddr(null) : clientIpResolver.resolve(delegate, null);
+                remoteAddrResolved = true;
+            }
+            return remoteAddr == null ? resultIfNone : remoteAddr;
+        }
+        @Override public String getPeerAddress(String resultIfNone) {
+            return delegate.getPeerAddress(resultIfNone);
+        }
+        @Override public List<Locale> getLocales() {
+            if (!localesResolved) {
+                final List<Locale> list = delegate.getLocales();
+                locales = list == null ? null : Collections.unmodifiableList(list);
+                localesResolved = true;
+            }
+            return locales;
+        }
+        @Override public String getMethod() { return delegate.getMethod(); }
+        @Override public String getRequestUri() { return delegate.getRequestUri(); }
+        @Override public String getServletPath() { return delegate.getServletPath(); }
+        @Override public String getSessionId(String resultIfNone) {
+            if (sessionIdMode == SessionIdMode.EXISTING_SESSION) {
+                return delegate.getRequestedSessionId(SessionIdMode.NO_SESSION_ID);
+            }
+            return delegate.getSessionId(resultIfNone);
+        }
+        @Override public String getRequestedSessionId(String resultIfNone) {
+            return delegate.getRequestedSessionId(resultIfNone);
+        }
+        @Override public Principal getUserPrincipal(Principal resultIfNone) {
+            return delegate.getUserPrincipal(resultIfNone);
+        }
+        @Override public boolean isUserInRole(String role) {
+            return delegate.isUserInRole(role);
+        }
+        @Override public String toString() {
+            return "CachingRequestInfo{" + delegate + '}';
+        }
+    }
+
     private static final class JavaxServletRequest implements RequestInfo {
 
         private final HttpServletRequest request;
+        /** The values of each header, by case-insensitive name. Built on first header lookup. */
+        private Map<String, List<String>> headers;
         JavaxServletRequest(HttpServletRequest request) {
             this.request = Objects.requireNonNull(request);
         }
@@ -34,23 +250,31 @@ public final class RequestInfos {
         @Override public String getContextPath() { return request.getContextPath(); }
         @Override public List<Cookie> getCookies() {
             javax.servlet.http.Cookie [] cookies = request.getCookies();
-            return cookies == null ? null :
-                    Arrays.stream(request.getCookies())
-                            .map(cookie -> Cookie.of(cookie.getName(), cookie.getValue()))
-                            .collect(Collectors.toList());
-        }
-        @Override public List<String> getHeaders(String name) {
-            Enumeration<String> headerNames = request.getHeaderNames();
-            if (headerNames == null) {
+            if (cookies == null) {
                 return null;
             }
-            while(headerNames.hasMoreElements()) {
-                String headerName = headerNames.nextElement();
-                if(headerName.equalsIgnoreCase(name)) { // Case-insensitive
-                    return Collections.list(request.getHeaders(headerName));
+            final List<Cookie> result = new ArrayList<>(cookies.length);
+            for (javax.servlet.http.Cookie cookie : cookies) {
+                result.add(Cookie.of(cookie.getName(), cookie.getValue()));
+            }
+            return result;
+        }
+        @Override public List<String> getHeaders(String name) {
+            if (headers == null) {
+                Enumeration<String> headerNames = request.getHeaderNames();
+                if (headerNames == null) {
+                    return null;
                 }
+                // Case-insensitive
+                final Map<String, List<String>> index = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                while(headerNames.hasMoreElements()) {
+                    String headerName = headerNames.nextElement();
+                    index.putIfAbsent(headerName,
+                            Collections.unmodifiableList(Collections.list(request.getHeaders(headerName))));
+                }
+                headers = index;
             }
-            return null;
+            return headers.get(name);
         }
         @Override public Object getAttribute(String name, Object resultIfNone) {
             Object attribute = request.getAttribute(name);
@@ -63,6 +287,10 @@ public final class RequestInfos {
         @Override public String getRemoteAddr(String resultIfNone) {
             return getClientIpAddress(request, resultIfNone);
         }
+        @Override public String getPeerAddress(String resultIfNone) {
+            final String peer = request.getRemoteAddr();
+            return peer == null ? resultIfNone : peer;
+        }
         @Override public List<Locale> getLocales() {
             Enumeration<Locale> locales = request.getLocales();
             return locales == null ? null : Collections.list(locales);
@@ -87,9 +315,15 @@ public final class RequestInfos {
             final String id = request.getSession(true).getId();
             return id == null ? resultIfNone : id;
         }
+        @Override public String getRequestedSessionId(String resultIfNone) {
+            // Only the session of a valid requested id (or one created earlier by the application) exists
+            final HttpSession session = request.getSession(false);
+            final String id = session == null ? null : session.getId();
+            return id == null ? resultIfNone : id;
+        }
     }
 
-    private static final String[] IP_ADDR_RELATED_HEADERS = {
+    static final String[] IP_ADDR_RELATED_HEADERS = {
             "X-Forwarded-For",
             "Proxy-Client-IP",
             "WL-Proxy-Client-IP",
@@ -110,8 +344,9 @@ public final class RequestInfos {
                 for (String header : IP_ADDR_RELATED_HEADERS) {
                     ip = httpServletRequest.getHeader(header);
                     if (ip != null && !ip.isEmpty() && !"unknown".equalsIgnoreCase(ip)) {
-                        if (ip.contains(",")) {
-                            ip = ip.split(",")[0];
+                        final int comma = ip.indexOf(',');
+                        if (comma != -1) {
+                            ip = ip.substring(0, comma);
                         }
                         break;
                     }
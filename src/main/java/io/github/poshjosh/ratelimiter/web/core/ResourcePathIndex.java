@@ -0,0 +1,209 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfo;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of the path patterns and http methods of resources, for narrowing down the
+ * resources which could possibly match a request.
+ * <p>
+ * Path patterns are split into segments and added to a trie. Literal segments, single segment
+ * wildcards (e.g {@code {id}}, {@code *}, {@code user?}) and multi-segment wildcards
+ * (i.e {@code **} and {@code {*path}}) are supported. Given an http method and path, all the trie branches which
+ * could match the path are walked in one pass, to collect the ids of the candidate resources.
+ * </p>
+ * <p>
+ * The index is conservative. It may return resources which do not match a path, but will never
+ * omit a resource which matches the path. Candidates should therefore still be checked
+ * using {@link io.github.poshjosh.ratelimiter.web.core.util.ResourcePath#matches(String)}.
+ * Patterns that the index does not understand are always returned as candidates.
+ * </p>
+ */
+final class ResourcePathIndex {
+
+    private static final String ANY_METHOD = "";
+
+    private static final class Node {
+        private final Map<String, Node> literals = new ConcurrentHashMap<>();
+        private final Set<String> ids = ConcurrentHashMap.newKeySet();
+        private final Set<String> idsMatchingRemainder = ConcurrentHashMap.newKeySet();
+        private volatile Node wildcard;
+        private Node literal(String segment) {
+            return literals.computeIfAbsent(segment, k -> new Node());
+        }
+        private synchronized Node wildcard() {
+            if (wildcard == null) {
+                wildcard = new Node();
+            }
+            return wildcard;
+        }
+    }
+
+    private final Map<String, Node> methodToRoot = new ConcurrentHashMap<>();
+
+    private final Set<String> alwaysCandidates = ConcurrentHashMap.newKeySet();
+
+    ResourcePathIndex() { }
+
+    void add(ResourceInfo resourceInfo) {
+        final String id = resourceInfo.getId();
+        final List<String> patterns = resourceInfo.getResourcePath().getPatterns();
+        if (patterns.isEmpty()) {
+            alwaysCandidates.add(id);
+            return;
+        }
+        final Collection<String> httpMethods = resourceInfo.getHttpMethods();
+        for (String pattern : patterns) {
+            final List<String> segments = toSegmentsOrNull(pattern);
+            if (segments == null) {
+                alwaysCandidates.add(id);
+                continue;
+            }
+            if (httpMethods.isEmpty()) { // If no method is defined, match all methods
+                add(ANY_METHOD, segments, id);
+            } else {
+                for (String httpMethod : httpMethods) {
+                    add(httpMethod.toUpperCase(Locale.ROOT), segments, id);
+                }
+            }
+        }
+    }
+
+    private void add(String httpMethod, List<String> segments, String id) {
+        Node node = methodToRoot.computeIfAbsent(httpMethod, k -> new Node());
+        for (String segment : segments) {
+            if (isMultiSegmentWildcard(segment)) {
+                // Whatever follows ** is ignored, this makes the index broader but never narrower
+                node.idsMatchingRemainder.add(id);
+                return;
+            }
+            node = isWildcard(segment) ? node.wildcard() : node.literal(toKey(segment));
+        }
+        node.ids.add(id);
+    }
+
+    /**
+     * Collect the ids of all resources which could match the provided http method and path.
+     * @param httpMethod The http method of the request
+     * @param path The path of the request, relative to the servlet
+     * @return The ids of the resources which could match the request
+     */
+    Set<String> getCandidates(String httpMethod, String path) {
+        final Set<String> result = new HashSet<>(alwaysCandidates);
+        final List<Node> active = new ArrayList<>(2);
+        final Node anyMethodRoot = methodToRoot.get(ANY_METHOD);
+        if (anyMethodRoot != null) {
+            active.add(anyMethodRoot);
+        }
+        final Node methodRoot = httpMethod == null ? null :
+                methodToRoot.get(httpMethod.toUpperCase(Locale.ROOT));
+        if (methodRoot != null) {
+            active.add(methodRoot);
+        }
+        collectCandidates(active, path, result);
+        return result;
+    }
+
+    private void collectCandidates(List<Node> active, String path, Set<String> result) {
+        List<Node> next = new ArrayList<>();
+        final int len = path == null ? 0 : path.length();
+        int start = 0;
+        while (start < len && !active.isEmpty()) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = len;
+            }
+            if (end > start) {
+                final String segment = toKey(path.substring(start, end));
+                for (Node node : active) {
+                    result.addAll(node.idsMatchingRemainder);
+                    addChild(next, node.literals.get(segment));
+                    final int dot = segment.indexOf('.');
+                    if (dot > 0) { // Possibly a path with a suffix, e.g /users.json
+                        addChild(next, node.literals.get(segment.substring(0, dot)));
+                    }
+                    addChild(next, node.wildcard);
+                }
+                final List<Node> swap = active;
+                active = next;
+                next = swap;
+                next.clear();
+            }
+            start = end + 1;
+        }
+        for (Node node : active) {
+            result.addAll(node.idsMatchingRemainder);
+            result.addAll(node.ids);
+            final Node wildcard = node.wildcard;
+            if (wildcard != null) { // Some wildcards match empty segments e.g /users/* matches /users/
+                result.addAll(wildcard.ids);
+            }
+        }
+    }
+
+    private static void addChild(List<Node> nodes, Node child) {
+        if (child != null && !nodes.contains(child)) {
+            nodes.add(child);
+        }
+    }
+
+    /**
+     * @param pattern The pattern to split into segments
+     * @return The segments of the pattern, or null if the pattern is not supported by this index.
+     */
+    private static List<String> toSegmentsOrNull(String pattern) {
+        final List<String> segments = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            final char ch = pattern.charAt(i);
+            if (ch == '{') {
+                ++depth;
+            } else if (ch == '}') {
+                --depth;
+            } else if (ch == ':' && depth > 0) {
+                // Path variables with regular expressions e.g {path: .*} may span many segments
+                return null;
+            } else if (ch == '/' && depth == 0) {
+                addSegment(segments, pattern, start, i);
+                start = i + 1;
+            }
+            if (depth < 0 || depth > 1) {
+                return null;
+            }
+        }
+        if (depth != 0) {
+            return null;
+        }
+        addSegment(segments, pattern, start, pattern.length());
+        return segments;
+    }
+
+    private static void addSegment(List<String> segments, String pattern, int start, int end) {
+        if (end > start) {
+            segments.add(pattern.substring(start, end));
+        }
+    }
+
+    /** {@code **}, or a capture-all path variable e.g {@code {*path}} */
+    private static boolean isMultiSegmentWildcard(String segment) {
+        return "**".equals(segment) || segment.startsWith("{*");
+    }
+
+    private static boolean isWildcard(String segment) {
+        return segment.indexOf('{') != -1 || segment.indexOf('*') != -1
+                || segment.indexOf('?') != -1;
+    }
+
+    private static String toKey(String segment) {
+        return segment.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return "ResourcePathIndex{methods=" + methodToRoot.keySet() +
+                ", alwaysCandidates=" + alwaysCandidates + '}';
+    }
+}
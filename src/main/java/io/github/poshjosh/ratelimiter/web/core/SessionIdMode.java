@@ -0,0 +1,27 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+/**
+ * How the session id of a request is resolved, e.g for rate condition {@code web.session.id}.
+ * @see WebRateLimiterContext.Builder#sessionIdMode(SessionIdMode)
+ */
+public enum SessionIdMode {
+
+    /**
+     * The id of the request's session, which is created if there is none. The default.
+     * <p>Every request without a session thus creates one, which is costly when sessions are
+     * replicated, and gives each such request a fresh key.</p>
+     */
+    CREATE_SESSION,
+
+    /**
+     * The id of the session requested via cookie or URL, if it exists. Sessions are never
+     * created. Requests without a valid session all share the id {@value #NO_SESSION_ID},
+     * and so are limited together. Custom implementations of {@link RequestInfo} must override
+     * {@link RequestInfo#getRequestedSessionId(String)}, else every request is without a session.
+     * @see RequestInfo#getRequestedSessionId(String)
+     */
+    EXISTING_SESSION;
+
+    /** The session id of requests without a session, in mode {@link #EXISTING_SESSION}. */
+    public static final String NO_SESSION_ID = "web.session.none";
+}
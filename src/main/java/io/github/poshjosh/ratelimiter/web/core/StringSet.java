@@ -0,0 +1,82 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import java.util.Objects;
+
+/**
+ * An immutable set of strings, backed by an open-addressing (linear probing) hash table.
+ * <p>Lookups do not allocate, and take constant time regardless of the size of the set.
+ * Suited for large lists of values in rate conditions e.g API keys and tenant ids.</p>
+ */
+final class StringSet {
+
+    private final String [] table;
+    private final int [] hashes;
+    private final int mask;
+    private final int size;
+
+    static StringSet of(String... values) {
+        return new StringSet(values);
+    }
+
+    private StringSet(String [] values) {
+        final int capacity = tableSizeFor(Math.max(2, values.length * 2));
+        this.table = new String[capacity];
+        this.hashes = new int[capacity];
+        this.mask = capacity - 1;
+        int count = 0;
+        for (String value : values) {
+            if (add(Objects.requireNonNull(value))) {
+                ++count;
+            }
+        }
+        this.size = count;
+    }
+
+    private boolean add(String value) {
+        final int hash = spread(value.hashCode());
+        int index = hash & mask;
+        while (table[index] != null) {
+            if (hashes[index] == hash && table[index].equals(value)) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = value;
+        hashes[index] = hash;
+        return true;
+    }
+
+    boolean contains(Object value) {
+        if (!(value instanceof String)) {
+            return false;
+        }
+        final int hash = spread(value.hashCode());
+        int index = hash & mask;
+        String candidate;
+        while ((candidate = table[index]) != null) {
+            if (hashes[index] == hash && candidate.equals(value)) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int tableSizeFor(int n) {
+        final int highestOneBit = Integer.highestOneBit(n);
+        return highestOneBit == n ? n : highestOneBit << 1;
+    }
+
+    @Override
+    public String toString() {
+        return "StringSet{size=" + size + '}';
+    }
+}
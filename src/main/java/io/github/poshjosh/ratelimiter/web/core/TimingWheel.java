@@ -0,0 +1,167 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel, of 4 levels of 64 slots each.
+ * <p>
+ * Time is measured in ticks. Level 0 slots span 1 tick, level 1 slots span 64 ticks, and so on.
+ * A node is placed at the lowest level whose span covers its deadline, and moved down a level
+ * (cascaded) when the wheel reaches its slot. Scheduling, cancelling and firing a node are thus
+ * O(1). Deadlines beyond the span of the wheel (about 16.7 million ticks) are placed in the
+ * furthest slot, and placed again when reached.
+ * </p>
+ * <p>Not thread-safe.</p>
+ * @param <N> The type of the scheduled nodes
+ */
+final class TimingWheel<N extends TimingWheel.Node> {
+
+    /**
+     * A node which may be scheduled in a timing wheel. Nodes are linked into the slots of the
+     * wheel, so that nothing is allocated per scheduling. A node is in at most one wheel.
+     */
+    static class Node {
+        private Node prev;
+        private Node next;
+        private long deadline;
+        boolean isScheduled() {
+            return next != null;
+        }
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long SPAN = 1L << (BITS * LEVELS);
+
+    // Each slot is the sentinel of a circular doubly-linked list
+    private final Node [][] slots;
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long currentTick) {
+        this.slots = new Node[LEVELS][SLOTS];
+        for (Node [] level : slots) {
+            for (int i = 0; i < SLOTS; i++) {
+                final Node sentinel = new Node();
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                level[i] = sentinel;
+            }
+        }
+        this.currentTick = currentTick;
+    }
+
+    /**
+     * Schedule the node to fire at the deadline. If the node is already scheduled, it is
+     * rescheduled. A deadline not after the current tick fires at the next tick.
+     */
+    void schedule(N scheduled, long deadlineTick) {
+        final Node node = scheduled;
+        if (node.isScheduled()) {
+            node.unlink();
+        } else {
+            ++size;
+        }
+        node.deadline = deadlineTick;
+        place(node, currentTick + 1);
+    }
+
+    void cancel(N scheduled) {
+        final Node node = scheduled;
+        if (node.isScheduled()) {
+            node.unlink();
+            --size;
+        }
+    }
+
+    /**
+     * @param earliestTick The earliest tick at which the node may fire. Either the current tick,
+     * when cascading, before the current level 0 slot is fired, or the next tick.
+     */
+    private void place(Node node, long earliestTick) {
+        final long delta = Math.max(1, node.deadline - currentTick);
+        final long placement = delta >= SPAN ? currentTick + SPAN - 1 : node.deadline;
+        final int level = delta >= SPAN ? LEVELS - 1 : (63 - Long.numberOfLeadingZeros(delta)) / BITS;
+        final int slot = (int) ((Math.max(placement, earliestTick) >>> (BITS * level)) & MASK);
+        final Node sentinel = slots[level][slot];
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    /**
+     * Advance the wheel to the tick, firing every node whose deadline is reached.
+     * @param tick The tick to advance to
+     * @param onFire Receives each node fired. May schedule the node again.
+     */
+    @SuppressWarnings("unchecked")
+    void advance(long tick, Consumer<N> onFire) {
+        while (currentTick < tick) {
+            if (size == 0) {
+                currentTick = tick;
+                return;
+            }
+            final long next = currentTick + 1;
+            currentTick = next;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((next & ((1L << (BITS * level)) - 1)) == 0) {
+                    cascade(slots[level][(int) ((next >>> (BITS * level)) & MASK)]);
+                }
+            }
+            Node node = detach(slots[0][(int) (next & MASK)]);
+            while (node != null) {
+                final Node following = node.next;
+                if (node.deadline > next) {
+                    place(node, next + 1);
+                } else {
+                    node.next = null;
+                    --size;
+                    onFire.accept((N) node);
+                }
+                node = following;
+            }
+        }
+    }
+
+    private void cascade(Node sentinel) {
+        Node node = detach(sentinel);
+        while (node != null) {
+            final Node following = node.next;
+            place(node, currentTick);
+            node = following;
+        }
+    }
+
+    /**
+     * Empty the slot.
+     * @return The first node of the slot, linked by {@code next} to the rest, and the last to null
+     */
+    private static Node detach(Node sentinel) {
+        if (sentinel.next == sentinel) {
+            return null;
+        }
+        final Node first = sentinel.next;
+        sentinel.prev.next = null;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+        return first;
+    }
+
+    /** @return The number of nodes scheduled */
+    int size() {
+        return size;
+    }
+
+    long getCurrentTick() {
+        return currentTick;
+    }
+}
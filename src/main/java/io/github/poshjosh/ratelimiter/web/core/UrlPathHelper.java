@@ -1,12 +1,17 @@
 package io.github.poshjosh.ratelimiter.web.core;
 
 import io.github.poshjosh.ratelimiter.util.StringUtils;
+import io.github.poshjosh.ratelimiter.web.core.metrics.MetricsListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Helper class for URL path matching. Provides support for consistent URL decoding.
@@ -48,12 +53,36 @@ final class UrlPathHelper {
 
     static final String DEFAULT_ENCODING = "ISO-8859-1";
 
+    private static final Charset DEFAULT_CHARSET = StandardCharsets.ISO_8859_1;
+
     private static final Logger LOG = LoggerFactory.getLogger(UrlPathHelper.class);
 
     private final String applicationPath;
 
+    private final Map<String, Charset> charsets = new ConcurrentHashMap<>();
+
+    private final PathCache pathCache;
+
+    private final MetricsListener metricsListener;
+
     UrlPathHelper(String applicationPath) {
+        this(applicationPath, 0);
+    }
+
+    UrlPathHelper(String applicationPath, int pathCacheSize) {
+        this(applicationPath, pathCacheSize, null);
+    }
+
+    /**
+     * @param applicationPath The path of the application
+     * @param pathCacheSize The maximum number of servlet-relative paths to cache, or zero
+     *                      to disable caching.
+     * @param metricsListener For receiving path cache measurements, or null if metrics are disabled.
+     */
+    UrlPathHelper(String applicationPath, int pathCacheSize, MetricsListener metricsListener) {
         this.applicationPath = Objects.requireNonNull(applicationPath);
+        this.pathCache = pathCacheSize > 0 ? new PathCache(pathCacheSize) : null;
+        this.metricsListener = metricsListener;
         if (applicationPath.contains("*") || applicationPath.contains("?")) {
             // issue #001 Application paths containing asterix or question-mark, not supported
             throw new UnsupportedOperationException(
@@ -70,6 +99,40 @@ final class UrlPathHelper {
      * @return the path beginning with the servletPath.
      */
     public String getPathWithinServlet(RequestInfo request) {
+        if (request instanceof RequestInfos.CachingRequestInfo) {
+            return ((RequestInfos.CachingRequestInfo)request).getPathWithinServlet(this);
+        }
+        return resolvePathWithinServlet(request);
+    }
+
+    String resolvePathWithinServlet(RequestInfo request) {
+        if (pathCache == null) {
+            return computePathWithinServlet(request);
+        }
+        final PathCache.Key key = new PathCache.Key(request.getRequestUri(),
+                request.getContextPath(), request.getServletPath(),
+                request.getCharacterEncoding(null));
+        final String cached = pathCache.get(key);
+        if (metricsListener != null) {
+            metricsListener.onPathCacheLookup(cached != null);
+        }
+        if (cached != null) {
+            return cached;
+        }
+        final String computed = computePathWithinServlet(request);
+        pathCache.put(key, computed);
+        return computed;
+    }
+
+    PathCache getPathCache() {
+        return pathCache;
+    }
+
+    int getCharsetCacheSize() {
+        return charsets.size();
+    }
+
+    private String computePathWithinServlet(RequestInfo request) {
         final String path = getPathWithinApplication(request);
         final String servletPath = request.getServletPath();
         final String pathWithinServlet;
@@ -104,87 +167,18 @@ final class UrlPathHelper {
      * @return the path within the web application
      */
     public String getPathWithinApplication(RequestInfo request) {
-        String contextPath = getContextPath(request);
-        String requestUri = getRequestUri(request);
-        String path = getRemainingPath(requestUri, contextPath, true);
-        if (path != null) {
-            // Normal case: URI contains context path.
-            return (StringUtils.hasText(path) ? path : "/");
+        final Charset charset = determineCharset(request);
+        final String contextPath = getContextPath(request, charset);
+        final String requestUri = normalize(request.getRequestUri(), charset, true);
+        if (contextPath.isEmpty()) {
+            return (StringUtils.hasText(requestUri) ? requestUri : "/");
         }
-        else {
-            return requestUri;
-        }
-    }
-
-    /**
-     * Match the given "mapping" to the start of the "requestUri" and if there
-     * is a match return the extra part. This method is needed because the
-     * context path and the servlet path returned by the RequestInfo are
-     * stripped of semicolon content unlike the requestUri.
-     */
-    private String getRemainingPath(String requestUri, String mapping, boolean ignoreCase) {
-        int index1 = 0;
-        int index2 = 0;
-        for (; (index1 < requestUri.length()) && (index2 < mapping.length()); index1++, index2++) {
-            char c1 = requestUri.charAt(index1);
-            char c2 = mapping.charAt(index2);
-            if (c1 == ';') {
-                index1 = requestUri.indexOf('/', index1);
-                if (index1 == -1) {
-                    return null;
-                }
-                c1 = requestUri.charAt(index1);
-            }
-            if (c1 == c2 || (ignoreCase && (Character.toLowerCase(c1) == Character.toLowerCase(c2)))) {
-                continue;
-            }
-            return null;
-        }
-        if (index2 != mapping.length()) {
-            return null;
-        }
-        else if (index1 == requestUri.length()) {
-            return "";
-        }
-        else if (requestUri.charAt(index1) == ';') {
-            index1 = requestUri.indexOf('/', index1);
-        }
-        return (index1 != -1 ? requestUri.substring(index1) : "");
-    }
-
-    /**
-     * Sanitize the given path. Uses the following rules:
-     * <ul>
-     * <li>replace all "//" by "/"</li>
-     * </ul>
-     */
-    private String getSanitizedPath(final String path) {
-        String sanitized = path;
-        while (true) {
-            int index = sanitized.indexOf("//");
-            if (index < 0) {
-                break;
-            }
-            else {
-                sanitized = sanitized.substring(0, index) + sanitized.substring(index + 1);
-            }
+        if (requestUri.regionMatches(true, 0, contextPath, 0, contextPath.length())) {
+            // Normal case: URI contains context path.
+            return requestUri.length() == contextPath.length() ?
+                    "/" : requestUri.substring(contextPath.length());
         }
-        return sanitized;
-    }
-
-    /**
-     * Return the request URI for the given request.
-     * <p>As the value returned by {@code request.getRequestURI()} is <i>not</i>
-     * decoded by the servlet container, this method will decode it.
-     * <p>The URI that the web container resolves <i>should</i> be correct, but some
-     * containers like JBoss/Jetty incorrectly include ";" strings like ";jsessionid"
-     * in the URI. This method cuts off such incorrect appendices.
-     * @param request current HTTP request
-     * @return the request URI
-     */
-    private String getRequestUri(RequestInfo request) {
-        final String uri = request.getRequestUri();
-        return decodeAndCleanUriString(request, uri);
+        return requestUri;
     }
 
     /**
@@ -195,80 +189,156 @@ final class UrlPathHelper {
      * @param request current HTTP request
      * @return the context path
      */
-    private String getContextPath(RequestInfo request) {
+    private String getContextPath(RequestInfo request, Charset charset) {
         String contextPath = request.getContextPath();
         if ("/".equals(contextPath)) {
             // Invalid case, but happens for includes on Jetty: silently adapt it.
             contextPath = "";
         }
-        return decodeRequestString(request, contextPath);
+        return normalize(contextPath, charset, false);
     }
 
     /**
-     * Decode the supplied URI string and strips any extraneous portion after a ';'.
+     * Normalize the given URI string in one pass. Uses the following rules:
+     * <ul>
+     * <li>strip any ";" (semicolon) content e.g ";jsessionid=S+ID" up to the next "/".
+     * Some containers like JBoss/Jetty incorrectly include such content in the URI.</li>
+     * <li>decode the string like {@link URLDecoder#decode(String, String)} i.e "+" is
+     * decoded to " " and "%xy" sequences are decoded using the supplied charset</li>
+     * <li>replace all "//" by "/"</li>
+     * </ul>
+     * @param source the String to normalize
+     * @param charset the charset with which to decode "%xy" sequences
+     * @param uri true to strip semicolon content and duplicate slashes, false to only decode
+     * @return the normalized String, or the source String if it needed no change
      */
-    private String decodeAndCleanUriString(RequestInfo request, String uri) {
-        uri = removeSemicolonContent(uri);
-        uri = decodeRequestString(request, uri);
-        uri = getSanitizedPath(uri);
-        return uri;
+    static String normalize(String source, Charset charset, boolean uri) {
+        final int length = source.length();
+        StringBuilder result = null;
+        byte [] bytes = null;
+        char previous = 0;
+        int i = 0;
+        while (i < length) {
+            final char ch = source.charAt(i);
+            if (ch == ';' && uri) {
+                result = startResult(result, source, i);
+                i = source.indexOf('/', i);
+                if (i == -1) {
+                    break;
+                }
+            } else if (ch == '+') {
+                result = startResult(result, source, i).append(' ');
+                previous = ' ';
+                ++i;
+            } else if (ch == '%') {
+                result = startResult(result, source, i);
+                if (bytes == null) {
+                    bytes = new byte[(length - i) / 3];
+                }
+                int count = 0;
+                while (i + 2 < length && source.charAt(i) == '%') {
+                    bytes[count++] = (byte)((hexValue(source, i + 1) << 4) | hexValue(source, i + 2));
+                    i += 3;
+                }
+                if (i < length && source.charAt(i) == '%') {
+                    throw new IllegalArgumentException(
+                            "URLDecoder: Incomplete trailing escape (%) pattern");
+                }
+                final String decoded = new String(bytes, 0, count, charset);
+                for (int j = 0; j < decoded.length(); j++) {
+                    final char decodedChar = decoded.charAt(j);
+                    if (!uri || decodedChar != '/' || previous != '/') {
+                        result.append(decodedChar);
+                    }
+                    previous = decodedChar;
+                }
+            } else if (ch == '/' && previous == '/' && uri) {
+                result = startResult(result, source, i);
+                ++i;
+            } else {
+                if (result != null) {
+                    result.append(ch);
+                }
+                previous = ch;
+                ++i;
+            }
+        }
+        return result == null ? source : result.toString();
     }
 
-    /**
-     * Decode the given source string with a URLDecoder. The encoding will be taken
-     * from the request, falling back to the default "ISO-8859-1".
-     * <p>The default implementation uses {@code URLDecoder.decode(input, enc)}.
-     * @param request current HTTP request
-     * @param source the String to decode
-     * @return the decoded String
-     * @see javax.servlet.ServletRequest#getCharacterEncoding
-     * @see URLDecoder#decode(String, String)
-     * @see URLDecoder#decode(String)
-     */
-    private String decodeRequestString(RequestInfo request, String source) {
-        String enc = determineEncoding(request);
-        try {
-            return URLDecoder.decode(source, enc);
-        }catch (UnsupportedEncodingException ex) {
-            if (LOG.isWarnEnabled()) {
-                LOG.warn("Could not decode request string [{}] with encoding '{}': falling back to platform default encoding; exception message: {}",
-                        source, enc, ex.getMessage());
-            }
-            return URLDecoder.decode(source);
+    private static StringBuilder startResult(StringBuilder result, String source, int end) {
+        if (result != null) {
+            return result;
+        }
+        return new StringBuilder(source.length()).append(source, 0, end);
+    }
+
+    private static int hexValue(String source, int index) {
+        final int value = Character.digit(source.charAt(index), 16);
+        if (value == -1) {
+            throw new IllegalArgumentException(
+                    "URLDecoder: Illegal hex characters in escape (%) pattern - " + source.charAt(index));
         }
+        return value;
     }
 
     /**
-     * Determine the encoding for the given request.
+     * Determine the charset for the given request.
      * <p>The default implementation checks the request encoding,
      * falling back to ISO-8859-1.
      * @param request current HTTP request
-     * @return the encoding for the request (never {@code null})
+     * @return the charset for the request (never {@code null})
      * @see javax.servlet.ServletRequest#getCharacterEncoding()
      */
-    private String determineEncoding(RequestInfo request) {
-        String enc = request.getCharacterEncoding(null);
-        if (StringUtils.hasText(enc)) {
-            return enc;
+    private Charset determineCharset(RequestInfo request) {
+        final String enc = request.getCharacterEncoding(null);
+        if (!StringUtils.hasText(enc) || DEFAULT_ENCODING.equals(enc)) {
+            return DEFAULT_CHARSET;
+        }
+        final Charset cached = charsets.get(enc);
+        if (cached != null) {
+            return cached;
         }
-        return DEFAULT_ENCODING;
+        final Charset charset = toCharset(enc);
+        if (charset == null) {
+            return Charset.defaultCharset();
+        }
+        // The encoding is sent by the client, so only the declared names of charsets are cached,
+        // which bounds the cache. Other spellings e.g uTf-8, are resolved afresh each time.
+        if (isDeclaredName(charset, enc)) {
+            charsets.putIfAbsent(enc, charset);
+        }
+        return charset;
     }
 
-    /**
-     * Remove ";" (semicolon) content from the given request URI if the
-     * {@linkplain #removeSemicolonContent}
-     * property is set to "true". Note that "jsessionid" is always removed.
-     * @param requestUri the request URI string to remove ";" content from
-     * @return the updated URI string
-     */
-    private String removeSemicolonContent(String requestUri) {
-        int semicolonIndex = requestUri.indexOf(';');
-        while (semicolonIndex != -1) {
-            int slashIndex = requestUri.indexOf('/', semicolonIndex);
-            String start = requestUri.substring(0, semicolonIndex);
-            requestUri = (slashIndex != -1) ? start + requestUri.substring(slashIndex) : start;
-            semicolonIndex = requestUri.indexOf(';', semicolonIndex);
+    private static boolean isDeclaredName(Charset charset, String enc) {
+        if (isNameOrLowerCase(charset.name(), enc)) {
+            return true;
         }
-        return requestUri;
+        for (String alias : charset.aliases()) {
+            if (isNameOrLowerCase(alias, enc)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNameOrLowerCase(String name, String enc) {
+        return name.equals(enc) || name.toLowerCase(Locale.ROOT).equals(enc);
     }
+
+    /** @return The charset of the encoding, or null if the encoding is not supported */
+    private static Charset toCharset(String enc) {
+        try {
+            return Charset.forName(enc);
+        } catch (IllegalArgumentException ex) {
+            // Not logged as a warning, as any client may send any number of these
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Could not decode request strings with encoding '{}': falling back to platform default encoding; exception message: {}",
+                        enc, ex.getMessage());
+            }
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,125 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.matcher.Matcher;
+import io.github.poshjosh.ratelimiter.matcher.Matchers;
+import io.github.poshjosh.ratelimiter.model.Rate;
+import io.github.poshjosh.ratelimiter.model.RateConfig;
+import io.github.poshjosh.ratelimiter.model.Rates;
+import io.github.poshjosh.ratelimiter.util.MatcherProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Gives fresh rate limiters to the ids whose rates are changed by a reload.
+ * <p>
+ * Rate limiters are cached by key, by the rate limiter provider and store, and the key of a
+ * rate limiter is the result of its matcher. An id whose rates are changed would thus keep
+ * being limited by its old rates. The results of matchers are therefore suffixed with a
+ * version: a fingerprint of the id's rates. The version depends only on the rates, so every
+ * node of a fleet on the same rates uses the same keys, however it came by them, and stores
+ * shared across nodes see the same keys. Ids whose rates are unchanged keep their keys, and so
+ * keep their state.
+ * </p>
+ * <p>
+ * Versions are resolved when matchers are created, so requests pay nothing to look them up.
+ * </p>
+ */
+final class VersionedMatcherProvider implements MatcherProvider<RequestInfo> {
+
+    private final MatcherProvider<RequestInfo> delegate;
+
+    VersionedMatcherProvider(MatcherProvider<RequestInfo> delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    @Override
+    public Matcher<RequestInfo> createMainMatcher(RateConfig rateConfig) {
+        return versioned(version(rateConfig.getRates()), delegate.createMainMatcher(rateConfig));
+    }
+
+    @Override
+    public List<Matcher<RequestInfo>> createSubMatchers(RateConfig rateConfig) {
+        final List<Matcher<RequestInfo>> matchers = delegate.createSubMatchers(rateConfig);
+        final String version = version(rateConfig.getRates());
+        final List<Matcher<RequestInfo>> result = new ArrayList<>(matchers.size());
+        for (Matcher<RequestInfo> matcher : matchers) {
+            result.add(versioned(version, matcher));
+        }
+        return result;
+    }
+
+    private static Matcher<RequestInfo> versioned(String version, Matcher<RequestInfo> matcher) {
+        if (matcher == null || Matchers.matchNone().equals(matcher)) {
+            return matcher;
+        }
+        return new VersionedMatcher(version, matcher);
+    }
+
+    /**
+     * @param rates The rates whose version is to be returned
+     * @return The first 64 bits of the SHA-256 digest of the rates, in hex
+     */
+    static String version(Rates rates) {
+        final StringBuilder builder = new StringBuilder()
+                .append(rates.getOperator()).append(':').append(rates.getCondition());
+        for (Rate rate : rates.getAllLimits()) {
+            final Class<?> factoryClass = rate.getFactoryClass();
+            builder.append(':').append(rate.getPermits()).append('/').append(rate.getDuration().toNanos())
+                    .append(':').append(rate.getRateCondition())
+                    .append(':').append(factoryClass == null ? null : factoryClass.getName());
+        }
+        final byte[] digest = sha256().digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+        final StringBuilder hex = new StringBuilder(16);
+        for (int i = 0; i < 8; i++) {
+            hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16))
+                    .append(Character.forDigit(digest[i] & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every implementation of the Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class VersionedMatcher implements Matcher<RequestInfo> {
+        private final String suffix;
+        private final Matcher<RequestInfo> delegate;
+        private VersionedMatcher(String version, Matcher<RequestInfo> delegate) {
+            this.suffix = '#' + version;
+            this.delegate = Objects.requireNonNull(delegate);
+        }
+        @Override public String match(RequestInfo request) {
+            final String result = delegate.match(request);
+            return result == null || Matchers.NO_MATCH.equals(result) ? result : result + suffix;
+        }
+        @Override public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            final VersionedMatcher that = (VersionedMatcher) o;
+            return suffix.equals(that.suffix) && delegate.equals(that.delegate);
+        }
+        @Override public int hashCode() {
+            return Objects.hash(suffix, delegate);
+        }
+        @Override public String toString() {
+            return "VersionedMatcher{" + suffix + ", " + delegate + '}';
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "VersionedMatcherProvider{delegate=" + delegate + '}';
+    }
+}
@@ -26,7 +26,7 @@ public interface WebExpressionKey {
     String USER_ROLE = "web.request.user.role";
     String USER_PRINCIPAL = "web.request.user.principal";
 
-    /** A Session will be created if none */
+    /** A Session will be created if none, unless {@link SessionIdMode#EXISTING_SESSION} is used */
     String SESSION_ID = "web.session.id";
 
     static boolean isKeyValueType(String key) {
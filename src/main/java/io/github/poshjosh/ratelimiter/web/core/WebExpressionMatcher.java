@@ -3,7 +3,15 @@ package io.github.poshjosh.ratelimiter.web.core;
 import io.github.poshjosh.ratelimiter.expression.*;
 import io.github.poshjosh.ratelimiter.util.StringUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.Principal;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 public class WebExpressionMatcher
@@ -13,10 +21,21 @@ public class WebExpressionMatcher
     private static final Function<String, Object> TO_LOCALE = value ->
             Locale.forLanguageTag(value.replace('_', '-'));
     private static final Function<String, Object> IDENTITY = value -> value;
+    private static final Principal NO_PRINCIPAL = () -> null;
+    private static final String FILE_PREFIX = "file:";
 
     private final ExpressionMatcher<RequestInfo> delegate;
 
+    private final Map<String, LeftKey> leftKeys;
+
+    private final Map<String, CidrTrie> cidrTries;
+
+    private final Map<Path, RangeFile> rangeFiles;
+
     public WebExpressionMatcher() {
+        leftKeys = new ConcurrentHashMap<>();
+        cidrTries = new ConcurrentHashMap<>();
+        rangeFiles = new ConcurrentHashMap<>();
         delegate = ExpressionMatchers.ofParseAhead(
                 this, this, Expressions.of(ATTRIBUTE + " = 0"));
     }
@@ -36,8 +55,10 @@ public class WebExpressionMatcher
      * [en_US | en_UK] contains [LOCALE_FROM_REQUEST]
      *
      * web.request.user.role = GUEST                    (match if the user role is GUEST)
-     * GUEST = GUEST  (if user is in role GUEST)
-     * null  = GUEST  (if user is not in role GUEST)
+     * [USER_ROLES_OF_REQUEST] contains GUEST
+     *
+     * web.request.ip in [10.0.0.0/8 | 2001:db8::/32]   (match if the IP is in any of the ranges)
+     * [RANGES_AS_TRIE] contains [PACKED_IP_OF_REQUEST]
      * </pre>
      *
      * @param request The web request
@@ -64,7 +85,12 @@ public class WebExpressionMatcher
 
     @Override
     public boolean isSupported(Expression<String> expression) {
-        if (!isSupported(expression.getOperator())) {
+        final Operator operator = expression.getOperator();
+        if (operator.equalsIgnoreNegation(Operator.IN)) {
+            // Other forms of `in` e.g `in <method call>`, are left to other matchers
+            return isIpRangeExpression(expression);
+        }
+        if (!isSupported(operator)) {
             return false;
         }
         return WebExpressionKey.isKey(expression.requireLeft());
@@ -72,39 +98,91 @@ public class WebExpressionMatcher
 
     @Override
     public boolean isSupported(Operator operator) {
-        return operator.equalsIgnoreNegation(Operator.EQUALS);
+        return operator.equalsIgnoreNegation(Operator.EQUALS)
+                || operator.equalsIgnoreNegation(Operator.IN);
     }
 
     @Override
     public Object parseLeft(RequestInfo request, Expression<String> expression) {
-        final String left = expression.requireLeft();
-        final String name = Expressions.getTextInSquareBracketsOrNull(left);
-        final boolean keyValueType = WebExpressionKey.isKeyValueType(left);
-        if (keyValueType && name == null) {
-            throw Checks.notSupported(this, expression);
-        }
-        final String key = name != null ? left.substring(0, left.indexOf('[')) : left;
-        switch(key) {
+        final LeftKey leftKey = toLeftKey(expression);
+        final String name = leftKey.name;
+        switch(leftKey.key) {
             case ATTRIBUTE: return request.getAttribute(name, null);
             case AUTH_SCHEME: return request.getAuthScheme(null);
-            case COOKIE:
-                return request.getCookies() == null ? null : request.getCookies().stream()
-                    .filter(c -> Objects.equals(name, c.name()))
-                    .map(RequestInfo.Cookie::value)
-                    .findAny().orElse(null);
+            case COOKIE: return getCookieValue(request, name);
             case HEADER: return request.getHeaders(name);
             case PARAMETER: return request.getParameters(name);
             case IP:
-            case REMOTE_ADDRESS: return request.getRemoteAddr(null);
+            case REMOTE_ADDRESS:
+                if (isIpRangeExpression(expression)) {
+                    return toIpAddress(request);
+                }
+                return request.getRemoteAddr(null);
             case LOCALE: return request.getLocales();
-            case USER_ROLE: return parseLeftForRole(request, expression);
-            case USER_PRINCIPAL: return request.getUserPrincipal(() -> null).getName();
+            case USER_ROLE: return new UserRoles(request);
+            case USER_PRINCIPAL: return request.getUserPrincipal(NO_PRINCIPAL).getName();
             case REQUEST_URI: return request.getRequestUri();
             case SESSION_ID: return request.getSessionId(null);
-            default: throw Checks.notSupported(this, key);
+            default: throw Checks.notSupported(this, leftKey.key);
+        }
+    }
+
+    private static String getCookieValue(RequestInfo request, String name) {
+        if (request instanceof RequestInfos.CachingRequestInfo) {
+            return ((RequestInfos.CachingRequestInfo)request).getCookieValue(name);
         }
+        final List<RequestInfo.Cookie> cookies = request.getCookies();
+        return cookies == null ? null : cookies.stream()
+                .filter(c -> Objects.equals(name, c.name()))
+                .map(RequestInfo.Cookie::value)
+                .findAny().orElse(null);
     }
 
+    private static IpAddress toIpAddress(RequestInfo request) {
+        if (request instanceof RequestInfos.CachingRequestInfo) {
+            return ((RequestInfos.CachingRequestInfo)request).getIpAddress();
+        }
+        return IpAddress.ofNullable(request.getRemoteAddr(null));
+    }
+
+    private static boolean isIpRangeExpression(Expression<String> expression) {
+        final String left = expression.requireLeft();
+        if (!left.equals(IP) && !left.equals(REMOTE_ADDRESS)) {
+            return false;
+        }
+        final String right = expression.getRightOrDefault(null);
+        return right != null && (right.startsWith(FILE_PREFIX) || right.indexOf('/') != -1);
+    }
+
+    private LeftKey toLeftKey(Expression<String> expression) {
+        final String left = expression.requireLeft();
+        final LeftKey existing = leftKeys.get(left);
+        if (existing != null) {
+            return existing;
+        }
+        final String name = Expressions.getTextInSquareBracketsOrNull(left);
+        final boolean keyValueType = WebExpressionKey.isKeyValueType(left);
+        if (keyValueType && name == null) {
+            throw Checks.notSupported(this, expression);
+        }
+        final String key = name != null ? left.substring(0, left.indexOf('[')) : left;
+        final LeftKey created = new LeftKey(key, name);
+        leftKeys.putIfAbsent(left, created);
+        return created;
+    }
+
+    /**
+     * Parse the right-hand side of the expression into an immutable, ready-to-compare value.
+     * <p>This is done once, when the matcher for the expression is created. Lists of values
+     * are compiled to a {@link Composite}, locales to {@link Locale}s, IP address ranges
+     * (e.g {@code 10.0.0.0/8}, {@code [10.0.0.0/8 | ::1]} or {@code file:/path/to/ranges})
+     * to a {@link CidrTrie}, and empty values to {@code null}.</p>
+     * <p>A range file contains one address or range per line. Blank lines and text after
+     * {@code #} are ignored. Each file is read once, no matter how many expressions refer to it,
+     * and again by {@link #reloadRangeFiles()} if it was modified.</p>
+     * @param expression The expression whose right-hand side will be parsed
+     * @return The parsed right-hand side of the expression
+     */
     @Override
     public Object parseRight(Expression<String> expression) {
         final String right = expression.getRightOrDefault(null);
@@ -115,8 +193,21 @@ public class WebExpressionMatcher
         if (left.startsWith(LOCALE)) {
             return toCollection(right, TO_LOCALE);
         }
+        if (isIpRangeExpression(expression)) {
+            if (right.startsWith(FILE_PREFIX)) {
+                final Path path = Paths.get(right.substring(FILE_PREFIX.length()).trim());
+                return rangeFiles.computeIfAbsent(path.toAbsolutePath().normalize(), RangeFile::new);
+            }
+            return cidrTries.computeIfAbsent(right, this::toCidrTrie);
+        }
         if (right.indexOf('[') == 0) {
-            return toCollection(right, IDENTITY);
+            final Composite composite = toCollection(right, IDENTITY);
+            if (left.startsWith(USER_ROLE)
+                    && composite.operator == io.github.poshjosh.ratelimiter.model.Operator.AND) {
+                throw Checks.notSupported(this, composite.operator
+                        + " for " + WebExpressionKey.USER_ROLE + " values");
+            }
+            return composite;
         }
         return right;
     }
@@ -127,24 +218,25 @@ public class WebExpressionMatcher
         return operator.isNegation() != result;
     }
 
-    private Object parseLeftForRole(RequestInfo request, Expression<String> expression) {
-        final Object right = parseRight(expression); // Oh no! we are repeating this
-        if (right instanceof Composite) {
-            final Composite composite = (Composite)right;
-            if (composite.operator == io.github.poshjosh.ratelimiter.model.Operator.AND) {
-                throw Checks.notSupported(this, composite.operator
-                        + " for " + WebExpressionKey.USER_ROLE + " values");
-            }
-            final String [] roles = (String[])composite.values;
-            return Arrays.stream(roles).anyMatch(request::isUserInRole) ? right : null;
-        }
-        final String role = right == null ? null : right.toString();
-        return request.isUserInRole(role) ? right : null;
-    }
-
     private boolean resolve(Object fromWebRequest, Object fromExpression) {
+        if (fromExpression instanceof CidrTrie) {
+            return ((CidrTrie)fromExpression).contains((IpAddress)fromWebRequest);
+        }
+        if (fromExpression instanceof RangeFile) {
+            return ((RangeFile)fromExpression).trie.contains((IpAddress)fromWebRequest);
+        }
+        if (fromWebRequest instanceof UserRoles) {
+            return ((UserRoles)fromWebRequest).isUserInAnyRole(fromExpression);
+        }
         if (fromExpression instanceof Composite) {
             final Composite composite = (Composite)fromExpression;
+            if (composite.hashed != null) {
+                if (fromWebRequest instanceof List) {
+                    final List<?> fromReqList = (List<?>)fromWebRequest;
+                    return MatchUtils.matchesList(composite.operator, fromReqList, composite.hashed);
+                }
+                return MatchUtils.matchesValue(composite.operator, fromWebRequest, composite.hashed);
+            }
             final Object [] inputArr = composite.values;
             if (fromWebRequest instanceof List) {
                 final List<Object> fromReqList = (List)fromWebRequest;
@@ -159,6 +251,51 @@ public class WebExpressionMatcher
         return Objects.equals(fromWebRequest, fromExpression);
     }
 
+    /**
+     * Read again the range files (i.e {@code file:} operands) modified since they were last read.
+     * <p>Parsed expressions refer to each file, rather than to its ranges, so that they match the
+     * new ranges without being parsed again. All modified files are read before any is updated;
+     * if any fails to be read, none is updated. Called when a registry is reloaded.</p>
+     * @throws UncheckedIOException If a modified file could not be read
+     * @throws IllegalArgumentException If a modified file contains an invalid address or range
+     */
+    void reloadRangeFiles() {
+        final Map<RangeFile, CidrTrie> modified = new HashMap<>();
+        final Map<RangeFile, FileTime> modifiedTimes = new HashMap<>();
+        for (RangeFile rangeFile : rangeFiles.values()) {
+            final FileTime lastModified = lastModified(rangeFile.path);
+            if (!lastModified.equals(rangeFile.lastModified)) {
+                modified.put(rangeFile, CidrTrie.ofLines(rangeFile.path));
+                modifiedTimes.put(rangeFile, lastModified);
+            }
+        }
+        modified.forEach((rangeFile, trie) -> {
+            rangeFile.lastModified = modifiedTimes.get(rangeFile);
+            rangeFile.trie = trie;
+        });
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read: " + path, e);
+        }
+    }
+
+    private CidrTrie toCidrTrie(String rhsText) {
+        if (rhsText.indexOf('[') != 0) {
+            return CidrTrie.of(rhsText);
+        }
+        if (rhsText.contains(io.github.poshjosh.ratelimiter.model.Operator.AND.getSymbol())) {
+            throw Checks.notSupported(this, io.github.poshjosh.ratelimiter.model.Operator.AND
+                    + " for " + WebExpressionKey.IP + " ranges");
+        }
+        return CidrTrie.of(Arrays.stream(withoutBrackets(rhsText).split("\\|"))
+                .filter(StringUtils::hasText)
+                .toArray(String[]::new));
+    }
+
     private Composite toCollection(String rhsText, Function<String, Object> mapper) {
         final boolean orList = isOrList(rhsText);
         final io.github.poshjosh.ratelimiter.model.Operator operator = orList ?
@@ -197,13 +334,80 @@ public class WebExpressionMatcher
         return value;
     }
 
+    /** The ranges of a file, as last read. */
+    private static final class RangeFile {
+        private final Path path;
+        private volatile FileTime lastModified;
+        private volatile CidrTrie trie;
+        private RangeFile(Path path) {
+            this.path = Objects.requireNonNull(path);
+            // Read the time first, so that a concurrent modification is read again on reload
+            this.lastModified = lastModified(path);
+            this.trie = CidrTrie.ofLines(path);
+        }
+        @Override public String toString() {
+            return "RangeFile{path=" + path + ", lastModified=" + lastModified + '}';
+        }
+    }
+
+    private static final class LeftKey {
+        private final String key;
+        private final String name;
+        private LeftKey(String key, String name) {
+            this.key = Objects.requireNonNull(key);
+            this.name = name;
+        }
+    }
+
+    /**
+     * The user roles of a request. Roles are only checked against the roles in the
+     * (already parsed) right-hand side of the expression, when the expression is resolved.
+     */
+    private static final class UserRoles {
+        private final RequestInfo request;
+        private UserRoles(RequestInfo request) {
+            this.request = Objects.requireNonNull(request);
+        }
+        private boolean isUserInAnyRole(Object roles) {
+            if (roles instanceof Composite) {
+                for (Object role : ((Composite)roles).values) {
+                    if (request.isUserInRole(role.toString())) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return request.isUserInRole(roles == null ? null : roles.toString());
+        }
+    }
+
+    /**
+     * A compiled list of values e.g {@code [A | B]}. Large lists of strings are hashed,
+     * so that they are matched in constant time. Small lists are matched by scanning the array.
+     */
     private static final class Composite{
+        private static final int MIN_SIZE_TO_HASH = 8;
         private final Object [] values;
+        private final StringSet hashed;
         private final io.github.poshjosh.ratelimiter.model.Operator operator;
         private Composite(Object[] values, io.github.poshjosh.ratelimiter.model.Operator operator) {
             this.values = Objects.requireNonNull(values);
+            this.hashed = toStringSetOrNull(values);
             this.operator = Objects.requireNonNull(operator);
         }
+        private static StringSet toStringSetOrNull(Object [] values) {
+            if (values.length < MIN_SIZE_TO_HASH) {
+                return null;
+            }
+            final String [] strings = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (!(values[i] instanceof String)) {
+                    return null;
+                }
+                strings[i] = (String)values[i];
+            }
+            return StringSet.of(strings);
+        }
         @Override public String toString() {
             return Arrays.toString(values);
         }
@@ -6,6 +6,7 @@ import io.github.poshjosh.ratelimiter.matcher.Matchers;
 import io.github.poshjosh.ratelimiter.model.RateConfig;
 import io.github.poshjosh.ratelimiter.model.RateSource;
 import io.github.poshjosh.ratelimiter.expression.ExpressionMatcher;
+import io.github.poshjosh.ratelimiter.web.core.metrics.MetricsListener;
 import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfo;
 import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfoProvider;
 import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfos;
@@ -16,6 +17,8 @@ import java.util.Objects;
 final class WebMatcherProvider extends AbstractWebMatcherProvider {
 
     private final UrlPathHelper urlPathHelper;
+
+    private final ResourcePathIndex resourcePathIndex;
     
     private final ResourceInfoProvider resourceInfoProvider;
 
@@ -23,9 +26,22 @@ final class WebMatcherProvider extends AbstractWebMatcherProvider {
             String applicationPath,
             ResourceInfoProvider resourceInfoProvider,
             ExpressionMatcher<RequestInfo> expressionMatcher) {
+        this(applicationPath, 0, resourceInfoProvider, expressionMatcher, null);
+    }
+
+    /**
+     * @param metricsListener For receiving measurements, or null if metrics are disabled.
+     */
+    WebMatcherProvider(
+            String applicationPath,
+            int pathCacheSize,
+            ResourceInfoProvider resourceInfoProvider,
+            ExpressionMatcher<RequestInfo> expressionMatcher,
+            MetricsListener metricsListener) {
         super(ExpressionMatchers.any(expressionMatcher, ExpressionMatchers.ofDefaults()));
         this.resourceInfoProvider = Objects.requireNonNull(resourceInfoProvider);
-        this.urlPathHelper = new UrlPathHelper(applicationPath);
+        this.urlPathHelper = new UrlPathHelper(applicationPath, pathCacheSize, metricsListener);
+        this.resourcePathIndex = new ResourcePathIndex();
     }
 
     @Override
@@ -35,7 +51,16 @@ final class WebMatcherProvider extends AbstractWebMatcherProvider {
         if (ResourceInfos.none().equals(resourceInfo)) {
             return Matchers.matchNone();
         }
-        return new HttpRequestMatcher(rateConfig, urlPathHelper, resourceInfo);
+        resourcePathIndex.add(resourceInfo);
+        return new HttpRequestMatcher(rateConfig, urlPathHelper, resourcePathIndex, resourceInfo);
+    }
+
+    /**
+     * @param matcher The matcher to check
+     * @return true if the matcher depends on nothing but the http method and path of requests
+     */
+    static boolean isHttpRequestMatcher(Matcher<RequestInfo> matcher) {
+        return matcher instanceof HttpRequestMatcher;
     }
 
     /**
@@ -44,25 +69,34 @@ final class WebMatcherProvider extends AbstractWebMatcherProvider {
     private static class HttpRequestMatcher implements Matcher<RequestInfo> {
         private final RateConfig rateConfig;
         private final UrlPathHelper urlPathHelper;
+        private final ResourcePathIndex resourcePathIndex;
         private final ResourceInfo resourceInfo;
 
         private HttpRequestMatcher(
                 RateConfig rateConfig,
                 UrlPathHelper urlPathHelper,
+                ResourcePathIndex resourcePathIndex,
                 ResourceInfo resourceInfo) {
             this.rateConfig = Objects.requireNonNull(rateConfig);
             this.urlPathHelper = Objects.requireNonNull(urlPathHelper);
+            this.resourcePathIndex = Objects.requireNonNull(resourcePathIndex);
             this.resourceInfo = Objects.requireNonNull(resourceInfo);
         }
 
         @Override
         public String match(RequestInfo request) {
+            if (!isCandidate(request)) {
+                return Matchers.NO_MATCH;
+            }
             if (!matchesHttpMethod(request.getMethod())) {
                 return Matchers.NO_MATCH;
             }
             if (!resourceInfo.getResourcePath().matches(getPathForMatching(request))) {
                 return Matchers.NO_MATCH;
             }
+            if (request instanceof RequestInfos.CachingRequestInfo) {
+                ((RequestInfos.CachingRequestInfo)request).markMatched();
+            }
             return getId();
         }
 
@@ -73,6 +107,20 @@ final class WebMatcherProvider extends AbstractWebMatcherProvider {
             }
             return resourceInfo.getId();
         }
+        /**
+         * For caching requests, the candidate resources are computed once per request,
+         * using the shared index. Only candidate resources need to be matched in detail.
+         * @param request The RequestInfo to check
+         * @return false if this matcher's resource can not possibly match the request.
+         */
+        private boolean isCandidate(RequestInfo request) {
+            if (request instanceof RequestInfos.CachingRequestInfo) {
+                return ((RequestInfos.CachingRequestInfo)request)
+                        .getCandidateResourceIds(resourcePathIndex, urlPathHelper)
+                        .contains(resourceInfo.getId());
+            }
+            return true;
+        }
         /**
          * Get path for matching purposes.
          * @param request The RequestInfo for which a path will be returned
@@ -10,6 +10,7 @@ import io.github.poshjosh.ratelimiter.util.ClassesInPackageFinder;
 import io.github.poshjosh.ratelimiter.util.MatcherProvider;
 import io.github.poshjosh.ratelimiter.util.RateLimitProperties;
 import io.github.poshjosh.ratelimiter.util.Ticker;
+import io.github.poshjosh.ratelimiter.web.core.metrics.MetricsListener;
 import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfoProvider;
 
 import java.util.*;
@@ -41,6 +42,7 @@ public interface WebRateLimiterContext extends RateLimiterContext<RequestInfo> {
 
         /**
          * <p><b>Not mandatory</b></p>
+         * Defaults to {@link io.github.poshjosh.ratelimiter.web.core.util.IndexedClassesInPackageFinder#ofDefaults()}
          * @param classesInPackageFinder For locating classes in named packages
          * @return this builder
          */
@@ -74,6 +76,34 @@ public interface WebRateLimiterContext extends RateLimiterContext<RequestInfo> {
          */
         Builder propertyRateProcessor(RateProcessor<RateLimitProperties> rateProcessor);
 
+        /**
+         * <p><b>Not mandatory</b></p>
+         * When not provided, no metrics are recorded.
+         * @param metricsListener For receiving measurements e.g
+         *   {@link io.github.poshjosh.ratelimiter.web.core.metrics.RateLimiterMetrics}
+         * @return this builder
+         */
+        Builder metricsListener(MetricsListener metricsListener);
+
+        /**
+         * <p><b>Not mandatory</b></p>
+         * When not provided, the client address is read from the first of a number of well known
+         * forwarding headers present, which clients may set. Provide a resolver which trusts only
+         * the headers set by known proxies, for accurate limits by client address.
+         * @param clientIpResolver For resolving the address of the client of each request
+         * @return this builder
+         */
+        Builder clientIpResolver(ClientIpResolver clientIpResolver);
+
+        /**
+         * <p><b>Not mandatory</b></p>
+         * Defaults to {@link SessionIdMode#CREATE_SESSION}. Use {@link SessionIdMode#EXISTING_SESSION}
+         * so that evaluating {@code web.session.id} never creates a session.
+         * @param sessionIdMode How the session id of each request is resolved
+         * @return this builder
+         */
+        Builder sessionIdMode(SessionIdMode sessionIdMode);
+
         @Override Builder packages(String... packages);
 
         @Override Builder classes(Class<?>... classes);
@@ -91,5 +121,41 @@ public interface WebRateLimiterContext extends RateLimiterContext<RequestInfo> {
         @Override Builder ticker(Ticker ticker);
     }
 
+    /**
+     * @param properties The properties of the returned context
+     * @return A copy of this context, with the given properties
+     * @throws UnsupportedOperationException If this context may not be copied
+     * @see WebRateLimiterRegistry#reload(RateLimitProperties)
+     */
+    default WebRateLimiterContext withProperties(RateLimitProperties properties) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @param rates The rates of the returned context
+     * @return A copy of this context, with the given rates
+     * @throws UnsupportedOperationException If this context may not be copied
+     * @see WebRateLimiterRegistry#reload(List)
+     */
+    default WebRateLimiterContext withRates(List<Rates> rates) {
+        throw new UnsupportedOperationException();
+    }
+
     Optional<RateLimiterConfigurer> getConfigurerOptional();
+
+    default Optional<MetricsListener> getMetricsListenerOptional() {
+        return Optional.empty();
+    }
+
+    default Optional<ClientIpResolver> getClientIpResolverOptional() {
+        return Optional.empty();
+    }
+
+    default Optional<ExpressionMatcher<RequestInfo>> getExpressionMatcherOptional() {
+        return Optional.empty();
+    }
+
+    default SessionIdMode getSessionIdMode() {
+        return SessionIdMode.CREATE_SESSION;
+    }
 }
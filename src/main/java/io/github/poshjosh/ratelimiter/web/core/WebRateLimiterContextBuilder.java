@@ -11,7 +11,10 @@ import io.github.poshjosh.ratelimiter.expression.ExpressionMatcher;
 import io.github.poshjosh.ratelimiter.util.ClassesInPackageFinder;
 import io.github.poshjosh.ratelimiter.util.Ticker;
 import io.github.poshjosh.ratelimiter.util.RateLimitProperties;
+import io.github.poshjosh.ratelimiter.web.core.metrics.MetricsListener;
+import io.github.poshjosh.ratelimiter.web.core.util.IndexedClassesInPackageFinder;
 import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfoProvider;
+import io.github.poshjosh.ratelimiter.web.core.util.WebRateLimitProperties;
 
 import java.util.*;
 
@@ -90,6 +93,23 @@ class WebRateLimiterContextBuilder implements WebRateLimiterContext.Builder {
         return this;
     }
 
+    @Override public WebRateLimiterContext.Builder metricsListener(
+            MetricsListener metricsListener) {
+        context.metricsListener = metricsListener;
+        return this;
+    }
+
+    @Override public WebRateLimiterContext.Builder clientIpResolver(
+            ClientIpResolver clientIpResolver) {
+        context.clientIpResolver = clientIpResolver;
+        return this;
+    }
+
+    @Override public WebRateLimiterContext.Builder sessionIdMode(SessionIdMode sessionIdMode) {
+        context.sessionIdMode = sessionIdMode;
+        return this;
+    }
+
     @Override public WebRateLimiterContext.Builder store(BandwidthsStore<String> store) {
         context.setStore(store);
         return this;
@@ -114,6 +134,9 @@ class WebRateLimiterContextBuilder implements WebRateLimiterContext.Builder {
         private ExpressionMatcher<RequestInfo> expressionMatcher;
         private RateProcessor<Class<?>> classRateProcessor;
         private RateProcessor<RateLimitProperties> propertyRateProcessor;
+        private MetricsListener metricsListener;
+        private ClientIpResolver clientIpResolver;
+        private SessionIdMode sessionIdMode;
 
         private WebRateLimiterContextImpl() {}
 
@@ -127,8 +150,16 @@ class WebRateLimiterContextBuilder implements WebRateLimiterContext.Builder {
             if (expressionMatcher == null) {
                 expressionMatcher = new WebExpressionMatcher();
             }
+            if (sessionIdMode == null) {
+                sessionIdMode = SessionIdMode.CREATE_SESSION;
+            }
             if (classesInPackageFinder == null) {
-                classesInPackageFinder = (ClassesInPackageFinder.ofDefaults());
+                // Reads the compile time index of rate limited classes, if enabled, rather than scanning
+                classesInPackageFinder = IndexedClassesInPackageFinder.ofDefaults();
+            }
+            if (!(classesInPackageFinder instanceof CachingClassesInPackageFinder)) {
+                // So that packages are not scanned again, when registries are rebuilt on reload
+                classesInPackageFinder = new CachingClassesInPackageFinder(classesInPackageFinder);
             }
             if (classRateProcessor == null) {
                 // We accept all class/method  nodes, even those without rate limit related annotations
@@ -143,18 +174,68 @@ class WebRateLimiterContextBuilder implements WebRateLimiterContext.Builder {
             }
 
             if (getMatcherProvider() == null) {
+                final int pathCacheSize = getProperties() instanceof WebRateLimitProperties ?
+                        ((WebRateLimitProperties)getProperties()).getPathCacheSize() : 0;
                 MatcherProvider<RequestInfo> matcherProvider = new WebMatcherProvider(
                         getProperties().getApplicationPath(),
+                        pathCacheSize,
                         resourceInfoProvider,
-                        expressionMatcher);
+                        expressionMatcher,
+                        metricsListener);
                 setMatcherProvider(matcherProvider);
             }
 
+            if (metricsListener != null && !(getStore() instanceof MeteredBandwidthsStore)) {
+                // Wrap the store before the default rate limiter provider, which uses it, is created
+                setStore(new MeteredBandwidthsStore<>(
+                        getStore() == null ? BandwidthsStore.ofDefaults() : getStore(), metricsListener));
+            }
+
             super.withDefaultsAsFallback();
 
+            if (metricsListener != null && getRateLimiterProvider() != null
+                    && !(getRateLimiterProvider() instanceof MeteredRateLimiterProvider)) {
+                setRateLimiterProvider(new MeteredRateLimiterProvider(
+                        getRateLimiterProvider(), metricsListener));
+            }
+
             return this;
         }
 
+        @Override public WebRateLimiterContext withProperties(RateLimitProperties properties) {
+            final WebRateLimiterContextImpl copy = copy();
+            copy.setProperties(Objects.requireNonNull(properties));
+            return copy;
+        }
+
+        @Override public WebRateLimiterContext withRates(List<Rates> rates) {
+            final WebRateLimiterContextImpl copy = copy();
+            copy.setRates(Objects.requireNonNull(rates));
+            return copy;
+        }
+
+        private WebRateLimiterContextImpl copy() {
+            final WebRateLimiterContextImpl copy = new WebRateLimiterContextImpl();
+            copy.setProperties(getProperties());
+            copy.setRates(getRates());
+            copy.setClasses(getClasses());
+            copy.setPackages(getPackages());
+            copy.setMatcherProvider(getMatcherProvider());
+            copy.setRateLimiterProvider(getRateLimiterProvider());
+            copy.setStore(getStore());
+            copy.setTicker(getTicker());
+            copy.configurer = configurer;
+            copy.classesInPackageFinder = classesInPackageFinder;
+            copy.resourceInfoProvider = resourceInfoProvider;
+            copy.expressionMatcher = expressionMatcher;
+            copy.classRateProcessor = classRateProcessor;
+            copy.propertyRateProcessor = propertyRateProcessor;
+            copy.metricsListener = metricsListener;
+            copy.clientIpResolver = clientIpResolver;
+            copy.sessionIdMode = sessionIdMode;
+            return copy;
+        }
+
         @Override public ClassesInPackageFinder getClassesInPackageFinder() {
             return classesInPackageFinder;
         }
@@ -162,6 +243,22 @@ class WebRateLimiterContextBuilder implements WebRateLimiterContext.Builder {
         @Override public Optional<RateLimiterConfigurer> getConfigurerOptional() {
             return Optional.ofNullable(configurer);
         }
+
+        @Override public Optional<MetricsListener> getMetricsListenerOptional() {
+            return Optional.ofNullable(metricsListener);
+        }
+
+        @Override public Optional<ClientIpResolver> getClientIpResolverOptional() {
+            return Optional.ofNullable(clientIpResolver);
+        }
+
+        @Override public Optional<ExpressionMatcher<RequestInfo>> getExpressionMatcherOptional() {
+            return Optional.ofNullable(expressionMatcher);
+        }
+
+        @Override public SessionIdMode getSessionIdMode() {
+            return sessionIdMode;
+        }
     }
 
     private static final class EmptyRateLimitProperties implements RateLimitProperties {
@@ -1,6 +1,119 @@
 package io.github.poshjosh.ratelimiter.web.core;
 
+import io.github.poshjosh.ratelimiter.RateLimiter;
 import io.github.poshjosh.ratelimiter.RateLimiterRegistry;
+import io.github.poshjosh.ratelimiter.model.RateSource;
+import io.github.poshjosh.ratelimiter.model.Rates;
+import io.github.poshjosh.ratelimiter.util.RateLimitProperties;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public interface WebRateLimiterRegistry extends RateLimiterRegistry<RequestInfo> {
+
+    /**
+     * Replace the properties from which this registry was built, e.g to change limits at runtime.
+     * <p>
+     * Only the ids whose rates changed get new matchers and rate limiters. Rate limiters of
+     * unchanged ids keep their state. The new configuration applies to requests atomically,
+     * once fully built. Requests are not blocked meanwhile, but continue on the old configuration.
+     * Sources registered via {@link #register(RateSource)} are kept.
+     * </p>
+     * <p>
+     * The application path, and other settings used to create the matcher provider, are not
+     * reloaded.
+     * </p>
+     * @param properties The new properties
+     * @throws UnsupportedOperationException If this registry may not be reloaded
+     */
+    default void reload(RateLimitProperties properties) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Replace the rates from which this registry was built.
+     * @param rates The new rates
+     * @throws UnsupportedOperationException If this registry may not be reloaded
+     * @see #reload(RateLimitProperties)
+     */
+    default void reload(List<Rates> rates) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Check if each of a batch of requests is within limit.
+     * @param requests The requests to check
+     * @return The indices of the requests that are within limit
+     * @see #isWithinLimit(Object)
+     */
+    default BitSet isWithinLimit(List<RequestInfo> requests) {
+        final BitSet result = new BitSet(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (isWithinLimit(requests.get(i))) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Acquire permits for each of a batch of requests, without waiting.
+     * <p>
+     * Requests are evaluated in order. Within the batch, once a rate limiter denies permits,
+     * the remaining requests limited by it may be denied without consulting it again.
+     * </p>
+     * @param requests The requests to acquire permits for
+     * @param permits The number of permits to acquire for each request
+     * @return The indices of the requests for which permits were acquired
+     * @see #tryAcquire(Object, int, long, TimeUnit)
+     */
+    default BitSet tryAcquire(List<RequestInfo> requests, int permits) {
+        final BitSet result = new BitSet(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (tryAcquire(requests.get(i), permits, 0, TimeUnit.SECONDS)) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Acquire permits for the request, without blocking the calling thread.
+     * <p>
+     * Retries are made on a scheduler shared by all registries.
+     * @see #tryAcquireAsync(RequestInfo, int, long, TimeUnit, ScheduledExecutorService)
+     */
+    default CompletionStage<Boolean> tryAcquireAsync(RequestInfo request, int permits,
+            long timeout, TimeUnit unit) {
+        return tryAcquireAsync(request, permits, timeout, unit, AsyncAcquirer.sharedScheduler());
+    }
+
+    /**
+     * Acquire permits for the request, without blocking the calling thread.
+     * <p>
+     * The returned stage completes with true once the permits are acquired, or with false
+     * if they could not be acquired within the timeout. Requests not matched by any rate
+     * limiter complete immediately with true.
+     * Cancelling the stage's {@link CompletionStage#toCompletableFuture() future} stops
+     * waiting for the permits.
+     * </p>
+     * @param request The request to acquire permits for
+     * @param permits The number of permits to acquire
+     * @param timeout The maximum time to wait for the permits. Zero or negative means no wait.
+     * @param unit The time unit of the timeout argument
+     * @param scheduler The scheduler on which to wait for the permits
+     * @return A stage which completes with the result of the acquisition
+     */
+    default CompletionStage<Boolean> tryAcquireAsync(RequestInfo request, int permits,
+            long timeout, TimeUnit unit, ScheduledExecutorService scheduler) {
+        final RateLimiter rateLimiter = getRateLimiterOrDefault(request, null);
+        if (rateLimiter == null) {
+            return CompletableFuture.completedFuture(Boolean.TRUE);
+        }
+        return AsyncAcquirer.tryAcquire(rateLimiter, permits, timeout, unit, scheduler, null);
+    }
 }
@@ -0,0 +1,89 @@
+package io.github.poshjosh.ratelimiter.web.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values, e.g durations in nanoseconds, using fixed memory.
+ * <p>Values are counted in logarithmic buckets: each power of 2 is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so that recorded values are resolved to within
+ * 25% of their actual value, from 1 up to {@link Long#MAX_VALUE}. Recording a value takes a
+ * few atomic operations and does not allocate.</p>
+ */
+public final class LogHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final LongAdder sum;
+    private final AtomicLong max;
+
+    public LogHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.sum = new LongAdder();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * @param value The value to record. Negative values are recorded as zero.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        sum.add(value);
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * The returned snapshot is not atomic with respect to concurrent recordings,
+     * but every recording is either completely in it or will be in later snapshots.
+     * @return A snapshot of the values recorded so far
+     */
+    public HistogramSnapshot snapshot() {
+        final long [] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new HistogramSnapshot(copy, count, sum.sum(), max.get());
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int)value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int)((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    /**
+     * @param index The index of the bucket
+     * @return The highest value counted in the bucket at the given index
+     */
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int exponent = (index >> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        final int subBucket = index & (SUB_BUCKETS - 1);
+        final long lowest = ((long)(SUB_BUCKETS + subBucket)) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LogHistogram{" + snapshot() + '}';
+    }
+}
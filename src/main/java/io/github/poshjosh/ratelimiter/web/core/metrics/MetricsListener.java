@@ -0,0 +1,56 @@
+package io.github.poshjosh.ratelimiter.web.core.metrics;
+
+/**
+ * Receives measurements from the rate limiter.
+ * <p>Implementations are called on the request path, from many threads at once, and should
+ * therefore be thread-safe and fast. When no listener is configured, nothing is measured.</p>
+ * @see RateLimiterMetrics
+ */
+public interface MetricsListener {
+
+    /**
+     * Called after a request has been checked against all the applicable rates.
+     * @param withinLimit true if the request was within limit, or permits were acquired
+     * @param durationNanos The time taken by the rate limiter for the request
+     */
+    default void onRequest(boolean withinLimit, long durationNanos) { }
+
+    /**
+     * Called after a matcher has been evaluated against a request.
+     * @param id The id of the rate, to which the matcher belongs
+     * @param matched true if the matcher matched the request
+     * @param durationNanos The time taken to evaluate the matcher
+     */
+    default void onMatch(String id, boolean matched, long durationNanos) { }
+
+    /**
+     * Called after an attempt to acquire permits from a rate limiter.
+     * @param key The key of the rate limiter; the id of a rate, or for rates matched per client
+     *            e.g by session id, a key per client
+     * @param permits The number of permits requested
+     * @param acquired true if the permits were granted, false if they were denied
+     * @param durationNanos The time taken to acquire or fail to acquire the permits
+     */
+    default void onAcquire(String key, int permits, boolean acquired, long durationNanos) { }
+
+    /**
+     * Called after a round trip to the store of rate limiter state.
+     * @param operation The store operation e.g {@code get}, {@code put}
+     * @param durationNanos The duration of the round trip
+     */
+    default void onStoreAccess(String operation, long durationNanos) { }
+
+    /**
+     * Called after a lookup of the cache of normalized request paths, if enabled.
+     * @param hit true if the path was found in the cache
+     */
+    default void onPathCacheLookup(boolean hit) { }
+
+    /**
+     * Called after the rate limiter of a key was removed, if a maximum number of keys is configured.
+     * @param key The key of the rate limiter
+     * @param expired true if removed after being idle, false if evicted to stay within the maximum
+     * @see io.github.poshjosh.ratelimiter.web.core.util.WebRateLimitProperties#getMaxRateLimiterKeys()
+     */
+    default void onRateLimiterRemoved(String key, boolean expired) { }
+}
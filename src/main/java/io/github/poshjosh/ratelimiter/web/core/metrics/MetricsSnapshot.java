@@ -0,0 +1,97 @@
+package io.github.poshjosh.ratelimiter.web.core.metrics;
+
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the values recorded by {@link RateLimiterMetrics}.
+ * Durations are in nanoseconds. Values by rate limiter key include those of keys not recorded
+ * apart, under {@link RateLimiterMetrics#OTHER_KEYS}.
+ */
+public final class MetricsSnapshot {
+
+    private final HistogramSnapshot requestTimes;
+    private final long requestsWithinLimit;
+    private final long requestsBeyondLimit;
+    private final Map<String, HistogramSnapshot> matchTimes;
+    private final Map<String, Long> matchCounts;
+    private final Map<String, HistogramSnapshot> acquireTimes;
+    private final Map<String, Long> permitsGranted;
+    private final Map<String, Long> permitsDenied;
+    private final Map<String, HistogramSnapshot> storeTimes;
+    private final long pathCacheHits;
+    private final long pathCacheMisses;
+    private final long rateLimitersExpired;
+    private final long rateLimitersEvicted;
+
+    MetricsSnapshot(HistogramSnapshot requestTimes,
+            long requestsWithinLimit, long requestsBeyondLimit,
+            Map<String, HistogramSnapshot> matchTimes, Map<String, Long> matchCounts,
+            Map<String, HistogramSnapshot> acquireTimes,
+            Map<String, Long> permitsGranted, Map<String, Long> permitsDenied,
+            Map<String, HistogramSnapshot> storeTimes,
+            long pathCacheHits, long pathCacheMisses,
+            long rateLimitersExpired, long rateLimitersEvicted) {
+        this.requestTimes = requestTimes;
+        this.requestsWithinLimit = requestsWithinLimit;
+        this.requestsBeyondLimit = requestsBeyondLimit;
+        this.matchTimes = matchTimes;
+        this.matchCounts = matchCounts;
+        this.acquireTimes = acquireTimes;
+        this.permitsGranted = permitsGranted;
+        this.permitsDenied = permitsDenied;
+        this.storeTimes = storeTimes;
+        this.pathCacheHits = pathCacheHits;
+        this.pathCacheMisses = pathCacheMisses;
+        this.rateLimitersExpired = rateLimitersExpired;
+        this.rateLimitersEvicted = rateLimitersEvicted;
+    }
+
+    /** @return The time added by the rate limiter, per request */
+    public HistogramSnapshot getRequestTimes() { return requestTimes; }
+
+    public long getRequestsWithinLimit() { return requestsWithinLimit; }
+
+    public long getRequestsBeyondLimit() { return requestsBeyondLimit; }
+
+    /** @return The matcher evaluation times, by rate id */
+    public Map<String, HistogramSnapshot> getMatchTimes() { return matchTimes; }
+
+    /** @return The number of requests matched, by rate id */
+    public Map<String, Long> getMatchCounts() { return matchCounts; }
+
+    /** @return The times taken to acquire permits, by rate limiter key */
+    public Map<String, HistogramSnapshot> getAcquireTimes() { return acquireTimes; }
+
+    /** @return The number of permits granted, by rate limiter key */
+    public Map<String, Long> getPermitsGranted() { return permitsGranted; }
+
+    /** @return The number of permits denied, by rate limiter key */
+    public Map<String, Long> getPermitsDenied() { return permitsDenied; }
+
+    /** @return The store round-trip times, by store operation */
+    public Map<String, HistogramSnapshot> getStoreTimes() { return storeTimes; }
+
+    public long getPathCacheHits() { return pathCacheHits; }
+
+    public long getPathCacheMisses() { return pathCacheMisses; }
+
+    /** @return The number of keyed rate limiters removed after being idle */
+    public long getRateLimitersExpired() { return rateLimitersExpired; }
+
+    /** @return The number of keyed rate limiters evicted to stay within the maximum number of keys */
+    public long getRateLimitersEvicted() { return rateLimitersEvicted; }
+
+    @Override
+    public String toString() {
+        return "MetricsSnapshot{requestTimes=" + requestTimes
+                + ", requestsWithinLimit=" + requestsWithinLimit
+                + ", requestsBeyondLimit=" + requestsBeyondLimit
+                + ", matchTimes=" + matchTimes + ", matchCounts=" + matchCounts
+                + ", acquireTimes=" + acquireTimes
+                + ", permitsGranted=" + permitsGranted + ", permitsDenied=" + permitsDenied
+                + ", storeTimes=" + storeTimes
+                + ", pathCacheHits=" + pathCacheHits + ", pathCacheMisses=" + pathCacheMisses
+                + ", rateLimitersExpired=" + rateLimitersExpired
+                + ", rateLimitersEvicted=" + rateLimitersEvicted + '}';
+    }
+}
@@ -0,0 +1,168 @@
+package io.github.poshjosh.ratelimiter.web.core.metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A {@link MetricsListener} which records all measurements in memory.
+ * <p>Durations are recorded in {@link LogHistogram}s, and counts in {@link LongAdder}s,
+ * so recording is lock-free. Memory is fixed per rate id and store operation. Permits are
+ * recorded by rate limiter key, which is per client for rates matched by e.g session id or
+ * IP address. So that memory stays fixed, at most {@code maxKeys} keys are recorded apart;
+ * permits of further keys are recorded together, under key {@value #OTHER_KEYS}.
+ * Read the recorded values via {@link #snapshot()}.</p>
+ * <pre>
+ * RateLimiterMetrics metrics = new RateLimiterMetrics();
+ * WebRateLimiterContext context = WebRateLimiterContext.builder()
+ *         .resourceInfoProvider(resourceInfoProvider)
+ *         .metricsListener(metrics)
+ *         .build();
+ * // Later
+ * MetricsSnapshot snapshot = metrics.snapshot();
+ * </pre>
+ */
+public final class RateLimiterMetrics implements MetricsListener {
+
+    /** The key under which permits are recorded, once the maximum number of keys is reached. */
+    public static final String OTHER_KEYS = "[other]";
+
+    private static final int DEFAULT_MAX_KEYS = 1000;
+
+    private static final class Rate {
+        private final LogHistogram acquireTimes = new LogHistogram();
+        private final LongAdder permitsGranted = new LongAdder();
+        private final LongAdder permitsDenied = new LongAdder();
+    }
+
+    private final LogHistogram requestTimes;
+    private final Map<String, LogHistogram> matchTimes;
+    private final Map<String, LongAdder> matchCounts;
+    private final Map<String, Rate> rates;
+    private final int maxKeys;
+    private final Rate otherKeys;
+    private final Map<String, LogHistogram> storeTimes;
+    private final LongAdder requestsWithinLimit;
+    private final LongAdder requestsBeyondLimit;
+    private final LongAdder pathCacheHits;
+    private final LongAdder pathCacheMisses;
+    private final LongAdder rateLimitersExpired;
+    private final LongAdder rateLimitersEvicted;
+
+    public RateLimiterMetrics() {
+        this(DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * @param maxKeys The maximum number of rate limiter keys, whose permits are recorded apart
+     */
+    public RateLimiterMetrics(int maxKeys) {
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("Max keys must be positive, found: " + maxKeys);
+        }
+        this.maxKeys = maxKeys;
+        this.otherKeys = new Rate();
+        this.requestTimes = new LogHistogram();
+        this.matchTimes = new ConcurrentHashMap<>();
+        this.matchCounts = new ConcurrentHashMap<>();
+        this.rates = new ConcurrentHashMap<>();
+        this.storeTimes = new ConcurrentHashMap<>();
+        this.requestsWithinLimit = new LongAdder();
+        this.requestsBeyondLimit = new LongAdder();
+        this.pathCacheHits = new LongAdder();
+        this.pathCacheMisses = new LongAdder();
+        this.rateLimitersExpired = new LongAdder();
+        this.rateLimitersEvicted = new LongAdder();
+    }
+
+    @Override
+    public void onRequest(boolean withinLimit, long durationNanos) {
+        requestTimes.record(durationNanos);
+        (withinLimit ? requestsWithinLimit : requestsBeyondLimit).increment();
+    }
+
+    @Override
+    public void onMatch(String id, boolean matched, long durationNanos) {
+        get(matchTimes, id, k -> new LogHistogram()).record(durationNanos);
+        if (matched) {
+            get(matchCounts, id, k -> new LongAdder()).increment();
+        }
+    }
+
+    @Override
+    public void onAcquire(String key, int permits, boolean acquired, long durationNanos) {
+        Rate rate = rates.get(key);
+        if (rate == null) {
+            // The size may briefly exceed the maximum, by the number of concurrent callers
+            rate = rates.size() < maxKeys ? rates.computeIfAbsent(key, k -> new Rate()) : otherKeys;
+        }
+        rate.acquireTimes.record(durationNanos);
+        (acquired ? rate.permitsGranted : rate.permitsDenied).add(permits);
+    }
+
+    @Override
+    public void onStoreAccess(String operation, long durationNanos) {
+        get(storeTimes, operation, k -> new LogHistogram()).record(durationNanos);
+    }
+
+    @Override
+    public void onPathCacheLookup(boolean hit) {
+        (hit ? pathCacheHits : pathCacheMisses).increment();
+    }
+
+    @Override
+    public void onRateLimiterRemoved(String key, boolean expired) {
+        (expired ? rateLimitersExpired : rateLimitersEvicted).increment();
+    }
+
+    private static <V> V get(Map<String, V> map, String key, Function<String, V> factory) {
+        final V existing = map.get(key);
+        return existing != null ? existing : map.computeIfAbsent(key, factory);
+    }
+
+    /**
+     * @return A snapshot of all the values recorded so far
+     */
+    public MetricsSnapshot snapshot() {
+        final Map<String, HistogramSnapshot> acquireTimes = new HashMap<>();
+        final Map<String, Long> permitsGranted = new HashMap<>();
+        final Map<String, Long> permitsDenied = new HashMap<>();
+        rates.forEach((key, rate) -> {
+            acquireTimes.put(key, rate.acquireTimes.snapshot());
+            permitsGranted.put(key, rate.permitsGranted.sum());
+            permitsDenied.put(key, rate.permitsDenied.sum());
+        });
+        final HistogramSnapshot otherAcquireTimes = otherKeys.acquireTimes.snapshot();
+        if (otherAcquireTimes.getCount() > 0) {
+            acquireTimes.put(OTHER_KEYS, otherAcquireTimes);
+            permitsGranted.put(OTHER_KEYS, otherKeys.permitsGranted.sum());
+            permitsDenied.put(OTHER_KEYS, otherKeys.permitsDenied.sum());
+        }
+        final Map<String, Long> matches = new HashMap<>();
+        matchCounts.forEach((id, count) -> matches.put(id, count.sum()));
+        return new MetricsSnapshot(
+                requestTimes.snapshot(),
+                requestsWithinLimit.sum(), requestsBeyondLimit.sum(),
+                snapshot(matchTimes), Collections.unmodifiableMap(matches),
+                Collections.unmodifiableMap(acquireTimes),
+                Collections.unmodifiableMap(permitsGranted),
+                Collections.unmodifiableMap(permitsDenied),
+                snapshot(storeTimes),
+                pathCacheHits.sum(), pathCacheMisses.sum(),
+                rateLimitersExpired.sum(), rateLimitersEvicted.sum());
+    }
+
+    private static Map<String, HistogramSnapshot> snapshot(Map<String, LogHistogram> histograms) {
+        final Map<String, HistogramSnapshot> result = new HashMap<>();
+        histograms.forEach((key, histogram) -> result.put(key, histogram.snapshot()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiterMetrics{" + snapshot() + '}';
+    }
+}
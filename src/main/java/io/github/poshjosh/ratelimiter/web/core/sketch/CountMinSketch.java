@@ -0,0 +1,97 @@
+package io.github.poshjosh.ratelimiter.web.core.sketch;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A count-min sketch of {@code depth} rows of {@code width} counters each.
+ * <p>
+ * A key is counted in one counter per row, and its count estimated as the least of its counters.
+ * Estimates are never below the true count. With {@code width = ceil(e / epsilon)} and
+ * {@code depth = ceil(ln(1 / delta))}, an estimate exceeds the true count by more than
+ * {@code epsilon} times the total of all counts, with probability at most {@code delta}.
+ * </p>
+ * <p>
+ * Counts are added conservatively: each counter is raised only as far as the new estimate,
+ * which reduces overestimation. Counters are updated lock-free.
+ * </p>
+ */
+final class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final AtomicIntegerArray counters;
+
+    CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException(
+                    "Width and depth must be positive, found: " + width + " and " + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new AtomicIntegerArray(Math.multiplyExact(width, depth));
+    }
+
+    static int width(double epsilon) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("Epsilon must be within 0 and 1, found: " + epsilon);
+        }
+        return (int) Math.ceil(Math.E / epsilon);
+    }
+
+    static int depth(double delta) {
+        if (!(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("Delta must be within 0 and 1, found: " + delta);
+        }
+        return (int) Math.ceil(Math.log(1 / delta));
+    }
+
+    /**
+     * @return A 64 bit hash of the key, from which the counters of the key are derived
+     */
+    static long hash(String key) {
+        // FNV-1a, followed by the MurmurHash3 finalizer
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private int index(long hash, int row) {
+        // Derive a hash per row from 2 hashes (Kirsch and Mitzenmacher)
+        final int combined = (int) hash + row * (int) (hash >>> 32);
+        return row * width + (combined & Integer.MAX_VALUE) % width;
+    }
+
+    int estimate(long hash) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters.get(index(hash, row)));
+        }
+        return min;
+    }
+
+    void add(long hash, int count) {
+        final long target = Math.min(Integer.MAX_VALUE, (long) estimate(hash) + count);
+        for (int row = 0; row < depth; row++) {
+            final int i = index(hash, row);
+            int current;
+            while ((current = counters.get(i)) < target) {
+                if (counters.compareAndSet(i, current, (int) target)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /** @return The number of bytes taken by the counters */
+    long getSizeBytes() {
+        return (long) counters.length() * Integer.BYTES;
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.poshjosh.ratelimiter.web.core.sketch;
+
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.bandwidths.BandwidthFactories;
+import io.github.poshjosh.ratelimiter.bandwidths.BandwidthFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks a rate to be limited approximately, by {@link CountMinSketchRateLimiterProvider}.
+ * <pre>
+ * &#64;Rate(permits = 100, duration = 1, timeUnit = TimeUnit.MINUTES,
+ *       factoryClass = CountMinSketchBandwidthFactory.class)
+ * </pre>
+ * <p>Where the rate limiter provider is not a {@link CountMinSketchRateLimiterProvider},
+ * the rate is limited exactly, by a smooth bursty bandwidth.</p>
+ */
+public final class CountMinSketchBandwidthFactory implements BandwidthFactory {
+
+    public CountMinSketchBandwidthFactory() { }
+
+    @Override
+    public Bandwidth createNew(long permits, long duration, TimeUnit timeUnit, long nowMicros) {
+        return BandwidthFactories.ofBursty().createNew(permits, duration, timeUnit, nowMicros);
+    }
+
+    @Override
+    public String toString() {
+        return "CountMinSketchBandwidthFactory{}";
+    }
+}
@@ -0,0 +1,323 @@
+package io.github.poshjosh.ratelimiter.web.core.sketch;
+
+import io.github.poshjosh.ratelimiter.RateLimiter;
+import io.github.poshjosh.ratelimiter.RateLimiterProvider;
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.model.Operator;
+import io.github.poshjosh.ratelimiter.model.Rate;
+import io.github.poshjosh.ratelimiter.model.Rates;
+import io.github.poshjosh.ratelimiter.util.Ticker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link RateLimiterProvider} which limits rates marked with
+ * {@link CountMinSketchBandwidthFactory} approximately, in fixed memory, whatever the
+ * number of distinct keys. Other rates are passed to the delegate.
+ * <p>
+ * Suited to limiting by a high cardinality key, e.g by IP address, for abuse protection.
+ * Per rate, the permits acquired by each key are counted in a {@link CountMinSketch} per window
+ * of the rate's duration. The permits of a key are estimated over a sliding window: all of the
+ * current window, plus the part of the previous window that the sliding window still covers.
+ * </p>
+ * <p>
+ * Estimates are never below the true count, so a key is never allowed beyond its limit, bar
+ * concurrent requests of the same key racing. A key may however be limited early: by more than
+ * {@code epsilon} times the total permits acquired per window, across all keys, with probability
+ * at most {@code delta}. Memory per rate is about {@code 2 * 4 * ceil(e / epsilon) * ceil(ln(1 / delta))}
+ * bytes, e.g 1.5 MB for the defaults.
+ * </p>
+ * <pre>
+ * WebRateLimiterContext context = WebRateLimiterContext.builder()
+ *         .resourceInfoProvider(resourceInfoProvider)
+ *         .rateLimiterProvider(CountMinSketchRateLimiterProvider.of(RateLimiterProvider.ofDefaults()))
+ *         .build();
+ * </pre>
+ */
+public final class CountMinSketchRateLimiterProvider implements RateLimiterProvider {
+
+    public static final double DEFAULT_EPSILON = 0.0001;
+
+    public static final double DEFAULT_DELTA = 0.001;
+
+    public static CountMinSketchRateLimiterProvider of(RateLimiterProvider delegate) {
+        return new CountMinSketchRateLimiterProvider(
+                delegate, Ticker.ofDefaults(), DEFAULT_EPSILON, DEFAULT_DELTA);
+    }
+
+    private final RateLimiterProvider delegate;
+    private final Ticker ticker;
+    private final int width;
+    private final int depth;
+    private final Map<Rate, SlidingSketch> sketches;
+
+    /**
+     * @param delegate Provides rate limiters for rates not marked with {@link CountMinSketchBandwidthFactory}
+     * @param ticker The source of time
+     * @param epsilon The maximum overestimate of a key's permits, as a fraction of the total
+     *                permits acquired per window
+     * @param delta The probability of exceeding the maximum overestimate
+     */
+    public CountMinSketchRateLimiterProvider(RateLimiterProvider delegate, Ticker ticker,
+            double epsilon, double delta) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.ticker = Objects.requireNonNull(ticker);
+        this.width = CountMinSketch.width(epsilon);
+        this.depth = CountMinSketch.depth(delta);
+        this.sketches = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public RateLimiter getRateLimiter(String key, Rate rate) {
+        if (!isSketched(rate)) {
+            return delegate.getRateLimiter(key, rate);
+        }
+        return new SketchRateLimiter(CountMinSketch.hash(key),
+                new SlidingSketch[]{sketchOf(rate)}, false, ticker);
+    }
+
+    @Override
+    public RateLimiter getRateLimiter(String key, Rates rates) {
+        final List<Rate> limits = rates.getAllLimits();
+        if (limits.isEmpty()) {
+            return delegate.getRateLimiter(key, rates);
+        }
+        final SlidingSketch [] limitSketches = new SlidingSketch[limits.size()];
+        for (int i = 0; i < limitSketches.length; i++) {
+            final Rate limit = limits.get(i);
+            if (!isSketched(limit)) {
+                // Mixed exact and approximate limits are all limited exactly
+                return delegate.getRateLimiter(key, rates);
+            }
+            limitSketches[i] = sketchOf(limit);
+        }
+        return new SketchRateLimiter(CountMinSketch.hash(key), limitSketches,
+                Operator.AND.equals(rates.getOperator()), ticker);
+    }
+
+    private static boolean isSketched(Rate rate) {
+        return rate != null && rate.getFactoryClass() == CountMinSketchBandwidthFactory.class;
+    }
+
+    private SlidingSketch sketchOf(Rate rate) {
+        final SlidingSketch existing = sketches.get(rate);
+        return existing != null ? existing : sketches.computeIfAbsent(rate,
+                k -> new SlidingSketch(k.getPermits(), TimeUnit.NANOSECONDS.toMicros(k.getDuration().toNanos()),
+                        ticker.elapsedMicros(), width, depth));
+    }
+
+    /** @return The number of bytes taken by the sketches of all rates */
+    public long getSizeBytes() {
+        long bytes = 0;
+        for (SlidingSketch sketch : sketches.values()) {
+            bytes += sketch.getSizeBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CountMinSketchRateLimiterProvider{width=" + width + ", depth=" + depth
+                + ", rates=" + sketches.size() + ", delegate=" + delegate + '}';
+    }
+
+    /**
+     * The sketches of the current and previous windows of a rate.
+     */
+    static final class SlidingSketch {
+
+        private static final class Window {
+            private final long startMicros;
+            private final CountMinSketch current;
+            /** Null if the previous window had no permits acquired. */
+            private final CountMinSketch previous;
+            private Window(long startMicros, CountMinSketch current, CountMinSketch previous) {
+                this.startMicros = startMicros;
+                this.current = current;
+                this.previous = previous;
+            }
+        }
+
+        private final long permits;
+        private final long windowMicros;
+        private final int width;
+        private final int depth;
+        private volatile Window window;
+
+        SlidingSketch(long permits, long windowMicros, long nowMicros, int width, int depth) {
+            if (windowMicros < 1) {
+                throw new IllegalArgumentException("Duration must be positive, found: " + windowMicros + " micros");
+            }
+            this.permits = permits;
+            this.windowMicros = windowMicros;
+            this.width = width;
+            this.depth = depth;
+            this.window = new Window(nowMicros, new CountMinSketch(width, depth), null);
+        }
+
+        private Window windowAt(long nowMicros) {
+            final Window current = window;
+            if (nowMicros - current.startMicros < windowMicros) {
+                return current;
+            }
+            synchronized (this) {
+                final Window latest = window;
+                final long elapsed = nowMicros - latest.startMicros;
+                if (elapsed < windowMicros) {
+                    return latest;
+                }
+                final long start = nowMicros - elapsed % windowMicros;
+                // Only the immediately preceding window is still partly covered
+                final CountMinSketch previous = elapsed < 2 * windowMicros ? latest.current : null;
+                final Window next = new Window(start, new CountMinSketch(width, depth), previous);
+                window = next;
+                return next;
+            }
+        }
+
+        double estimate(long hash, Window w, long nowMicros) {
+            final double current = w.current.estimate(hash);
+            if (w.previous == null) {
+                return current;
+            }
+            final double uncovered = (double) (nowMicros - w.startMicros) / windowMicros;
+            return current + w.previous.estimate(hash) * (1 - uncovered);
+        }
+
+        boolean isAvailable(long hash, int permits, long nowMicros) {
+            return estimate(hash, windowAt(nowMicros), nowMicros) + permits <= this.permits;
+        }
+
+        void add(long hash, int permits, long nowMicros) {
+            windowAt(nowMicros).current.add(hash, permits);
+        }
+
+        /**
+         * @return The earliest time at which the permits may be available. An estimate, since
+         * the previous window is assumed to have been used evenly.
+         */
+        long queryEarliestAvailable(long hash, int permits, long nowMicros) {
+            final Window w = windowAt(nowMicros);
+            final double current = w.current.estimate(hash);
+            if (current + permits > this.permits) {
+                return w.startMicros + windowMicros;
+            }
+            if (w.previous == null) {
+                return nowMicros;
+            }
+            final double previous = w.previous.estimate(hash);
+            if (previous <= 0) {
+                return nowMicros;
+            }
+            // The time at which the part of the previous window still covered falls enough
+            final double uncovered = 1 - (this.permits - permits - current) / previous;
+            return Math.max(nowMicros, w.startMicros + (long) Math.ceil(uncovered * windowMicros));
+        }
+
+        double getPermitsPerSecond() {
+            return permits * (double) TimeUnit.SECONDS.toMicros(1) / windowMicros;
+        }
+
+        long getSizeBytes() {
+            final Window w = window;
+            return w.current.getSizeBytes() + (w.previous == null ? 0 : w.previous.getSizeBytes());
+        }
+    }
+
+    private static final class SketchRateLimiter implements RateLimiter {
+        private final long hash;
+        private final SlidingSketch [] sketches;
+        /**
+         * True if permits are available while any limit has room, i.e operator AND; otherwise
+         * every limit must have room. Matches the library's {@code BandwidthArray}.
+         */
+        private final boolean any;
+        private final Ticker ticker;
+        private SketchRateLimiter(long hash, SlidingSketch [] sketches, boolean any, Ticker ticker) {
+            this.hash = hash;
+            this.sketches = sketches;
+            this.any = any;
+            this.ticker = ticker;
+        }
+        @Override public Bandwidth getBandwidth() {
+            return new SketchBandwidth(this);
+        }
+        /** Acquires the permits without waiting. */
+        @Override public double acquire(int permits) {
+            add(permits, ticker.elapsedMicros());
+            return 0;
+        }
+        @Override public boolean tryAcquire(int permits, long timeout, TimeUnit unit) {
+            final long deadlineMicros = ticker.elapsedMicros() + unit.toMicros(Math.max(0, timeout));
+            while (true) {
+                final long nowMicros = ticker.elapsedMicros();
+                if (isAvailable(permits, nowMicros)) {
+                    add(permits, nowMicros);
+                    return true;
+                }
+                final long availableMicros = queryEarliestAvailable(permits, nowMicros);
+                if (availableMicros > deadlineMicros) {
+                    return false;
+                }
+                ticker.sleepMicrosWithoutInterruption(Math.max(1, availableMicros - nowMicros));
+            }
+        }
+        private boolean isAvailable(int permits, long nowMicros) {
+            for (SlidingSketch sketch : sketches) {
+                if (sketch.isAvailable(hash, permits, nowMicros) == any) {
+                    return any;
+                }
+            }
+            return !any;
+        }
+        private void add(int permits, long nowMicros) {
+            for (SlidingSketch sketch : sketches) {
+                sketch.add(hash, permits, nowMicros);
+            }
+        }
+        private long queryEarliestAvailable(int permits, long nowMicros) {
+            long result = any ? Long.MAX_VALUE : nowMicros;
+            for (SlidingSketch sketch : sketches) {
+                final long available = sketch.queryEarliestAvailable(hash, permits, nowMicros);
+                result = any ? Math.min(result, available) : Math.max(result, available);
+            }
+            return result;
+        }
+        @Override public String toString() {
+            return "SketchRateLimiter{hash=" + hash + ", limits=" + sketches.length + '}';
+        }
+    }
+
+    private static final class SketchBandwidth implements Bandwidth {
+        private final SketchRateLimiter rateLimiter;
+        private SketchBandwidth(SketchRateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+        }
+        @Override public double getPermitsPerSecond() {
+            double result = rateLimiter.any ? 0 : Double.MAX_VALUE;
+            for (SlidingSketch sketch : rateLimiter.sketches) {
+                final double permitsPerSecond = sketch.getPermitsPerSecond();
+                result = rateLimiter.any ? Math.max(result, permitsPerSecond) : Math.min(result, permitsPerSecond);
+            }
+            return result;
+        }
+        @Override public long queryEarliestAvailable(long nowMicros) {
+            return rateLimiter.queryEarliestAvailable(1, nowMicros);
+        }
+        @Override public long reserveEarliestAvailable(int permits, long nowMicros) {
+            final long available = rateLimiter.queryEarliestAvailable(permits, nowMicros);
+            rateLimiter.add(permits, nowMicros);
+            return available;
+        }
+        @Override public Bandwidth with(long nowMicros) {
+            return this;
+        }
+        @Override public String toString() {
+            return "SketchBandwidth{" + rateLimiter + '}';
+        }
+    }
+}
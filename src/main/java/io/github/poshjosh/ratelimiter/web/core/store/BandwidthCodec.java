@@ -0,0 +1,60 @@
+package io.github.poshjosh.ratelimiter.web.core.store;
+
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the state of bandwidths into a fixed number of bytes, and decodes it.
+ * @see OffHeapBandwidthsStore
+ */
+public interface BandwidthCodec {
+
+    /**
+     * @return A codec for the smooth bandwidths created by the rate limiter library i.e
+     * bursty and warming up bandwidths.
+     */
+    static BandwidthCodec ofDefaults() {
+        return SmoothBandwidthCodec.INSTANCE;
+    }
+
+    /**
+     * @return The number of bytes each encoded bandwidth takes
+     */
+    int size();
+
+    /**
+     * @param bandwidth The bandwidth to check
+     * @return true if this codec can encode the bandwidth, otherwise false
+     */
+    boolean supports(Bandwidth bandwidth);
+
+    /**
+     * Write the state of the bandwidth, using absolute puts, without changing the buffer's position.
+     * @param bandwidth The bandwidth to encode. Must be {@link #supports(Bandwidth) supported}.
+     * @param buffer The buffer to write to
+     * @param offset The index in the buffer at which to write {@link #size()} bytes
+     */
+    void encode(Bandwidth bandwidth, ByteBuffer buffer, int offset);
+
+    /**
+     * Read a bandwidth, using absolute gets, without changing the buffer's position.
+     * @param buffer The buffer to read from
+     * @param offset The index in the buffer at which {@link #size()} bytes were written
+     * @return A new bandwidth, with the encoded state
+     */
+    Bandwidth decode(ByteBuffer buffer, int offset);
+
+    /**
+     * Move the times of an encoded bandwidth, using absolute gets and puts, e.g onto the timeline
+     * of another ticker.
+     * @param buffer The buffer holding the encoded bandwidth
+     * @param offset The index in the buffer at which {@link #size()} bytes were written
+     * @param micros The number of microseconds to add to each time
+     * @throws UnsupportedOperationException If this codec does not support moving times
+     * @see MappedBandwidthsSnapshot
+     */
+    default void shift(ByteBuffer buffer, int offset, long micros) {
+        throw new UnsupportedOperationException();
+    }
+}
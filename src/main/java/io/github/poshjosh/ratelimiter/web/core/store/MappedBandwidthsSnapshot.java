@@ -0,0 +1,237 @@
+package io.github.poshjosh.ratelimiter.web.core.store;
+
+import io.github.poshjosh.ratelimiter.util.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Saves the off-heap entries of an {@link OffHeapBandwidthsStore} to a memory-mapped file, and
+ * restores them, so that rate limits survive a restart.
+ * <p>
+ * The file holds a 64 byte header, followed by the records of the store, copied as is. Records
+ * are thus written and read without encoding or decoding bandwidths. A snapshot is written to a
+ * temporary file, which then replaces the previous snapshot, so that a crash while writing
+ * leaves the previous snapshot intact.
+ * </p>
+ * <p>
+ * Bandwidths hold times read from the {@link Ticker}, which restarts with the process. On
+ * restore, the times of each bandwidth are moved onto the timeline of the current ticker, less
+ * the wall clock time which passed while the process was down. A bandwidth thus resumes as if
+ * the process had kept running. The codec of the store must support
+ * {@link BandwidthCodec#shift(java.nio.ByteBuffer, int, long)}.
+ * </p>
+ * <p>
+ * Entries kept on the heap (see {@link OffHeapBandwidthsStore#getOnHeapCount()}) are not saved.
+ * Snapshots written by a store with another record layout (codec size or max key bytes) are
+ * ignored. Restore a snapshot before the store is used, and pass a key filter to skip keys of
+ * rates which no longer exist, or whose limits have changed.
+ * </p>
+ * <pre>
+ * OffHeapBandwidthsStore store = OffHeapBandwidthsStore.of(10_000_000);
+ * MappedBandwidthsSnapshot snapshot = new MappedBandwidthsSnapshot(store, path, ticker);
+ * snapshot.restore();
+ * snapshot.scheduleCheckpoints(scheduler, Duration.ofMinutes(1));
+ * // On shutdown, writes a final snapshot
+ * snapshot.close();
+ * </pre>
+ */
+public final class MappedBandwidthsSnapshot implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedBandwidthsSnapshot.class);
+
+    // Header layout
+    private static final int MAGIC = 0x524C4253; // RLBS
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE_AT = 8;
+    private static final int VALUE_SIZE_AT = 12;
+    private static final int MAX_KEY_BYTES_AT = 16;
+    private static final int COUNT_AT = 24;
+    private static final int TICKER_MICROS_AT = 32;
+    private static final int WALL_MICROS_AT = 40;
+
+    private final OffHeapBandwidthsStore store;
+    private final Path file;
+    private final Ticker ticker;
+    private volatile ScheduledFuture<?> checkpoints;
+
+    /**
+     * @param store The store whose entries are saved and restored
+     * @param file The file to which snapshots are written
+     * @param ticker The ticker from which the bandwidths of the store read their times
+     */
+    public MappedBandwidthsSnapshot(OffHeapBandwidthsStore store, Path file, Ticker ticker) {
+        this.store = Objects.requireNonNull(store);
+        this.file = Objects.requireNonNull(file);
+        this.ticker = Objects.requireNonNull(ticker);
+    }
+
+    /**
+     * Restore all entries of the latest snapshot.
+     * @return The number of entries restored
+     * @see #restore(Predicate)
+     */
+    public long restore() {
+        return restore(null);
+    }
+
+    /**
+     * Restore the entries of the latest snapshot, whose keys are accepted by the filter.
+     * Entries are restored into the store, replacing any existing entry of the same key.
+     * Corrupt entries are skipped.
+     * @param keyFilter Accepts the keys to restore, or null to restore all keys
+     * @return The number of entries restored. Zero, if there is no snapshot, or it was
+     * written by a store with another record layout.
+     */
+    public long restore(Predicate<String> keyFilter) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                LOG.warn("Ignoring snapshot, too small: {}", file);
+                return 0;
+            }
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            final int recordSize = store.getRecordSize();
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || header.getInt(RECORD_SIZE_AT) != recordSize
+                    || header.getInt(VALUE_SIZE_AT) != store.getCodec().size()
+                    || header.getInt(MAX_KEY_BYTES_AT) != store.getMaxKeyBytes()) {
+                LOG.warn("Ignoring snapshot, written by another version or record layout: {}", file);
+                return 0;
+            }
+            final long count = header.getLong(COUNT_AT);
+            if (count < 0 || HEADER_SIZE + count * recordSize > fileSize) {
+                LOG.warn("Ignoring snapshot, truncated: {}", file);
+                return 0;
+            }
+            final long shiftMicros = shiftMicros(
+                    header.getLong(TICKER_MICROS_AT), header.getLong(WALL_MICROS_AT));
+            // Map whole records, at most Integer.MAX_VALUE bytes at a time
+            final long recordsPerChunk = Integer.MAX_VALUE / recordSize;
+            long restored = 0;
+            for (long start = 0; start < count; start += recordsPerChunk) {
+                final int records = (int) Math.min(recordsPerChunk, count - start);
+                final ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + start * recordSize, (long) records * recordSize);
+                for (int i = 0; i < records; i++) {
+                    if (store.restoreRecord(chunk, i * recordSize, shiftMicros, keyFilter)) {
+                        ++restored;
+                    }
+                }
+            }
+            LOG.debug("Restored {} of {} entries from {}", restored, count, file);
+            return restored;
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to restore snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * The bandwidths were written at {@code tickerMicros} of the previous ticker. By now, that
+     * time is {@code (now - then)} of the wall clock in the past, on the current ticker.
+     */
+    private long shiftMicros(long tickerMicros, long wallMicros) {
+        final long downtimeMicros = Math.max(0, wallMicros() - wallMicros);
+        return ticker.elapsedMicros() - downtimeMicros - tickerMicros;
+    }
+
+    private static long wallMicros() {
+        return TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    }
+
+    /**
+     * Write a snapshot of the store's off-heap entries, replacing the previous snapshot.
+     * Entries updated while writing may be saved in either state.
+     * @return The number of entries written
+     */
+    public synchronized long write() {
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            final long count;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // Read the times first, so that no bandwidth written is older than the header
+                final long tickerMicros = ticker.elapsedMicros();
+                final long wallMicros = wallMicros();
+                count = store.writeRecords(channel, HEADER_SIZE);
+                final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putInt(RECORD_SIZE_AT, store.getRecordSize());
+                header.putInt(VALUE_SIZE_AT, store.getCodec().size());
+                header.putInt(MAX_KEY_BYTES_AT, store.getMaxKeyBytes());
+                header.putLong(COUNT_AT, count);
+                header.putLong(TICKER_MICROS_AT, tickerMicros);
+                header.putLong(WALL_MICROS_AT, wallMicros);
+                header.force();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOG.debug("Wrote {} entries to {}", count, file);
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Write a snapshot periodically, until {@link #close()}.
+     * @param scheduler The scheduler on which to write snapshots
+     * @param interval The time between snapshots
+     */
+    public synchronized void scheduleCheckpoints(ScheduledExecutorService scheduler, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval must be positive, found: " + interval);
+        }
+        if (checkpoints != null) {
+            throw new IllegalStateException("Checkpoints already scheduled");
+        }
+        final long millis = interval.toMillis();
+        checkpoints = scheduler.scheduleWithFixedDelay(
+                this::checkpoint, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    private void checkpoint() {
+        try {
+            write();
+        } catch (RuntimeException e) {
+            // Thrown exceptions would cancel further checkpoints
+            LOG.warn("Failed to write checkpoint, will retry. Reason: {}", e.toString());
+        }
+    }
+
+    /**
+     * Stop periodic checkpoints, then write a final snapshot.
+     */
+    @Override
+    public void close() {
+        final ScheduledFuture<?> scheduled = checkpoints;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        write();
+    }
+
+    @Override
+    public String toString() {
+        return "MappedBandwidthsSnapshot{file=" + file + ", store=" + store + '}';
+    }
+}
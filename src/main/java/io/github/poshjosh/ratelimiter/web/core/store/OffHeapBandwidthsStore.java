@@ -0,0 +1,444 @@
+package io.github.poshjosh.ratelimiter.web.core.store;
+
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.store.BandwidthsStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * A {@link BandwidthsStore} which keeps bandwidths and their keys in direct (off-heap) memory.
+ * <p>
+ * Suited to limiting per client e.g per IP address or API key, where millions of keys are
+ * tracked. Each entry takes a fixed size record: an 8 byte header, the bandwidth encoded by a
+ * {@link BandwidthCodec}, and the UTF-8 bytes of the key. Records are held in open addressed
+ * hash tables (linear probing), split into segments, each guarded by its own lock.
+ * All memory is allocated up front, for {@code maxEntries} entries.
+ * </p>
+ * <p>
+ * When a segment is full, an entry not recently read is evicted (CLOCK), to make room.
+ * An evicted key is thereafter treated as new i.e its bandwidth starts afresh.
+ * </p>
+ * <p>
+ * Bandwidths the codec does not support (e.g composite bandwidths, from multiple rates) and keys
+ * longer than {@code maxKeyBytes} are kept on the heap, and are not evicted.
+ * See {@link #getOnHeapCount()}.
+ * </p>
+ * <p>
+ * Off-heap entries may be saved to, and restored from a file, via {@link MappedBandwidthsSnapshot}.
+ * </p>
+ * <pre>
+ * WebRateLimiterContext context = WebRateLimiterContext.builder()
+ *         .resourceInfoProvider(resourceInfoProvider)
+ *         .store(OffHeapBandwidthsStore.of(10_000_000))
+ *         .build();
+ * </pre>
+ */
+public final class OffHeapBandwidthsStore implements BandwidthsStore<String> {
+
+    public static final int DEFAULT_MAX_KEY_BYTES = 64;
+
+    public static final int DEFAULT_SEGMENTS = 64;
+
+    public static OffHeapBandwidthsStore of(int maxEntries) {
+        return new OffHeapBandwidthsStore(maxEntries, DEFAULT_MAX_KEY_BYTES,
+                DEFAULT_SEGMENTS, BandwidthCodec.ofDefaults());
+    }
+
+    // Record layout
+    private static final int USED = 0;
+    private static final int REFERENCED = 1;
+    private static final int KEY_LENGTH = 2;
+    private static final int HASH = 4;
+    private static final int VALUE = 8;
+
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 0;
+
+    private final BandwidthCodec codec;
+    private final int maxKeyBytes;
+    private final int keyOffset;
+    private final int recordSize;
+    private final Segment [] segments;
+    private final int segmentShift;
+
+    private final Map<String, Bandwidth> onHeap;
+
+    private final LongAdder evictions;
+
+    /**
+     * @param maxEntries The maximum number of entries kept off-heap
+     * @param maxKeyBytes The maximum length of keys kept off-heap, in UTF-8 bytes
+     * @param segments The number of independently locked segments. Must be a power of 2.
+     * @param codec The codec with which bandwidths are written to, and read from memory
+     */
+    public OffHeapBandwidthsStore(int maxEntries, int maxKeyBytes, int segments, BandwidthCodec codec) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Max entries must be positive, found: " + maxEntries);
+        }
+        if (maxKeyBytes < 1 || maxKeyBytes > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Max key bytes must be within 1 and "
+                    + Short.MAX_VALUE + ", found: " + maxKeyBytes);
+        }
+        if (segments < 1 || Integer.bitCount(segments) != 1) {
+            throw new IllegalArgumentException("Segments must be a positive power of 2, found: " + segments);
+        }
+        this.codec = Objects.requireNonNull(codec);
+        this.maxKeyBytes = maxKeyBytes;
+        this.keyOffset = VALUE + codec.size();
+        this.recordSize = keyOffset + maxKeyBytes;
+        final int entriesPerSegment = (maxEntries + segments - 1) / segments;
+        // Keep the load factor at or below 0.75, so that probes stay short
+        final long slotsPerSegment = Math.max(2, (entriesPerSegment * 4L + 2) / 3);
+        if (slotsPerSegment * recordSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many entries per segment, use more segments. Entries: "
+                    + maxEntries + ", segments: " + segments);
+        }
+        this.segments = new Segment[segments];
+        for (int i = 0; i < segments; i++) {
+            this.segments[i] = new Segment((int) slotsPerSegment, entriesPerSegment);
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segments);
+        this.onHeap = new ConcurrentHashMap<>();
+        this.evictions = new LongAdder();
+    }
+
+    @Override
+    public Bandwidth get(String key) {
+        final byte [] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > maxKeyBytes) {
+            return onHeap.get(key);
+        }
+        final int hash = hash(key);
+        final Segment segment = segmentFor(hash);
+        segment.lock.lock();
+        try {
+            final int slot = segment.find(hash, keyBytes);
+            if (slot >= 0) {
+                final int offset = slot * recordSize;
+                segment.records.put(offset + REFERENCED, TRUE);
+                return codec.decode(segment.records, offset + VALUE);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        return onHeap.isEmpty() ? null : onHeap.get(key);
+    }
+
+    @Override
+    public void put(String key, Bandwidth bandwidth) {
+        Objects.requireNonNull(bandwidth);
+        final byte [] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > maxKeyBytes) {
+            onHeap.put(key, bandwidth);
+            return;
+        }
+        final int hash = hash(key);
+        final Segment segment = segmentFor(hash);
+        final boolean offHeap = codec.supports(bandwidth);
+        segment.lock.lock();
+        try {
+            int slot = segment.find(hash, keyBytes);
+            if (!offHeap) {
+                if (slot >= 0) {
+                    segment.remove(slot);
+                }
+            } else {
+                if (slot < 0) {
+                    slot = segment.insert(hash, keyBytes, -(slot + 1));
+                }
+                final int offset = slot * recordSize;
+                segment.records.put(offset + REFERENCED, TRUE);
+                codec.encode(bandwidth, segment.records, offset + VALUE);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        if (!offHeap) {
+            onHeap.put(key, bandwidth);
+        } else if (!onHeap.isEmpty()) {
+            onHeap.remove(key);
+        }
+    }
+
+    private static int hash(String key) {
+        final int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment segmentFor(int hash) {
+        return segmentShift == 32 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    /** @return The number of entries */
+    public long size() {
+        long size = onHeap.size();
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.size;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /** @return The number of entries kept on the heap, because they could not be kept off-heap */
+    public int getOnHeapCount() {
+        return onHeap.size();
+    }
+
+    /** @return The number of entries evicted to make room for new entries */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /** @return The number of bytes of direct memory allocated */
+    public long getOffHeapBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.records.capacity();
+        }
+        return bytes;
+    }
+
+    int getRecordSize() {
+        return recordSize;
+    }
+
+    int getMaxKeyBytes() {
+        return maxKeyBytes;
+    }
+
+    BandwidthCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Copy the off-heap records, one segment at a time, to the channel.
+     * @param channel The channel to write to, by mapping regions of it into memory
+     * @param position The position in the channel at which to write the first record
+     * @return The number of records written
+     */
+    long writeRecords(FileChannel channel, long position) throws IOException {
+        long count = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                if (segment.size == 0) {
+                    continue;
+                }
+                final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE,
+                        position + count * recordSize, (long) segment.size * recordSize);
+                for (int slot = 0; slot < segment.slots; slot++) {
+                    if (segment.isUsed(slot)) {
+                        final int from = slot * recordSize;
+                        segment.source.clear().position(from).limit(from + recordSize);
+                        mapped.put(segment.source);
+                    }
+                }
+                mapped.force();
+                count += segment.size;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copy a record, as written by {@link #writeRecords(FileChannel, long)}, into this store.
+     * The bandwidth is not decoded, but its times are shifted by the codec. The record is read
+     * from a file, and is thus validated: records which are unused, or whose key is too long or
+     * not valid UTF-8, are skipped. The hash of the key is computed afresh.
+     * @param source The buffer holding the record. Its position and limit are changed.
+     * @param offset The index in the source at which the record starts
+     * @param shiftMicros The number of microseconds to add to the times of the bandwidth
+     * @param keyFilter Accepts the keys to restore, or null to restore all keys
+     * @return true if the record was restored, false if it is invalid or its key was not accepted
+     */
+    boolean restoreRecord(ByteBuffer source, int offset, long shiftMicros, Predicate<String> keyFilter) {
+        source.clear();
+        final int keyLength = source.getShort(offset + KEY_LENGTH);
+        if (source.get(offset + USED) != TRUE || keyLength < 0 || keyLength > maxKeyBytes) {
+            return false;
+        }
+        final byte [] keyBytes = new byte[keyLength];
+        source.position(offset + keyOffset);
+        source.get(keyBytes);
+        final String key = new String(keyBytes, StandardCharsets.UTF_8);
+        if (!Arrays.equals(keyBytes, key.getBytes(StandardCharsets.UTF_8))) {
+            return false;
+        }
+        if (keyFilter != null && !keyFilter.test(key)) {
+            return false;
+        }
+        final int hash = hash(key);
+        final Segment segment = segmentFor(hash);
+        segment.lock.lock();
+        try {
+            int slot = segment.find(hash, keyBytes);
+            if (slot < 0) {
+                slot = segment.insert(hash, keyBytes, -(slot + 1));
+            }
+            final int recordOffset = slot * recordSize;
+            source.clear().position(offset + VALUE).limit(offset + keyOffset);
+            segment.target.clear().position(recordOffset + VALUE);
+            segment.target.put(source);
+            // Restored but not yet read, so evicted before entries in use
+            segment.records.put(recordOffset + REFERENCED, FALSE);
+            codec.shift(segment.records, recordOffset + VALUE, shiftMicros);
+        } finally {
+            segment.lock.unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapBandwidthsStore{size=" + size() + ", onHeap=" + getOnHeapCount()
+                + ", evictions=" + getEvictionCount() + ", offHeapBytes=" + getOffHeapBytes() + '}';
+    }
+
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ByteBuffer records;
+        // Views of the records, for copying records and keys without allocating
+        private final ByteBuffer source;
+        private final ByteBuffer target;
+        private final int slots;
+        private final int maxSize;
+        private int size;
+        private int clockHand;
+
+        private Segment(int slots, int maxSize) {
+            this.records = ByteBuffer.allocateDirect(slots * recordSize);
+            this.source = records.duplicate();
+            this.target = records.duplicate();
+            this.slots = slots;
+            this.maxSize = maxSize;
+        }
+
+        private int home(int hash) {
+            return (int) (((hash * 0x85EBCA6BL) & 0xFFFFFFFFL) * slots >>> 32);
+        }
+
+        private int next(int slot) {
+            return slot + 1 == slots ? 0 : slot + 1;
+        }
+
+        private boolean isUsed(int slot) {
+            return records.get(slot * recordSize + USED) == TRUE;
+        }
+
+        /**
+         * @return The slot holding the key if found, otherwise {@code -(emptySlot + 1)},
+         * where {@code emptySlot} is the slot at which the key may be inserted.
+         */
+        private int find(int hash, byte [] key) {
+            int slot = home(hash);
+            while (true) {
+                final int offset = slot * recordSize;
+                if (records.get(offset + USED) != TRUE) {
+                    return -(slot + 1);
+                }
+                if (records.getInt(offset + HASH) == hash && keyEquals(offset, key)) {
+                    return slot;
+                }
+                slot = next(slot);
+            }
+        }
+
+        private boolean keyEquals(int offset, byte [] key) {
+            if (records.getShort(offset + KEY_LENGTH) != key.length) {
+                return false;
+            }
+            final int start = offset + keyOffset;
+            for (int i = 0; i < key.length; i++) {
+                if (records.get(start + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int insert(int hash, byte [] key, int emptySlot) {
+            if (size >= maxSize) {
+                evictOne();
+                // Eviction shifts records, so the empty slot may have moved
+                emptySlot = -(find(hash, key) + 1);
+            }
+            final int offset = emptySlot * recordSize;
+            records.put(offset + USED, TRUE);
+            records.putShort(offset + KEY_LENGTH, (short) key.length);
+            records.putInt(offset + HASH, hash);
+            target.clear().position(offset + keyOffset);
+            target.put(key);
+            ++size;
+            return emptySlot;
+        }
+
+        private void evictOne() {
+            while (true) {
+                final int slot = clockHand;
+                clockHand = next(clockHand);
+                if (!isUsed(slot)) {
+                    continue;
+                }
+                final int offset = slot * recordSize;
+                if (records.get(offset + REFERENCED) == TRUE) {
+                    records.put(offset + REFERENCED, FALSE);
+                    continue;
+                }
+                remove(slot);
+                evictions.increment();
+                return;
+            }
+        }
+
+        /**
+         * Remove the record at the slot, shifting back subsequent records of the probe sequence,
+         * so that no tombstones are needed.
+         */
+        private void remove(int slot) {
+            int empty = slot;
+            int current = slot;
+            while (true) {
+                current = next(current);
+                if (!isUsed(current)) {
+                    break;
+                }
+                final int home = home(records.getInt(current * recordSize + HASH));
+                // Records whose home lies cyclically within (empty, current] stay in place
+                final boolean stays = empty <= current
+                        ? empty < home && home <= current
+                        : empty < home || home <= current;
+                if (stays) {
+                    continue;
+                }
+                copy(current, empty);
+                empty = current;
+            }
+            records.put(empty * recordSize + USED, FALSE);
+            --size;
+        }
+
+        private void copy(int fromSlot, int toSlot) {
+            final int from = fromSlot * recordSize;
+            source.clear().position(from).limit(from + recordSize);
+            target.clear().position(toSlot * recordSize);
+            target.put(source);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.poshjosh.ratelimiter.web.core.store;
+
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes bursty and warming up bandwidths into 80 bytes.
+ * <p>
+ * The rate limiter library does not expose the state of its bandwidths, and their serialized
+ * form only holds their configuration. So their fields are read and written reflectively.
+ * If the fields are not found, e.g because the library changed, no bandwidth is supported,
+ * and {@link OffHeapBandwidthsStore} keeps all bandwidths on the heap instead.
+ * </p>
+ */
+final class SmoothBandwidthCodec implements BandwidthCodec {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SmoothBandwidthCodec.class);
+
+    static final SmoothBandwidthCodec INSTANCE = new SmoothBandwidthCodec();
+
+    private static final String PACKAGE = "io.github.poshjosh.ratelimiter.bandwidths.";
+
+    private static final byte BURSTY = 1;
+    private static final byte WARMING_UP = 2;
+
+    // Offsets of the encoded fields
+    private static final int TYPE = 0;
+    private static final int STABLE_INTERVAL_MICROS = 8;
+    private static final int STORED_PERMITS = 16;
+    private static final int MAX_PERMITS = 24;
+    private static final int NEXT_FREE_TICKET_MICROS = 32;
+    private static final int NOW_MICROS = 40;
+    private static final int MAX_BURST_SECONDS = 48;
+    private static final int WARMUP_PERIOD_MICROS = 48;
+    private static final int COLD_FACTOR = 56;
+    private static final int SLOPE = 64;
+    private static final int THRESHOLD_PERMITS = 72;
+
+    private static final int SIZE = 80;
+
+    private final Class<?> burstyType;
+    private final Class<?> warmingUpType;
+
+    private final Field storedPermits;
+    private final Field maxPermits;
+    private final Field stableIntervalMicros;
+    private final Field nextFreeTicketMicros;
+
+    private final Field burstyNowMicros;
+    private final Field maxBurstSeconds;
+
+    private final Field warmingUpNowMicros;
+    private final Field warmupPeriodMicros;
+    private final Field coldFactor;
+    private final Field slope;
+    private final Field thresholdPermits;
+
+    private SmoothBandwidthCodec() {
+        Class<?> bursty = null;
+        Class<?> warmingUp = null;
+        Field [] fields = new Field[11];
+        try {
+            final Class<?> smooth = Class.forName(PACKAGE + "SmoothBandwidth");
+            bursty = Class.forName(PACKAGE + "SmoothBurstyBandwidth");
+            warmingUp = Class.forName(PACKAGE + "SmoothWarmingUpBandwidth");
+            fields = new Field[]{
+                    field(smooth, "storedPermits"), field(smooth, "maxPermits"),
+                    field(smooth, "stableIntervalMicros"), field(smooth, "nextFreeTicketMicros"),
+                    field(bursty, "nowMicros"), field(bursty, "maxBurstSeconds"),
+                    field(warmingUp, "nowMicros"), field(warmingUp, "warmupPeriodMicros"),
+                    field(warmingUp, "coldFactor"), field(warmingUp, "slope"),
+                    field(warmingUp, "thresholdPermits")};
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.warn("Bandwidths will not be stored off-heap, reason: {}", e.toString());
+            bursty = null;
+            warmingUp = null;
+        }
+        this.burstyType = bursty;
+        this.warmingUpType = warmingUp;
+        this.storedPermits = fields[0];
+        this.maxPermits = fields[1];
+        this.stableIntervalMicros = fields[2];
+        this.nextFreeTicketMicros = fields[3];
+        this.burstyNowMicros = fields[4];
+        this.maxBurstSeconds = fields[5];
+        this.warmingUpNowMicros = fields[6];
+        this.warmupPeriodMicros = fields[7];
+        this.coldFactor = fields[8];
+        this.slope = fields[9];
+        this.thresholdPermits = fields[10];
+    }
+
+    private static Field field(Class<?> type, String name) throws NoSuchFieldException {
+        final Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    @Override
+    public int size() {
+        return SIZE;
+    }
+
+    @Override
+    public boolean supports(Bandwidth bandwidth) {
+        if (bandwidth == null || burstyType == null) {
+            return false;
+        }
+        return bandwidth.getClass() == burstyType || bandwidth.getClass() == warmingUpType;
+    }
+
+    @Override
+    public void encode(Bandwidth bandwidth, ByteBuffer buffer, int offset) {
+        try {
+            buffer.putDouble(offset + STABLE_INTERVAL_MICROS, stableIntervalMicros.getDouble(bandwidth));
+            buffer.putDouble(offset + STORED_PERMITS, storedPermits.getDouble(bandwidth));
+            buffer.putDouble(offset + MAX_PERMITS, maxPermits.getDouble(bandwidth));
+            buffer.putLong(offset + NEXT_FREE_TICKET_MICROS, nextFreeTicketMicros.getLong(bandwidth));
+            if (bandwidth.getClass() == burstyType) {
+                buffer.put(offset + TYPE, BURSTY);
+                buffer.putLong(offset + NOW_MICROS, burstyNowMicros.getLong(bandwidth));
+                buffer.putDouble(offset + MAX_BURST_SECONDS, maxBurstSeconds.getDouble(bandwidth));
+            } else if (bandwidth.getClass() == warmingUpType) {
+                buffer.put(offset + TYPE, WARMING_UP);
+                buffer.putLong(offset + NOW_MICROS, warmingUpNowMicros.getLong(bandwidth));
+                buffer.putLong(offset + WARMUP_PERIOD_MICROS, warmupPeriodMicros.getLong(bandwidth));
+                buffer.putDouble(offset + COLD_FACTOR, coldFactor.getDouble(bandwidth));
+                buffer.putDouble(offset + SLOPE, slope.getDouble(bandwidth));
+                buffer.putDouble(offset + THRESHOLD_PERMITS, thresholdPermits.getDouble(bandwidth));
+            } else {
+                throw new IllegalArgumentException("Unsupported bandwidth: " + bandwidth);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Bandwidth decode(ByteBuffer buffer, int offset) {
+        final double interval = buffer.getDouble(offset + STABLE_INTERVAL_MICROS);
+        final double permitsPerSecond = TimeUnit.SECONDS.toMicros(1L) / interval;
+        final long nowMicros = buffer.getLong(offset + NOW_MICROS);
+        final Bandwidth bandwidth;
+        try {
+            switch (buffer.get(offset + TYPE)) {
+                case BURSTY:
+                    bandwidth = Bandwidths.bursty(permitsPerSecond, nowMicros,
+                            buffer.getDouble(offset + MAX_BURST_SECONDS));
+                    break;
+                case WARMING_UP:
+                    bandwidth = Bandwidths.warmingUp(permitsPerSecond, nowMicros,
+                            buffer.getLong(offset + WARMUP_PERIOD_MICROS), TimeUnit.MICROSECONDS,
+                            buffer.getDouble(offset + COLD_FACTOR));
+                    slope.setDouble(bandwidth, buffer.getDouble(offset + SLOPE));
+                    thresholdPermits.setDouble(bandwidth, buffer.getDouble(offset + THRESHOLD_PERMITS));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown bandwidth type: " + buffer.get(offset + TYPE));
+            }
+            stableIntervalMicros.setDouble(bandwidth, interval);
+            storedPermits.setDouble(bandwidth, buffer.getDouble(offset + STORED_PERMITS));
+            maxPermits.setDouble(bandwidth, buffer.getDouble(offset + MAX_PERMITS));
+            nextFreeTicketMicros.setLong(bandwidth, buffer.getLong(offset + NEXT_FREE_TICKET_MICROS));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return bandwidth;
+    }
+
+    @Override
+    public void shift(ByteBuffer buffer, int offset, long micros) {
+        buffer.putLong(offset + NEXT_FREE_TICKET_MICROS, buffer.getLong(offset + NEXT_FREE_TICKET_MICROS) + micros);
+        buffer.putLong(offset + NOW_MICROS, buffer.getLong(offset + NOW_MICROS) + micros);
+    }
+}
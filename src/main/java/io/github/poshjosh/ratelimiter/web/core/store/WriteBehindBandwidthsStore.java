@@ -0,0 +1,373 @@
+package io.github.poshjosh.ratelimiter.web.core.store;
+
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.store.BandwidthsStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link BandwidthsStore} which serves reads and updates from a local copy, and writes
+ * updated bandwidths to a backing store in the background.
+ * <p>
+ * The local copy is authoritative. A key missing from it is read through from the backing
+ * store, once. Each update marks its key dirty. Dirty keys are written to the backing store by
+ * a single daemon thread, in batches of at most {@code maxBatchSize} keys, at most
+ * {@code maxDelay} after the first key of the batch was taken. Repeated updates of a key before
+ * it is written are coalesced into a single write, of the latest bandwidth.
+ * </p>
+ * <p>
+ * Each update is copied when made (bursty and warming up bandwidths, via
+ * {@link BandwidthCodec#ofDefaults()}), so that the backing store is never handed a bandwidth
+ * which requests are updating. Other bandwidths are written as is.
+ * </p>
+ * <p>
+ * The local copy holds at most about {@code maxKeys} keys. Beyond that, keys already written
+ * to the backing store are evicted, in turn, and read through again if next used. Dirty keys
+ * are never evicted.
+ * </p>
+ * <p>
+ * When {@code queueCapacity} keys are already waiting to be written, an update waits up to
+ * {@code maxDelay} for space, then writes to the backing store itself. Updates are thus slowed
+ * down to the rate of the backing store, rather than lost.
+ * </p>
+ * <p>
+ * Other nodes sharing the backing store see updates from this node after up to about
+ * {@code maxDelay} plus the time taken to write a batch. Call {@link #close()} on shutdown,
+ * to write any pending updates.
+ * </p>
+ * <pre>
+ * WebRateLimiterContext context = WebRateLimiterContext.builder()
+ *         .resourceInfoProvider(resourceInfoProvider)
+ *         .store(WriteBehindBandwidthsStore.of(remoteStore))
+ *         .build();
+ * </pre>
+ * @param <K> The type of the keys
+ */
+public final class WriteBehindBandwidthsStore<K> implements BandwidthsStore<K>, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindBandwidthsStore.class);
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ofMillis(100);
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 16_384;
+
+    public static final int DEFAULT_MAX_KEYS = 100_000;
+
+    public static <K> WriteBehindBandwidthsStore<K> of(BandwidthsStore<K> backingStore) {
+        return new WriteBehindBandwidthsStore<>(backingStore,
+                DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_KEYS);
+    }
+
+    private final BandwidthsStore<K> backingStore;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final int maxKeys;
+    private final BandwidthCodec codec;
+
+    private final Map<K, Bandwidth> local;
+    /** The copy of the latest update of each dirty key, see {@link #copyOf(Bandwidth)} */
+    private final Map<K, Object> dirty;
+    private final BlockingQueue<K> queue;
+
+    private final ReentrantLock writeLock;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // Guarded by writeLock
+    private Iterator<K> evictionHand;
+
+    private final LongAdder batchesWritten;
+    private final LongAdder keysWritten;
+    private final LongAdder writesThrough;
+    private final LongAdder keysEvicted;
+
+    /**
+     * @param backingStore The store to write updated bandwidths to
+     * @param maxBatchSize The maximum number of keys written per batch
+     * @param maxDelay The maximum time to wait for a batch to fill up, before writing it
+     * @param queueCapacity The maximum number of keys waiting to be written
+     */
+    public WriteBehindBandwidthsStore(BandwidthsStore<K> backingStore,
+            int maxBatchSize, Duration maxDelay, int queueCapacity) {
+        this(backingStore, maxBatchSize, maxDelay, queueCapacity, DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * @param backingStore The store to write updated bandwidths to
+     * @param maxBatchSize The maximum number of keys written per batch
+     * @param maxDelay The maximum time to wait for a batch to fill up, before writing it
+     * @param queueCapacity The maximum number of keys waiting to be written
+     * @param maxKeys The number of keys in the local copy, beyond which written keys are evicted
+     */
+    public WriteBehindBandwidthsStore(BandwidthsStore<K> backingStore,
+            int maxBatchSize, Duration maxDelay, int queueCapacity, int maxKeys) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be positive, found: " + maxBatchSize);
+        }
+        if (maxDelay.isNegative() || maxDelay.isZero()) {
+            throw new IllegalArgumentException("Max delay must be positive, found: " + maxDelay);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive, found: " + queueCapacity);
+        }
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("Max keys must be positive, found: " + maxKeys);
+        }
+        this.backingStore = Objects.requireNonNull(backingStore);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxKeys = maxKeys;
+        this.codec = BandwidthCodec.ofDefaults();
+        this.local = new ConcurrentHashMap<>();
+        this.dirty = new ConcurrentHashMap<>();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchesWritten = new LongAdder();
+        this.keysWritten = new LongAdder();
+        this.writesThrough = new LongAdder();
+        this.keysEvicted = new LongAdder();
+        this.writeLock = new ReentrantLock();
+        this.writer = new Thread(this::writeBatchesUntilClosed, "rate-limiter-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public Bandwidth get(K key) {
+        final Bandwidth bandwidth = local.get(key);
+        if (bandwidth != null) {
+            return bandwidth;
+        }
+        // A key evicted while being updated is yet to be written; its latest update is pending
+        final Object pending = dirty.get(key);
+        final Bandwidth stored = pending != null ? toBandwidth(pending) : backingStore.get(key);
+        if (stored == null) {
+            return null;
+        }
+        final Bandwidth existing = local.putIfAbsent(key, stored);
+        if (existing != null) {
+            return existing;
+        }
+        evictIfFull();
+        return stored;
+    }
+
+    @Override
+    public void put(K key, Bandwidth bandwidth) {
+        // Mark the key dirty first, so that it is not evicted
+        final boolean queued = dirty.put(key, copyOf(Objects.requireNonNull(bandwidth))) != null;
+        if (local.put(key, bandwidth) == null) {
+            evictIfFull();
+        }
+        if (queued) {
+            return; // Already waiting to be written; the latest bandwidth will be written
+        }
+        if (closed || !offer(key)) {
+            writeIfDirty(key);
+            writesThrough.increment();
+        }
+    }
+
+    private boolean offer(K key) {
+        if (queue.offer(key)) {
+            return true;
+        }
+        try {
+            return queue.offer(key, maxDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Write all pending updates to the backing store, on the calling thread.
+     */
+    public void flush() {
+        for (K key : dirty.keySet()) {
+            writeIfDirty(key);
+        }
+        // Wait for any write in progress on the background writer
+        writeLock.lock();
+        writeLock.unlock();
+    }
+
+    /**
+     * Write all pending updates to the backing store. Thereafter, updates are written
+     * through to the backing store, and the background writer stops.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flush();
+    }
+
+    private void writeBatchesUntilClosed() {
+        final List<K> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed) {
+                final K first = queue.poll(maxDelayNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                final long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize && !closed) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    final long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    final K next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOG.error("Write-behind writer stopped. Updates will be written through.", e);
+            closed = true;
+        }
+    }
+
+    private void write(List<K> batch) {
+        boolean written = false;
+        for (K key : batch) {
+            written |= writeIfDirty(key);
+        }
+        if (written) {
+            batchesWritten.increment();
+        }
+    }
+
+    /**
+     * Writes are serialized, so that an older bandwidth never overwrites a newer one.
+     * @param key The key whose bandwidth is to be written, if it is still dirty
+     * @return true if the key was written, otherwise false
+     */
+    private boolean writeIfDirty(K key) {
+        writeLock.lock();
+        try {
+            // Clear the mark first, so that an update made while writing is queued again
+            final Object pending = dirty.remove(key);
+            if (pending == null) {
+                return false;
+            }
+            try {
+                backingStore.put(key, toBandwidth(pending));
+                keysWritten.increment();
+                return true;
+            } catch (RuntimeException e) {
+                if (dirty.putIfAbsent(key, pending) == null && !queue.offer(key)) {
+                    dirty.remove(key, pending);
+                    LOG.warn("Failed to write bandwidth for key: {}, and queue is full; dropped "
+                            + "until the key is next updated. Reason: {}", key, e.toString());
+                } else {
+                    LOG.warn("Failed to write bandwidth for key: {}, will retry. Reason: {}", key, e.toString());
+                }
+                return false;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param bandwidth The bandwidth to copy
+     * @return An encoded copy of the bandwidth, or the bandwidth itself if it cannot be encoded
+     */
+    private Object copyOf(Bandwidth bandwidth) {
+        if (!codec.supports(bandwidth)) {
+            return bandwidth;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(codec.size());
+        codec.encode(bandwidth, buffer, 0);
+        return buffer;
+    }
+
+    private Bandwidth toBandwidth(Object copy) {
+        return copy instanceof ByteBuffer ? codec.decode((ByteBuffer) copy, 0) : (Bandwidth) copy;
+    }
+
+    /**
+     * Evict written keys, in turn, until the local copy is back to {@code maxKeys}. Skipped if
+     * a key is being written, so that a key is not evicted before its latest update is written.
+     */
+    private void evictIfFull() {
+        if (local.size() <= maxKeys || !writeLock.tryLock()) {
+            return;
+        }
+        try {
+            Iterator<K> hand = evictionHand;
+            int remaining = local.size();
+            while (local.size() > maxKeys && remaining-- > 0) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = local.keySet().iterator();
+                    if (!hand.hasNext()) {
+                        break;
+                    }
+                }
+                final K key = hand.next();
+                final Bandwidth bandwidth = local.get(key);
+                if (bandwidth != null && !dirty.containsKey(key) && local.remove(key, bandwidth)) {
+                    keysEvicted.increment();
+                }
+            }
+            evictionHand = hand;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** @return The number of keys waiting to be written to the backing store */
+    public int getPendingCount() {
+        return dirty.size();
+    }
+
+    /** @return The number of batches written to the backing store */
+    public long getBatchesWritten() {
+        return batchesWritten.sum();
+    }
+
+    /** @return The number of keys written to the backing store */
+    public long getKeysWritten() {
+        return keysWritten.sum();
+    }
+
+    /** @return The number of updates written through to the backing store, because the queue was full */
+    public long getWritesThrough() {
+        return writesThrough.sum();
+    }
+
+    /** @return The number of keys evicted from the local copy, to stay within the maximum */
+    public long getKeysEvicted() {
+        return keysEvicted.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindBandwidthsStore{pending=" + getPendingCount()
+                + ", keysWritten=" + getKeysWritten() + ", writesThrough=" + getWritesThrough()
+                + ", backingStore=" + backingStore + '}';
+    }
+}
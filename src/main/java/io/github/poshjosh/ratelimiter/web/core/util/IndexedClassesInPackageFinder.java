@@ -0,0 +1,151 @@
+package io.github.poshjosh.ratelimiter.web.core.util;
+
+import io.github.poshjosh.ratelimiter.util.ClassesInPackageFinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Finds classes in packages by looking them up in an index of rate limited classes, rather than
+ * by scanning the classpath. Lookups thus cost in proportion to the number of classes found,
+ * rather than to the size of the classpath.
+ * <p>
+ * The index is read from every {@value #INDEX_LOCATION} on the classpath, as written at compile
+ * time by the annotation processor of module {@code rate-limiter-web-core-annotation-processor}.
+ * Packages without any indexed class are scanned, as they may belong to jars built without the
+ * processor. Un-indexed classes of a package which has indexed classes are however not found,
+ * so every jar containing rate limited classes should be built with the processor. The index is
+ * thus only used when enabled, see {@link #ofDefaults()}.
+ * </p>
+ */
+public final class IndexedClassesInPackageFinder implements ClassesInPackageFinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexedClassesInPackageFinder.class);
+
+    public static final String INDEX_LOCATION = "META-INF/rate-limiter/rate-limited-classes";
+
+    /** When {@code true}, {@link #ofDefaults()} reads the index, if present. */
+    public static final String USE_INDEX_PROPERTY = "rate-limiter.index.enabled";
+
+    /**
+     * @return A finder reading the index on the classpath of the context class loader, if enabled
+     * via system property {@value #USE_INDEX_PROPERTY} and present, otherwise a finder scanning
+     * the classpath.
+     */
+    public static ClassesInPackageFinder ofDefaults() {
+        if (!Boolean.getBoolean(USE_INDEX_PROPERTY)) {
+            return ClassesInPackageFinder.ofDefaults();
+        }
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return of(classLoader == null ? IndexedClassesInPackageFinder.class.getClassLoader() : classLoader)
+                .orElseGet(ClassesInPackageFinder::ofDefaults);
+    }
+
+    /**
+     * @param classLoader The class loader from which to read the index, and load the classes
+     * @return A finder reading the index, and scanning packages not indexed, or empty if no
+     * index is found
+     */
+    public static Optional<ClassesInPackageFinder> of(ClassLoader classLoader) {
+        return of(classLoader, ClassesInPackageFinder.ofDefaults());
+    }
+
+    /**
+     * @param classLoader The class loader from which to read the index, and load the classes
+     * @param fallback For finding the classes of packages without any indexed class
+     * @return A finder reading the index, or empty if no index is found
+     */
+    public static Optional<ClassesInPackageFinder> of(
+            ClassLoader classLoader, ClassesInPackageFinder fallback) {
+        Objects.requireNonNull(fallback);
+        final NavigableSet<String> classNames = new TreeSet<>();
+        try {
+            final Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION);
+            if (!urls.hasMoreElements()) {
+                return Optional.empty();
+            }
+            while (urls.hasMoreElements()) {
+                read(urls.nextElement(), classNames);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + INDEX_LOCATION, e);
+        }
+        LOG.debug("Indexed rate limited classes: {}", classNames.size());
+        return Optional.of(new IndexedClassesInPackageFinder(classLoader, classNames, fallback));
+    }
+
+    private static void read(URL url, Set<String> classNames) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String name = line.trim();
+                if (!name.isEmpty() && !name.startsWith("#")) {
+                    classNames.add(name);
+                }
+            }
+        }
+    }
+
+    private final ClassLoader classLoader;
+    private final NavigableSet<String> classNames;
+    private final ClassesInPackageFinder fallback;
+
+    private IndexedClassesInPackageFinder(ClassLoader classLoader, NavigableSet<String> classNames,
+            ClassesInPackageFinder fallback) {
+        this.classLoader = Objects.requireNonNull(classLoader);
+        this.classNames = Collections.unmodifiableNavigableSet(classNames);
+        this.fallback = Objects.requireNonNull(fallback);
+    }
+
+    /**
+     * @param packageName The package whose classes, including those of sub-packages, are returned
+     * @param classFilter Only classes accepted by this filter are returned
+     * @return The indexed classes of the package, accepted by the filter, or if none of its
+     * classes is indexed, the classes found by the fallback
+     */
+    @Override
+    public List<Class<?>> findClasses(String packageName, ClassFilter classFilter) {
+        // All names prefixed by the package and a '.' ('/' follows '.')
+        final Set<String> names = packageName.isEmpty() ?
+                classNames : classNames.subSet(packageName + '.', true, packageName + '/', false);
+        if (names.isEmpty()) {
+            LOG.debug("No indexed classes in package: {}, scanning it", packageName);
+            return fallback.findClasses(packageName, classFilter);
+        }
+        final List<Class<?>> result = new ArrayList<>(names.size());
+        for (String name : names) {
+            final Class<?> clazz = load(name);
+            if (clazz != null && classFilter.test(clazz)) {
+                result.add(clazz);
+            }
+        }
+        return result;
+    }
+
+    private Class<?> load(String name) {
+        try {
+            return Class.forName(name, false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOG.warn("Indexed class could not be loaded: {}, {}", name, e.toString());
+            return null;
+        }
+    }
+
+    /** @return The number of classes indexed */
+    public int size() {
+        return classNames.size();
+    }
+
+    @Override
+    public String toString() {
+        return "IndexedClassesInPackageFinder{classes=" + classNames.size() + '}';
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.poshjosh.ratelimiter.web.core.util;
+
+import io.github.poshjosh.ratelimiter.util.RateLimitProperties;
+
+import java.time.Duration;
+
+/**
+ * Rate limit properties, with additional properties specific to web applications.
+ * <p>Implement this interface, rather than {@link RateLimitProperties}, to configure web
+ * specific features. All additional properties have defaults.</p>
+ */
+public interface WebRateLimitProperties extends RateLimitProperties {
+
+    /**
+     * The maximum number of normalized request paths to cache.
+     * <p>Normalized paths are keyed by the raw request URI, context path, servlet path and
+     * character encoding. Suited for applications where most requests hit a small set of
+     * distinct URIs. A URI is only cached the second time it is seen, so that URIs which are
+     * seen once e.g {@code /users/{id}} do not displace frequently used ones.</p>
+     * @return The maximum number of paths to cache, or zero (the default) to disable caching.
+     */
+    default int getPathCacheSize() {
+        return 0;
+    }
+
+    /**
+     * The maximum number of requests to which no rate applies, to cache.
+     * <p>Requests are keyed by http method, raw request URI, context path, servlet path and
+     * character encoding. A request is cached the second time it is seen, after which it skips
+     * rate limiting with a single lookup. When full, least recently used requests are evicted.
+     * Suited for applications where most requests e.g static assets and health checks, are not
+     * rate limited. Only used while every rate is matched by http method and path alone i.e no rate
+     * has a condition and no matcher is registered via a {@code RateLimiterConfigurer}.</p>
+     * @return The maximum number of requests to cache, or zero (the default) to disable caching.
+     */
+    default int getNoMatchCacheSize() {
+        return 0;
+    }
+
+    /**
+     * The maximum number of rate limiter keys to keep alive.
+     * <p>Matchers may return a distinct key per client e.g a session id, each with its own rate
+     * limiter. When set, each rate limiter is kept until it is idle (see
+     * {@link #getRateLimiterIdleTimeout()}), and beyond this number of keys, the least recently
+     * used of a sample of keys is evicted. An evicted key, if used again, starts afresh.</p>
+     * @return The maximum number of keys, or zero (the default) to leave rate limiters to the
+     * rate limiter provider i.e weakly held, by key.
+     */
+    default int getMaxRateLimiterKeys() {
+        return 0;
+    }
+
+    /**
+     * How long a rate limiter may be unused, before it expires. Only applies when
+     * {@link #getMaxRateLimiterKeys()} is set.
+     * <p>A rate limiter whose permits are reserved into the future does not expire until
+     * they are available. A rate limiter is also kept for at least the longest duration of its
+     * rates, the time its bandwidth takes to fully replenish, whatever this timeout.</p>
+     * @return The idle timeout, by default 10 minutes
+     */
+    default Duration getRateLimiterIdleTimeout() {
+        return Duration.ofMinutes(10);
+    }
+
+    /**
+     * The number of threads on which to create matchers, when the registry is built or reloaded.
+     * <p>Creating matchers, e.g resolving the paths of resources and compiling rate conditions,
+     * dominates the build of registries with many resources. Matchers are created on a
+     * fork-join pool of this many threads, which exists only while the registry is built.</p>
+     * @return The number of threads, or a negative number for one thread per available
+     * processor, or zero (the default) to create matchers on the building thread.
+     */
+    default int getBuildParallelism() {
+        return 0;
+    }
+}
@@ -0,0 +1,162 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.RateLimiter;
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.util.Ticker;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.*;
+
+/**
+ * Acquires permits without blocking the calling thread.
+ * <p>
+ * Permits are first tried for immediately, on the calling thread. If they are not available,
+ * a retry is scheduled for when the limiter's bandwidth estimates they will be, and so on until
+ * the permits are acquired or the timeout elapses. Each attempt is made with a zero timeout, so
+ * the scheduler thread is never parked by a rate limiter.
+ * </p>
+ * <p>
+ * In this version the shared scheduler runs on a virtual thread, and state is updated with
+ * {@link VarHandle} compare-and-set rather than monitors.
+ * </p>
+ */
+final class AsyncAcquirer {
+
+    /** Lower bound of the delay between retries, so that contended limiters are not spun on. */
+    private static final long MIN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Upper bound of the delay between retries, when the wait length could not be estimated. */
+    private static final long MAX_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final VarHandle SHARED_SCHEDULER;
+    private static final VarHandle SCHEDULED;
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            SHARED_SCHEDULER = lookup.findStaticVarHandle(
+                    AsyncAcquirer.class, "sharedScheduler", ScheduledExecutorService.class);
+            SCHEDULED = lookup.findVarHandle(Waiter.class, "scheduled", Object.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Marks a waiter as cancelled, so that it schedules no further retries. */
+    private static final Object CANCELLED = new Object();
+
+    private static volatile ScheduledExecutorService sharedScheduler;
+
+    private AsyncAcquirer() { }
+
+    /**
+     * @return A single virtual thread scheduler, shared by all asynchronous acquisitions
+     * for which no scheduler was specified.
+     */
+    static ScheduledExecutorService sharedScheduler() {
+        final ScheduledExecutorService existing = sharedScheduler;
+        if (existing != null) {
+            return existing;
+        }
+        final ScheduledThreadPoolExecutor created = new ScheduledThreadPoolExecutor(1,
+                Thread.ofVirtual().name("rate-limiter-async-acquirer").factory());
+        created.setRemoveOnCancelPolicy(true);
+        final ScheduledExecutorService witness = (ScheduledExecutorService)
+                SHARED_SCHEDULER.compareAndExchange((ScheduledExecutorService)null, created);
+        if (witness == null) {
+            return created;
+        }
+        // Lost the race. No thread was started, so there is nothing to wait for.
+        created.shutdown();
+        return witness;
+    }
+
+    /**
+     * @param rateLimiter The rate limiter to acquire permits from
+     * @param permits The number of permits to acquire
+     * @param timeout The maximum time to wait for the permits. Zero or negative means no wait.
+     * @param unit The time unit of the timeout argument
+     * @param scheduler The scheduler on which to retry
+     * @param ticker The ticker of the rate limiter's bandwidth, used to estimate when the
+     *               permits will be available. If null, retries are made at short intervals.
+     * @return A stage which completes with true when the permits are acquired, or with false
+     * if the permits could not be acquired within the timeout. Cancelling the stage's
+     * {@link CompletionStage#toCompletableFuture() future} stops further retries.
+     */
+    static CompletableFuture<Boolean> tryAcquire(RateLimiter rateLimiter, int permits,
+            long timeout, TimeUnit unit, ScheduledExecutorService scheduler, Ticker ticker) {
+        final Waiter waiter = new Waiter(rateLimiter, permits,
+                System.nanoTime() + Math.max(0, unit.toNanos(timeout)),
+                Objects.requireNonNull(scheduler), ticker);
+        waiter.run();
+        return waiter;
+    }
+
+    /**
+     * @param rateLimiter The rate limiter whose permits are waited for
+     * @param ticker The ticker of the rate limiter's bandwidth, or null
+     * @param remaining The remaining time to wait, in nanoseconds
+     * @return The time to wait, in nanoseconds, before trying for the permits again
+     */
+    static long estimateDelayNanos(RateLimiter rateLimiter, Ticker ticker, long remaining) {
+        final Bandwidth bandwidth = ticker == null ? null : rateLimiter.getBandwidth();
+        if (bandwidth == null) {
+            return Math.max(MIN_DELAY_NANOS, Math.min(remaining, MAX_POLL_NANOS));
+        }
+        final long nowMicros = ticker.elapsedMicros();
+        final long waitMicros = bandwidth.queryEarliestAvailable(nowMicros) - nowMicros;
+        return Math.max(MIN_DELAY_NANOS, TimeUnit.MICROSECONDS.toNanos(waitMicros));
+    }
+
+    private static final class Waiter extends CompletableFuture<Boolean> implements Runnable {
+        private final RateLimiter rateLimiter;
+        private final int permits;
+        private final long deadlineNanos;
+        private final ScheduledExecutorService scheduler;
+        private final Ticker ticker;
+        /** The pending retry, if any, or CANCELLED. Accessed via SCHEDULED. */
+        private volatile Object scheduled;
+        private Waiter(RateLimiter rateLimiter, int permits, long deadlineNanos,
+                ScheduledExecutorService scheduler, Ticker ticker) {
+            this.rateLimiter = Objects.requireNonNull(rateLimiter);
+            this.permits = permits;
+            this.deadlineNanos = deadlineNanos;
+            this.scheduler = scheduler;
+            this.ticker = ticker;
+        }
+        @Override public void run() {
+            final Object previous = scheduled;
+            if (previous == CANCELLED || isDone()) {
+                return;
+            }
+            try {
+                if (rateLimiter.tryAcquire(permits, 0, TimeUnit.NANOSECONDS)) {
+                    complete(Boolean.TRUE);
+                    return;
+                }
+                final long remaining = deadlineNanos - System.nanoTime();
+                final long delay = estimateDelayNanos(rateLimiter, ticker, remaining);
+                if (remaining <= 0 || delay > remaining) {
+                    complete(Boolean.FALSE);
+                    return;
+                }
+                final ScheduledFuture<?> next = scheduler.schedule(this, delay, TimeUnit.NANOSECONDS);
+                if (!SCHEDULED.compareAndSet(this, previous, next)) {
+                    // Cancelled while scheduling
+                    next.cancel(false);
+                }
+            } catch (RuntimeException e) {
+                completeExceptionally(e);
+            }
+        }
+        @Override public boolean cancel(boolean mayInterruptIfRunning) {
+            final boolean cancelled = super.cancel(mayInterruptIfRunning);
+            final Object current = SCHEDULED.getAndSet(this, CANCELLED);
+            if (current instanceof ScheduledFuture) {
+                ((ScheduledFuture<?>)current).cancel(false);
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.RateLimiter;
+import io.github.poshjosh.ratelimiter.RateLimiterRegistry;
+import io.github.poshjosh.ratelimiter.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Acquires permits, blocking the calling thread for up to the timeout.
+ * <p>
+ * The rate limiters sleep while holding their monitor, which pins a waiting virtual thread
+ * to its carrier thread. This version only ever tries the rate limiters with a zero timeout,
+ * and parks between attempts until the rate limiters' bandwidths estimate that the permits
+ * will be available. A parked virtual thread releases its carrier thread.
+ * </p>
+ */
+final class BlockingAcquirer {
+
+    private BlockingAcquirer() { }
+
+    /**
+     * @param registry The registry of the rate limiters to acquire permits from
+     * @param request The request to acquire permits for
+     * @param permits The number of permits to acquire
+     * @param timeout The maximum time to wait for the permits. Zero or negative means no wait.
+     * @param unit The time unit of the timeout argument
+     * @param ticker The ticker of the rate limiters' bandwidths, or null
+     * @return true if the permits were acquired, otherwise false
+     */
+    static boolean tryAcquire(RateLimiterRegistry<RequestInfo> registry, RequestInfo request,
+            int permits, long timeout, TimeUnit unit, Ticker ticker) {
+        if (timeout <= 0) {
+            return registry.tryAcquire(request, permits, timeout, unit);
+        }
+        final RateLimiter rateLimiter = registry.getRateLimiterOrDefault(request, null);
+        if (rateLimiter == null) {
+            return true;
+        }
+        final long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                if (rateLimiter.tryAcquire(permits, 0, TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+                final long remaining = deadlineNanos - System.nanoTime();
+                final long delay = AsyncAcquirer.estimateDelayNanos(rateLimiter, ticker, remaining);
+                if (remaining <= 0 || delay > remaining) {
+                    return false;
+                }
+                LockSupport.parkNanos(delay);
+                // Like the rate limiters, wait without interruption, but preserve the status
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.RateLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AsyncAcquirerTest {
+
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+
+    AsyncAcquirerTest() {
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @AfterEach
+    void afterEach() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void tryAcquire_givenPermitsAvailable_shouldCompleteOnCallingThread() {
+        RateLimiter rateLimiter = givenRateLimiterAvailableAfterAttempts(1);
+        CompletableFuture<Boolean> result = AsyncAcquirer.tryAcquire(
+                rateLimiter, 1, 1, TimeUnit.SECONDS, scheduler, null);
+        assertTrue(result.isDone());
+        assertTrue(result.join());
+    }
+
+    @Test
+    void tryAcquire_givenPermitsAvailableLater_shouldCompleteWithTrue() throws Exception {
+        RateLimiter rateLimiter = givenRateLimiterAvailableAfterAttempts(3);
+        CompletableFuture<Boolean> result = AsyncAcquirer.tryAcquire(
+                rateLimiter, 1, 5, TimeUnit.SECONDS, scheduler, null);
+        assertFalse(result.isDone());
+        assertTrue(result.get(5, TimeUnit.SECONDS));
+        verify(rateLimiter, times(3)).tryAcquire(eq(1), eq(0L), any(TimeUnit.class));
+    }
+
+    @Test
+    void tryAcquire_givenPermitsNeverAvailable_shouldCompleteWithFalseAfterTimeout() throws Exception {
+        RateLimiter rateLimiter = givenRateLimiterAvailableAfterAttempts(Integer.MAX_VALUE);
+        final long start = System.nanoTime();
+        CompletableFuture<Boolean> result = AsyncAcquirer.tryAcquire(
+                rateLimiter, 1, 100, TimeUnit.MILLISECONDS, scheduler, null);
+        assertFalse(result.get(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void tryAcquire_givenZeroTimeout_shouldNotSchedule() {
+        RateLimiter rateLimiter = givenRateLimiterAvailableAfterAttempts(2);
+        CompletableFuture<Boolean> result = AsyncAcquirer.tryAcquire(
+                rateLimiter, 1, 0, TimeUnit.SECONDS, scheduler, null);
+        assertTrue(result.isDone());
+        assertFalse(result.join());
+    }
+
+    @Test
+    void tryAcquire_whenCancelled_shouldStopRetrying() throws Exception {
+        RateLimiter rateLimiter = givenRateLimiterAvailableAfterAttempts(Integer.MAX_VALUE);
+        CompletableFuture<Boolean> result = AsyncAcquirer.tryAcquire(
+                rateLimiter, 1, 10, TimeUnit.SECONDS, scheduler, null);
+        assertTrue(result.cancel(false));
+        Thread.sleep(150);
+        verify(rateLimiter, atMost(2)).tryAcquire(anyInt(), anyLong(), any(TimeUnit.class));
+        assertTrue(scheduler.getQueue().isEmpty());
+    }
+
+    @Test
+    void tryAcquire_givenRateLimiterThrows_shouldCompleteExceptionally() {
+        RateLimiter rateLimiter = mock(RateLimiter.class);
+        when(rateLimiter.tryAcquire(anyInt(), anyLong(), any(TimeUnit.class)))
+                .thenThrow(new IllegalStateException());
+        CompletableFuture<Boolean> result = AsyncAcquirer.tryAcquire(
+                rateLimiter, 1, 1, TimeUnit.SECONDS, scheduler, null);
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    private RateLimiter givenRateLimiterAvailableAfterAttempts(int attempts) {
+        final AtomicInteger count = new AtomicInteger();
+        RateLimiter rateLimiter = mock(RateLimiter.class);
+        when(rateLimiter.tryAcquire(anyInt(), anyLong(), any(TimeUnit.class)))
+                .then(invocation -> count.incrementAndGet() >= attempts);
+        return rateLimiter;
+    }
+}
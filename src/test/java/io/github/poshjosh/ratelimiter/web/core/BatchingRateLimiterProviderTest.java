@@ -0,0 +1,71 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.RateLimiter;
+import io.github.poshjosh.ratelimiter.RateLimiterProvider;
+import io.github.poshjosh.ratelimiter.model.Rate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BatchingRateLimiterProviderTest {
+
+    private RateLimiterProvider delegate;
+    private RateLimiter rateLimiter;
+    private BatchingRateLimiterProvider provider;
+
+    @BeforeEach
+    void beforeEach() {
+        final AtomicInteger available = new AtomicInteger(2);
+        rateLimiter = mock(RateLimiter.class);
+        when(rateLimiter.tryAcquire(anyInt(), anyLong(), any(TimeUnit.class)))
+                .then(invocation -> available.addAndGet(-(int)invocation.getArgument(0)) >= 0);
+        delegate = mock(RateLimiterProvider.class);
+        when(delegate.getRateLimiter(anyString(), nullable(Rate.class)))
+                .thenReturn(rateLimiter);
+        provider = new BatchingRateLimiterProvider(delegate);
+    }
+
+    @Test
+    void givenNoBatch_shouldPassThrough() {
+        assertSame(rateLimiter, provider.getRateLimiter("id", (Rate)null));
+    }
+
+    @Test
+    void givenBatch_shouldLookupEachRateIdOnce() {
+        provider.inBatch(() -> {
+            for (int i = 0; i < 5; i++) {
+                provider.getRateLimiter("id", (Rate)null).tryAcquire(1);
+            }
+            return null;
+        });
+        verify(delegate, times(1)).getRateLimiter(eq("id"), nullable(Rate.class));
+    }
+
+    @Test
+    void givenBatch_afterDenial_shouldNotConsultRateLimiterAgain() {
+        final int granted = provider.inBatch(() -> {
+            int count = 0;
+            for (int i = 0; i < 10; i++) {
+                if (provider.getRateLimiter("id", (Rate)null).tryAcquire(1)) {
+                    ++count;
+                }
+            }
+            return count;
+        });
+        assertEquals(2, granted);
+        verify(rateLimiter, times(3)).tryAcquire(anyInt(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    void givenNewBatch_shouldConsultRateLimiterAgain() {
+        provider.inBatch(() -> provider.getRateLimiter("id", (Rate)null).tryAcquire(5));
+        provider.inBatch(() -> provider.getRateLimiter("id", (Rate)null).tryAcquire(1));
+        verify(rateLimiter, times(2)).tryAcquire(anyInt(), anyLong(), any(TimeUnit.class));
+    }
+}
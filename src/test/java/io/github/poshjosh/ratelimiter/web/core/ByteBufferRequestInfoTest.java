@@ -0,0 +1,100 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteBufferRequestInfoTest {
+
+    private static final String HEAD = "GET /users/1?name=a+b&id=2&id=3&x%20y=z HTTP/1.1\r\n"
+            + "Host: example.com\r\n"
+            + "X-Api-Key:  key-1 \r\n"
+            + "x-api-key: key-2\r\n"
+            + "Cookie: session=abc; theme=\"dark\"\r\n"
+            + "Accept-Language: fr;q=0.5, en-US, de;q=0.8\r\n"
+            + "Content-Type: text/plain; charset=UTF-8\r\n"
+            + "Authorization: Bearer token\r\n"
+            + "\r\n"
+            + "body which is not indexed: true\r\n";
+
+    @Test
+    void shouldParseRequestLine() {
+        RequestInfo request = givenRequest(HEAD);
+        assertEquals("GET", request.getMethod());
+        assertEquals("/users/1", request.getRequestUri());
+        assertEquals("", request.getContextPath());
+        assertEquals("", request.getServletPath());
+    }
+
+    @Test
+    void getHeaders_shouldMatchNamesIgnoringCaseAndTrimValues() {
+        RequestInfo request = givenRequest(HEAD);
+        assertEquals(Arrays.asList("key-1", "key-2"), request.getHeaders("X-API-KEY"));
+        assertNull(request.getHeaders("body which is not indexed"));
+        assertNull(request.getHeaders("X-Missing"));
+        assertEquals(7, ((ByteBufferRequestInfo)request).getHeaderCount());
+    }
+
+    @Test
+    void getParameters_shouldDecodeQueryString() {
+        RequestInfo request = givenRequest(HEAD);
+        assertEquals(Collections.singletonList("a b"), request.getParameters("name"));
+        assertEquals(Arrays.asList("2", "3"), request.getParameters("id"));
+        assertEquals(Collections.singletonList("z"), request.getParameters("x y"));
+        assertNull(request.getParameters("missing"));
+    }
+
+    @Test
+    void shouldParseDerivedValues() {
+        RequestInfo request = givenRequest(HEAD);
+        assertEquals(Arrays.asList(RequestInfo.Cookie.of("session", "abc"),
+                RequestInfo.Cookie.of("theme", "dark")), request.getCookies());
+        assertEquals(Arrays.asList(Locale.forLanguageTag("en-US"), Locale.GERMAN, Locale.FRENCH),
+                request.getLocales());
+        assertEquals("UTF-8", request.getCharacterEncoding(null));
+        assertEquals("BEARER", request.getAuthScheme(null));
+    }
+
+    @Test
+    void getRemoteAddr_shouldPreferForwardedHeaders() {
+        assertEquals("10.0.0.1", givenRequest(HEAD).getRemoteAddr(null));
+        assertEquals("203.0.113.7", givenRequest(
+                "GET / HTTP/1.1\nX-Forwarded-For: 203.0.113.7, 10.0.0.2\n\n").getRemoteAddr(null));
+    }
+
+    @Test
+    void givenAbsoluteTargetAndBareLineFeeds_shouldReturnPath() {
+        RequestInfo request = givenRequest("POST http://example.com:8080/a/b?c=d HTTP/1.1\nHost: x\n\n");
+        assertEquals("POST", request.getMethod());
+        assertEquals("/a/b", request.getRequestUri());
+        assertEquals(Collections.singletonList("x"), request.getHeaders("host"));
+        assertEquals("/", givenRequest("GET http://example.com HTTP/1.1\r\n\r\n").getRequestUri());
+    }
+
+    @Test
+    void givenDirectBufferWithPosition_shouldReadFromPositionWithoutMovingIt() {
+        final byte [] bytes = ("ignored" + HEAD).getBytes(StandardCharsets.ISO_8859_1);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip().position("ignored".length());
+        RequestInfo request = RequestInfos.of(buffer, null);
+        assertEquals(Collections.singletonList("example.com"), request.getHeaders("host"));
+        assertEquals("GET", request.getMethod());
+        assertEquals("ignored".length(), buffer.position());
+    }
+
+    @Test
+    void givenInvalidRequestLine_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> givenRequest("GARBAGE\r\n\r\n"));
+        assertThrows(IllegalArgumentException.class, () -> givenRequest(""));
+    }
+
+    private RequestInfo givenRequest(String head) {
+        return RequestInfos.of(ByteBuffer.wrap(head.getBytes(StandardCharsets.ISO_8859_1)), "10.0.0.1");
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CidrTrieTest {
+
+    @Test
+    void ofNullable_givenValidAddresses_shouldParse() {
+        assertEquals(IpAddress.ofNullable("::ffff:192.168.0.1"), IpAddress.ofNullable("192.168.0.1"));
+        assertEquals(IpAddress.ofNullable("0:0:0:0:0:0:0:1"), IpAddress.ofNullable("::1"));
+        assertEquals(IpAddress.ofNullable("fe80::1"), IpAddress.ofNullable("[fe80::1%eth0]"));
+        assertEquals(IpAddress.ofNullable("2001:db8::"), IpAddress.ofNullable("2001:DB8:0:0::0"));
+    }
+
+    @Test
+    void ofNullable_givenInvalidAddresses_shouldReturnNull() {
+        for (String text : Arrays.asList(null, "", "1.2.3", "1.2.3.4.5", "256.0.0.1", "1..2.3",
+                "a.b.c.d", ":::", "1::2::3", "1:2:3:4:5:6:7:8:9", "12345::", "1:2:3:4:5:6:7", "unknown")) {
+            assertNull(IpAddress.ofNullable(text), text);
+        }
+    }
+
+    @Test
+    void contains_givenIpv4Ranges_shouldMatchAddressesInRange() {
+        CidrTrie trie = CidrTrie.of("10.0.0.0/8", "192.168.1.0/24", "172.16.5.4");
+        assertTrue(trie.contains(IpAddress.ofNullable("10.255.0.1")));
+        assertTrue(trie.contains(IpAddress.ofNullable("192.168.1.200")));
+        assertTrue(trie.contains(IpAddress.ofNullable("172.16.5.4")));
+        assertFalse(trie.contains(IpAddress.ofNullable("11.0.0.1")));
+        assertFalse(trie.contains(IpAddress.ofNullable("192.168.2.1")));
+        assertFalse(trie.contains(IpAddress.ofNullable("172.16.5.5")));
+        assertFalse(trie.contains(null));
+    }
+
+    @Test
+    void contains_givenIpv6Ranges_shouldMatchAddressesInRange() {
+        CidrTrie trie = CidrTrie.of("2001:db8::/32", "::1");
+        assertTrue(trie.contains(IpAddress.ofNullable("2001:db8:ffff::1")));
+        assertTrue(trie.contains(IpAddress.ofNullable("::1")));
+        assertFalse(trie.contains(IpAddress.ofNullable("2001:db9::1")));
+        assertFalse(trie.contains(IpAddress.ofNullable("10.0.0.1")));
+    }
+
+    @Test
+    void contains_givenOverlappingRanges_shouldMatchEither() {
+        CidrTrie trie = CidrTrie.of("10.1.2.0/24", "10.0.0.0/8", "10.1.0.0/16");
+        assertTrue(trie.contains(IpAddress.ofNullable("10.1.2.3")));
+        assertTrue(trie.contains(IpAddress.ofNullable("10.200.0.1")));
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    void of_givenInvalidRange_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> CidrTrie.of("10.0.0.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> CidrTrie.of("10.0.0/8"));
+        assertThrows(IllegalArgumentException.class, () -> CidrTrie.of("::/129"));
+    }
+
+    @Test
+    void ofLines_shouldIgnoreCommentsAndBlankLines(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("bots.cidr");
+        Files.write(file, Arrays.asList("# bots", "", "203.0.113.0/24  # crawler", "2001:db8::/48"));
+        CidrTrie trie = CidrTrie.ofLines(file);
+        assertEquals(2, trie.size());
+        assertTrue(trie.contains(IpAddress.ofNullable("203.0.113.9")));
+        assertTrue(trie.contains(IpAddress.ofNullable("2001:db8:0:1::")));
+        assertFalse(trie.contains(IpAddress.ofNullable("203.0.114.9")));
+    }
+
+    @Test
+    void contains_givenManyRandomRanges_shouldAgreeWithLinearScan() {
+        final Random random = new Random(7);
+        final int [] addresses = new int[2000];
+        final int [] lengths = new int[addresses.length];
+        final String [] ranges = new String[addresses.length];
+        for (int i = 0; i < addresses.length; i++) {
+            lengths[i] = 8 + random.nextInt(25);
+            addresses[i] = random.nextInt() & (int)(0xFFFFFFFFL << (32 - lengths[i]));
+            ranges[i] = toText(addresses[i]) + '/' + lengths[i];
+        }
+        final CidrTrie trie = CidrTrie.of(ranges);
+        for (int n = 0; n < 20000; n++) {
+            // Half of the addresses are picked from within a range
+            final int address = n % 2 == 0 ? random.nextInt() :
+                    addresses[random.nextInt(addresses.length)] | random.nextInt(256);
+            boolean expected = false;
+            for (int i = 0; i < addresses.length && !expected; i++) {
+                final int mask = (int)(0xFFFFFFFFL << (32 - lengths[i]));
+                expected = (address & mask) == addresses[i];
+            }
+            assertEquals(expected, trie.contains(IpAddress.ofNullable(toText(address))), toText(address));
+        }
+    }
+
+    private static String toText(int address) {
+        return (address >>> 24) + "." + ((address >>> 16) & 0xFF) + "."
+                + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ClientIpResolverTest {
+
+    private final ClientIpResolver resolver = ClientIpResolver.of("10.0.0.0/8", "2001:db8::/32");
+
+    @Test
+    void resolve_givenUntrustedPeer_shouldIgnoreHeaders() {
+        RequestInfo request = givenRequest("203.0.113.9", ClientIpResolver.X_FORWARDED_FOR, "198.51.100.1");
+        assertEquals("203.0.113.9", resolver.resolve(request, null));
+    }
+
+    @Test
+    void resolve_givenXForwardedFor_shouldReturnRightMostUntrustedAddress() {
+        RequestInfo request = givenRequest("10.0.0.1", ClientIpResolver.X_FORWARDED_FOR,
+                "1.1.1.1, 198.51.100.7, 10.0.0.3");
+        assertEquals("198.51.100.7", resolver.resolve(request, null));
+    }
+
+    @Test
+    void resolve_givenAllHopsTrusted_shouldReturnLeftMostAddress() {
+        RequestInfo request = givenRequest("10.0.0.1", ClientIpResolver.X_FORWARDED_FOR, "10.1.1.1,10.2.2.2");
+        assertEquals("10.1.1.1", resolver.resolve(request, null));
+    }
+
+    @Test
+    void resolve_givenInvalidHop_shouldReturnNearestValidAddress() {
+        RequestInfo request = givenRequest("10.0.0.1", ClientIpResolver.X_FORWARDED_FOR,
+                "198.51.100.7, unknown, 10.0.0.3");
+        assertEquals("10.0.0.3", resolver.resolve(request, null));
+    }
+
+    @Test
+    void resolve_givenForwarded_shouldParseForParameters() {
+        RequestInfo request = givenRequest("10.0.0.1", ClientIpResolver.FORWARDED,
+                "for=1.1.1.1, for=\"[2001:db9::17]:4711\";proto=https, By=10.0.0.5;For=\"10.0.0.4:80\"");
+        assertEquals("2001:db9::17", resolver.resolve(request, null));
+    }
+
+    @Test
+    void resolve_givenMultipleHeaderLines_shouldReadLastLineFirst() {
+        RequestInfo request = givenRequest("10.0.0.1", ClientIpResolver.X_FORWARDED_FOR,
+                "198.51.100.1", "10.0.0.2");
+        assertEquals("198.51.100.1", resolver.resolve(request, null));
+    }
+
+    @Test
+    void resolve_givenNoHeaders_shouldReturnPeer() {
+        RequestInfo request = givenRequest("10.0.0.1", ClientIpResolver.X_FORWARDED_FOR);
+        assertEquals("10.0.0.1", resolver.resolve(request, null));
+    }
+
+    @Test
+    void resolve_givenNoPeer_shouldIgnoreHeaders() {
+        RequestInfo request = givenRequest(null, ClientIpResolver.X_FORWARDED_FOR, "198.51.100.1");
+        when(request.getRemoteAddr(any())).thenReturn("198.51.100.1");
+        assertEquals("0.0.0.0", resolver.resolve(request, "0.0.0.0"));
+        verify(request, never()).getHeaders(any());
+    }
+
+    @Test
+    void getPeerAddress_byDefault_shouldNotUseRemoteAddr() {
+        RequestInfo request = mock(RequestInfo.class);
+        when(request.getRemoteAddr(any())).thenReturn("198.51.100.1");
+        when(request.getPeerAddress(any())).thenCallRealMethod();
+        assertNull(request.getPeerAddress(null));
+        assertEquals("0.0.0.0", resolver.resolve(request, "0.0.0.0"));
+    }
+
+    @Test
+    void of_givenInvalidTrustedProxy_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> ClientIpResolver.of("10.0.0.0/40"));
+    }
+
+    private static RequestInfo givenRequest(String peer, String header, String... lines) {
+        RequestInfo request = mock(RequestInfo.class);
+        when(request.getPeerAddress(any())).thenReturn(peer);
+        when(request.getHeaders(any())).thenReturn(null);
+        when(request.getHeaders(header)).thenReturn(lines.length == 0 ? null : Arrays.asList(lines));
+        return request;
+    }
+}
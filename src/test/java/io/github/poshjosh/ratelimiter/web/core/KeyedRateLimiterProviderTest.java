@@ -0,0 +1,145 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.RateLimiter;
+import io.github.poshjosh.ratelimiter.RateLimiterProvider;
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.model.Rate;
+import io.github.poshjosh.ratelimiter.util.Ticker;
+import io.github.poshjosh.ratelimiter.web.core.metrics.MetricsSnapshot;
+import io.github.poshjosh.ratelimiter.web.core.metrics.RateLimiterMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class KeyedRateLimiterProviderTest {
+
+    private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(10);
+
+    private final AtomicLong nowMicros = new AtomicLong();
+    /** Earliest time permits are available, by key */
+    private final Map<String, Long> availableMicros = new HashMap<>();
+    private RateLimiterProvider delegate;
+    private RateLimiterMetrics metrics;
+
+    @BeforeEach
+    void beforeEach() {
+        delegate = mock(RateLimiterProvider.class);
+        when(delegate.getRateLimiter(anyString(), nullable(Rate.class))).then(invocation -> {
+            final String key = invocation.getArgument(0);
+            final Bandwidth bandwidth = mock(Bandwidth.class);
+            when(bandwidth.queryEarliestAvailable(anyLong()))
+                    .then(i -> availableMicros.getOrDefault(key, 0L));
+            final RateLimiter rateLimiter = mock(RateLimiter.class);
+            when(rateLimiter.getBandwidth()).thenReturn(bandwidth);
+            return rateLimiter;
+        });
+        metrics = new RateLimiterMetrics();
+    }
+
+    @Test
+    void getRateLimiter_givenSameKey_shouldCreateOnce() {
+        KeyedRateLimiterProvider provider = givenProvider(10);
+        RateLimiter rateLimiter = provider.getRateLimiter("a", (Rate)null);
+        assertSame(rateLimiter, provider.getRateLimiter("a", (Rate)null));
+        verify(delegate, times(1)).getRateLimiter(eq("a"), nullable(Rate.class));
+        assertEquals(1, provider.size());
+    }
+
+    @Test
+    void getRateLimiter_givenIdleKey_shouldExpire() {
+        KeyedRateLimiterProvider provider = givenProvider(10);
+        RateLimiter rateLimiter = provider.getRateLimiter("a", (Rate)null);
+        advance(IDLE_TIMEOUT.plusSeconds(1));
+        provider.getRateLimiter("b", (Rate)null);
+        assertEquals(1, provider.size());
+        assertEquals(1, provider.getExpirations());
+        assertEquals(1, metrics.snapshot().getRateLimitersExpired());
+        assertNotSame(rateLimiter, provider.getRateLimiter("a", (Rate)null));
+    }
+
+    @Test
+    void getRateLimiter_givenKeyUsedWithinIdleTimeout_shouldNotExpire() {
+        KeyedRateLimiterProvider provider = givenProvider(10);
+        RateLimiter rateLimiter = provider.getRateLimiter("a", (Rate)null);
+        for (int i = 0; i < 5; i++) {
+            advance(IDLE_TIMEOUT.dividedBy(2));
+            assertSame(rateLimiter, provider.getRateLimiter("a", (Rate)null));
+        }
+        assertEquals(0, provider.getExpirations());
+    }
+
+    @Test
+    void getRateLimiter_givenIdleKeyWithPermitsReservedIntoFuture_shouldExpireOnlyOnceAvailable() {
+        KeyedRateLimiterProvider provider = givenProvider(10);
+        provider.getRateLimiter("a", (Rate)null);
+        availableMicros.put("a", TimeUnit.SECONDS.toMicros(30));
+        advance(IDLE_TIMEOUT.plusSeconds(1));
+        provider.getRateLimiter("b", (Rate)null);
+        assertEquals(0, provider.getExpirations());
+        advance(Duration.ofSeconds(20));
+        provider.getRateLimiter("b", (Rate)null);
+        assertEquals(1, provider.getExpirations());
+        assertEquals(1, provider.size());
+    }
+
+    @Test
+    void getRateLimiter_givenRateLongerThanIdleTimeout_shouldExpireOnlyOnceReplenished() {
+        KeyedRateLimiterProvider provider = givenProvider(10);
+        RateLimiter rateLimiter = provider.getRateLimiter("a", Rate.of(10, Duration.ofMinutes(1)));
+        advance(IDLE_TIMEOUT.plusSeconds(1));
+        provider.getRateLimiter("b", (Rate)null);
+        assertEquals(0, provider.getExpirations());
+        advance(Duration.ofMinutes(1));
+        provider.getRateLimiter("b", (Rate)null);
+        assertEquals(1, provider.getExpirations());
+        assertNotSame(rateLimiter, provider.getRateLimiter("a", Rate.of(10, Duration.ofMinutes(1))));
+    }
+
+    @Test
+    void getRateLimiter_givenMoreKeysThanMax_shouldEvictLeastRecentlyUsed() {
+        KeyedRateLimiterProvider provider = givenProvider(4);
+        for (int i = 0; i < 4; i++) {
+            provider.getRateLimiter("key-" + i, (Rate)null);
+            advance(Duration.ofSeconds(1));
+        }
+        provider.getRateLimiter("key-4", (Rate)null);
+        assertEquals(4, provider.size());
+        assertEquals(1, provider.getEvictions());
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getRateLimitersEvicted());
+        assertEquals(0, snapshot.getRateLimitersExpired());
+        // key-0 was used least recently
+        provider.getRateLimiter("key-0", (Rate)null);
+        verify(delegate, times(2)).getRateLimiter(eq("key-0"), nullable(Rate.class));
+    }
+
+    @Test
+    void getRateLimiter_givenManyDistinctKeys_shouldStayWithinMax() {
+        KeyedRateLimiterProvider provider = givenProvider(100);
+        for (int i = 0; i < 10_000; i++) {
+            provider.getRateLimiter("client-" + i, (Rate)null);
+            assertTrue(provider.size() <= 100, "size: " + provider.size());
+            nowMicros.addAndGet(100);
+        }
+        assertEquals(10_000 - 100, provider.getEvictions() + provider.getExpirations());
+    }
+
+    private void advance(Duration duration) {
+        nowMicros.addAndGet(TimeUnit.NANOSECONDS.toMicros(duration.toNanos()));
+    }
+
+    private KeyedRateLimiterProvider givenProvider(int maxKeys) {
+        Ticker ticker = mock(Ticker.class);
+        when(ticker.elapsedMicros()).then(invocation -> nowMicros.get());
+        return new KeyedRateLimiterProvider(delegate, ticker, maxKeys, IDLE_TIMEOUT, metrics);
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.model.Operator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchUtilsTest {
+
+    private static final String [] KEYS = IntStream.range(0, 5000)
+            .mapToObj(i -> "key-" + i).toArray(String[]::new);
+
+    @Test
+    void matchesValue_givenOrAndHashedValues_shouldMatchAnyValue() {
+        StringSet supplied = StringSet.of(KEYS);
+        assertTrue(MatchUtils.matchesValue(Operator.OR, "key-4999", supplied));
+        assertFalse(MatchUtils.matchesValue(Operator.OR, "key-5000", supplied));
+    }
+
+    @Test
+    void matchesList_givenOrAndHashedValues_shouldMatchAnyValue() {
+        StringSet supplied = StringSet.of(KEYS);
+        assertTrue(MatchUtils.matchesList(Operator.OR, Arrays.asList("x", "key-7"), supplied));
+        assertFalse(MatchUtils.matchesList(Operator.OR, Arrays.asList("x", "y"), supplied));
+    }
+
+    @Test
+    void matchesList_givenAndAndHashedValues_shouldMatchOnlyIfAllFound() {
+        StringSet supplied = StringSet.of("a", "b", "c");
+        assertTrue(MatchUtils.matchesList(Operator.AND, Arrays.asList("c", "b", "a", "a"), supplied));
+        assertFalse(MatchUtils.matchesList(Operator.AND, Arrays.asList("a", "b", "b"), supplied));
+    }
+
+    @Test
+    void matchesList_givenAndAndManyRepeatedValues_shouldCountDistinctValues() {
+        StringSet supplied = StringSet.of("a", "b");
+        String [] values = new String[10_000];
+        Arrays.fill(values, "a");
+        assertFalse(MatchUtils.matchesList(Operator.AND, Arrays.asList(values), supplied));
+        values[values.length - 1] = "b";
+        assertTrue(MatchUtils.matchesList(Operator.AND, Arrays.asList(values), supplied));
+    }
+
+    @Test
+    void matchesValue_givenArray_shouldMatchAsBefore() {
+        assertTrue(MatchUtils.matchesValue(Operator.OR, "b", new String[]{"a", "b"}));
+        assertFalse(MatchUtils.matchesValue(Operator.AND, "b", new String[]{"a", "b"}));
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.matcher.Matcher;
+import io.github.poshjosh.ratelimiter.model.Rate;
+import io.github.poshjosh.ratelimiter.model.RateConfig;
+import io.github.poshjosh.ratelimiter.model.RateSource;
+import io.github.poshjosh.ratelimiter.model.Rates;
+import io.github.poshjosh.ratelimiter.util.MatcherProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MemoizingMatcherProviderTest {
+
+    private MatcherProvider<RequestInfo> delegate;
+    private MemoizingMatcherProvider provider;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void beforeEach() {
+        delegate = mock(MatcherProvider.class);
+        when(delegate.createMainMatcher(any(RateConfig.class)))
+                .then(invocation -> mock(Matcher.class));
+        provider = new MemoizingMatcherProvider(delegate);
+    }
+
+    @Test
+    void givenUnchangedRates_shouldReuseMatcher() {
+        final Matcher<RequestInfo> first = provider.createMainMatcher(config("a", 1));
+        provider.startBuild();
+        assertSame(first, provider.createMainMatcher(config("a", 1)));
+        verify(delegate, times(1)).createMainMatcher(any(RateConfig.class));
+    }
+
+    @Test
+    void givenChangedRates_shouldCreateMatcher() {
+        final Matcher<RequestInfo> first = provider.createMainMatcher(config("a", 1));
+        provider.startBuild();
+        assertNotSame(first, provider.createMainMatcher(config("a", 2)));
+    }
+
+    @Test
+    void startBuild_shouldReturnRatesOfPreviousBuild() {
+        provider.startBuild();
+        provider.createMainMatcher(config("a", 1));
+        provider.createMainMatcher(config("b", 1));
+        provider.finishBuild();
+        provider.startBuild();
+        provider.createMainMatcher(config("a", 2));
+        final Map<String, Rates> built = provider.finishBuild();
+        assertEquals(1, built.size());
+        assertEquals(rates("a", 2), built.get("a"));
+        assertEquals(built, provider.startBuild());
+    }
+
+    private static RateConfig config(String id, long permitsPerSecond) {
+        return RateConfig.of(RateSource.of(id, true), rates(id, permitsPerSecond));
+    }
+
+    private static Rates rates(String id, long permitsPerSecond) {
+        return Rates.of(id, Rate.ofSeconds(permitsPerSecond));
+    }
+}
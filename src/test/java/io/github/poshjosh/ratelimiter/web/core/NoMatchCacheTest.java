@@ -0,0 +1,62 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NoMatchCacheTest {
+
+    @Test
+    void contains_givenKeyAddedTwice_shouldReturnTrue() {
+        NoMatchCache cache = new NoMatchCache(10);
+        cache.add(key("GET", "/static/app.js"));
+        assertFalse(cache.contains(key("GET", "/static/app.js")));
+        cache.add(key("GET", "/static/app.js"));
+        assertTrue(cache.contains(key("GET", "/static/app.js")));
+        assertFalse(cache.contains(key("GET", "/static/app.css")));
+    }
+
+    @Test
+    void contains_givenDifferentMethod_shouldReturnFalse() {
+        NoMatchCache cache = new NoMatchCache(10);
+        cache.add(key("GET", "/users"));
+        cache.add(key("GET", "/users"));
+        assertFalse(cache.contains(key("POST", "/users")));
+    }
+
+    @Test
+    void add_whenFull_shouldNotExceedCapacity() {
+        NoMatchCache cache = new NoMatchCache(8);
+        for (int i = 0; i < 100; i++) {
+            cache.add(key("GET", "/" + i));
+            cache.add(key("GET", "/" + i));
+            assertTrue(cache.size() <= 8, "size: " + cache.size());
+        }
+        assertTrue(cache.contains(key("GET", "/99")));
+    }
+
+    @Test
+    void add_givenManyKeysSeenOnce_shouldKeepFrequentlySeenKeys() {
+        NoMatchCache cache = new NoMatchCache(8);
+        cache.add(key("GET", "/health"));
+        cache.add(key("GET", "/health"));
+        for (int i = 0; i < 10_000; i++) {
+            cache.add(key("GET", "/users/" + i));
+            if (i % 100 == 0) {
+                assertTrue(cache.contains(key("GET", "/health")), "evicted after: " + i);
+            }
+        }
+        assertTrue(cache.contains(key("GET", "/health")));
+    }
+
+    private static NoMatchCache.Key key(String method, String uri) {
+        RequestInfo request = mock(RequestInfo.class);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getRequestUri()).thenReturn(uri);
+        when(request.getContextPath()).thenReturn("");
+        when(request.getServletPath()).thenReturn("");
+        return NoMatchCache.Key.of(request);
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.matcher.Matcher;
+import io.github.poshjosh.ratelimiter.model.Rate;
+import io.github.poshjosh.ratelimiter.model.RateConfig;
+import io.github.poshjosh.ratelimiter.model.RateSource;
+import io.github.poshjosh.ratelimiter.model.Rates;
+import io.github.poshjosh.ratelimiter.util.MatcherProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ParallelMatcherProviderTest {
+
+    private final Set<Thread> creatingThreads = ConcurrentHashMap.newKeySet();
+    private MatcherProvider<RequestInfo> delegate;
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void beforeEach() {
+        delegate = mock(MatcherProvider.class);
+        when(delegate.createMainMatcher(any(RateConfig.class))).then(invocation -> {
+            creatingThreads.add(Thread.currentThread());
+            final String id = invocation.<RateConfig>getArgument(0).getId();
+            return (Matcher<RequestInfo>) request -> id;
+        });
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void afterEach() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void shouldBindEachMatcherToItsConfig() {
+        final ParallelMatcherProvider provider = new ParallelMatcherProvider(delegate, pool);
+        final List<Matcher<RequestInfo>> matchers = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            matchers.add(provider.createMainMatcher(config("id-" + i)));
+        }
+        provider.complete();
+        for (int i = 0; i < 100; i++) {
+            assertEquals("id-" + i, matchers.get(i).match(mock(RequestInfo.class)));
+        }
+        assertFalse(creatingThreads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    void complete_givenFailure_shouldThrow() {
+        when(delegate.createMainMatcher(any(RateConfig.class))).thenThrow(new IllegalStateException());
+        final ParallelMatcherProvider provider = new ParallelMatcherProvider(delegate, pool);
+        provider.createMainMatcher(config("a"));
+        assertThrows(IllegalStateException.class, provider::complete);
+    }
+
+    @Test
+    void givenComplete_shouldCreateOnCallingThread() {
+        final ParallelMatcherProvider provider = new ParallelMatcherProvider(delegate, pool);
+        provider.complete();
+        assertEquals("a", provider.createMainMatcher(config("a")).match(mock(RequestInfo.class)));
+        assertTrue(creatingThreads.contains(Thread.currentThread()));
+    }
+
+    private static RateConfig config(String id) {
+        return RateConfig.of(RateSource.of(id, true), Rates.of(id, Rate.ofSeconds(1)));
+    }
+}
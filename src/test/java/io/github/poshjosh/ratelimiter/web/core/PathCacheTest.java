@@ -0,0 +1,69 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathCacheTest {
+
+    @Test
+    void put_givenKeySeenOnce_shouldNotCache() {
+        PathCache cache = new PathCache(10);
+        cache.put(key("/a"), "/a");
+        assertNull(cache.get(key("/a")));
+        cache.put(key("/a"), "/a");
+        assertEquals("/a", cache.get(key("/a")));
+    }
+
+    @Test
+    void get_shouldCountHitsAndMisses() {
+        PathCache cache = new PathCache(10);
+        putTwice(cache, "/a");
+        cache.get(key("/a"));
+        cache.get(key("/b"));
+        cache.get(key("/a"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void put_whenFull_shouldNotExceedCapacity() {
+        PathCache cache = new PathCache(8);
+        for (int i = 0; i < 100; i++) {
+            putTwice(cache, "/" + i);
+        }
+        assertEquals(8, cache.size());
+    }
+
+    @Test
+    void put_givenManyDistinctKeys_shouldKeepFrequentlyUsedKeys() {
+        PathCache cache = new PathCache(16);
+        for (int i = 0; i < 16; i++) {
+            putTwice(cache, "/hot/" + i);
+        }
+        int hits = 0;
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(key("/users/" + i), "/users/" + i);
+            if (cache.get(key("/hot/" + (i % 16))) != null) {
+                ++hits;
+            }
+        }
+        assertTrue(hits > 9_000, "Hits: " + hits);
+    }
+
+    @Test
+    void get_givenDifferentContextPath_shouldMiss() {
+        PathCache cache = new PathCache(10);
+        putTwice(cache, "/a");
+        assertNull(cache.get(new PathCache.Key("/a", "/other", "", null)));
+    }
+
+    private static void putTwice(PathCache cache, String uri) {
+        cache.put(key(uri), uri);
+        cache.put(key(uri), uri);
+    }
+
+    private static PathCache.Key key(String uri) {
+        return new PathCache.Key(uri, "", "", null);
+    }
+}
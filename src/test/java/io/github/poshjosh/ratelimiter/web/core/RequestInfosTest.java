@@ -0,0 +1,121 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RequestInfosTest {
+
+    private RequestInfo request;
+
+    @BeforeEach
+    void beforeEach() {
+        request = mock(RequestInfo.class);
+        when(request.getContextPath()).thenReturn("");
+        when(request.getServletPath()).thenReturn("");
+        when(request.getRequestUri()).thenReturn("/users/1");
+        when(request.getRemoteAddr(any())).thenReturn("127.0.0.1");
+        when(request.getLocales()).thenReturn(Collections.singletonList(Locale.US));
+    }
+
+    @Test
+    void caching_givenCachingRequest_shouldReturnSameInstance() {
+        RequestInfo caching = RequestInfos.caching(request);
+        assertSame(caching, RequestInfos.caching(caching));
+    }
+
+    @Test
+    void caching_shouldResolveRemoteAddressOnce() {
+        RequestInfo caching = RequestInfos.caching(request);
+        assertEquals("127.0.0.1", caching.getRemoteAddr(null));
+        assertEquals("127.0.0.1", caching.getRemoteAddr(null));
+        verify(request, times(1)).getRemoteAddr(any());
+    }
+
+    @Test
+    void caching_shouldResolveLocalesOnce() {
+        RequestInfo caching = RequestInfos.caching(request);
+        assertEquals(Collections.singletonList(Locale.US), caching.getLocales());
+        assertEquals(Collections.singletonList(Locale.US), caching.getLocales());
+        verify(request, times(1)).getLocales();
+    }
+
+    @Test
+    void caching_shouldResolvePathWithinServletOnce() {
+        UrlPathHelper urlPathHelper = new UrlPathHelper("");
+        RequestInfo caching = RequestInfos.caching(request);
+        assertEquals("/users/1", urlPathHelper.getPathWithinServlet(caching));
+        assertEquals("/users/1", urlPathHelper.getPathWithinServlet(caching));
+        verify(request, times(1)).getRequestUri();
+    }
+
+    @Test
+    void caching_shouldIndexCookieValuesByNameOnce() {
+        when(request.getCookies()).thenReturn(Arrays.asList(
+                RequestInfo.Cookie.of("a", "1"), RequestInfo.Cookie.of("b", "2"), RequestInfo.Cookie.of("a", "3")));
+        RequestInfos.CachingRequestInfo caching = (RequestInfos.CachingRequestInfo)RequestInfos.caching(request);
+        assertEquals("1", caching.getCookieValue("a"));
+        assertEquals("2", caching.getCookieValue("b"));
+        assertNull(caching.getCookieValue("A"));
+        verify(request, times(1)).getCookies();
+    }
+
+    @Test
+    void of_shouldLookUpHeadersCaseInsensitivelyAndIndexOnce() {
+        HttpServletRequest servletRequest = mock(HttpServletRequest.class);
+        when(servletRequest.getHeaderNames()).thenReturn(
+                Collections.enumeration(Arrays.asList("Accept", "X-Api-Key")));
+        when(servletRequest.getHeaders("Accept")).thenReturn(
+                Collections.enumeration(Collections.singletonList("text/html")));
+        when(servletRequest.getHeaders("X-Api-Key")).thenReturn(
+                Collections.enumeration(Arrays.asList("k1", "k2")));
+        RequestInfo requestInfo = RequestInfos.of(servletRequest);
+        assertEquals(Arrays.asList("k1", "k2"), requestInfo.getHeaders("x-api-key"));
+        assertEquals(Collections.singletonList("text/html"), requestInfo.getHeaders("ACCEPT"));
+        assertNull(requestInfo.getHeaders("Cookie"));
+        verify(servletRequest, times(1)).getHeaderNames();
+    }
+
+    @Test
+    void caching_givenClientIpResolver_shouldResolveRemoteAddressOnceViaResolver() {
+        when(request.getPeerAddress(any())).thenReturn("10.0.0.1");
+        when(request.getHeaders("X-Forwarded-For")).thenReturn(Collections.singletonList("198.51.100.7"));
+        RequestInfo caching = RequestInfos.caching(request, ClientIpResolver.of("10.0.0.0/8"), SessionIdMode.CREATE_SESSION);
+        assertEquals("198.51.100.7", caching.getRemoteAddr(null));
+        assertEquals("198.51.100.7", caching.getRemoteAddr(null));
+        verify(request, times(1)).getPeerAddress(any());
+        verify(request, never()).getRemoteAddr(any());
+    }
+
+    @Test
+    void caching_givenExistingSessionMode_shouldNotCreateSession() {
+        HttpServletRequest servletRequest = mock(HttpServletRequest.class);
+        RequestInfo caching = RequestInfos.caching(
+                RequestInfos.of(servletRequest), null, SessionIdMode.EXISTING_SESSION);
+        assertEquals(SessionIdMode.NO_SESSION_ID, caching.getSessionId(null));
+        HttpSession session = mock(HttpSession.class);
+        when(session.getId()).thenReturn("S1");
+        when(servletRequest.getSession(false)).thenReturn(session);
+        assertEquals("S1", caching.getSessionId(null));
+        verify(servletRequest, never()).getSession(true);
+        verify(servletRequest, never()).getSession();
+    }
+
+    @Test
+    void caching_givenExistingSessionModeAndDefaultRequestedSessionId_shouldNotCreateSession() {
+        when(request.getSessionId(any())).thenReturn("S1");
+        when(request.getRequestedSessionId(any())).thenCallRealMethod();
+        RequestInfo caching = RequestInfos.caching(request, null, SessionIdMode.EXISTING_SESSION);
+        assertEquals(SessionIdMode.NO_SESSION_ID, caching.getSessionId(null));
+        verify(request, never()).getSessionId(any());
+    }
+}
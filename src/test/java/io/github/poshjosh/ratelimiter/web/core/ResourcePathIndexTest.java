@@ -0,0 +1,87 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfo;
+import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfos;
+import io.github.poshjosh.ratelimiter.web.core.util.ResourcePath;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourcePathIndexTest {
+
+    @Test
+    void getCandidates_givenLiteralPattern_shouldReturnOnlyMatchingResource() {
+        ResourceInfo users = resourceInfo("/api/users", "GET");
+        ResourceInfo orders = resourceInfo("/api/orders", "GET");
+        ResourcePathIndex index = givenIndex(users, orders);
+        Set<String> candidates = index.getCandidates("GET", "/api/users");
+        assertTrue(candidates.contains(users.getId()));
+        assertFalse(candidates.contains(orders.getId()));
+    }
+
+    @Test
+    void getCandidates_givenDifferentHttpMethod_shouldNotReturnResource() {
+        ResourceInfo users = resourceInfo("/api/users", "POST");
+        ResourcePathIndex index = givenIndex(users);
+        assertFalse(index.getCandidates("GET", "/api/users").contains(users.getId()));
+        assertTrue(index.getCandidates("post", "/api/users").contains(users.getId()));
+    }
+
+    @Test
+    void getCandidates_givenNoHttpMethod_shouldReturnResourceForAnyMethod() {
+        ResourceInfo users = resourceInfo("/api/users");
+        ResourcePathIndex index = givenIndex(users);
+        assertTrue(index.getCandidates("DELETE", "/api/users").contains(users.getId()));
+    }
+
+    @Test
+    void getCandidates_givenPathVariable_shouldMatchAnySingleSegment() {
+        ResourceInfo user = resourceInfo("/api/users/{id}", "GET");
+        ResourcePathIndex index = givenIndex(user);
+        assertTrue(index.getCandidates("GET", "/api/users/1").contains(user.getId()));
+        assertFalse(index.getCandidates("GET", "/api/users/1/orders").contains(user.getId()));
+    }
+
+    @Test
+    void getCandidates_givenDoubleWildcard_shouldMatchRemainingSegments() {
+        ResourceInfo api = resourceInfo("/api/**", "GET");
+        ResourcePathIndex index = givenIndex(api);
+        assertTrue(index.getCandidates("GET", "/api").contains(api.getId()));
+        assertTrue(index.getCandidates("GET", "/api/users/1/orders").contains(api.getId()));
+        assertFalse(index.getCandidates("GET", "/other").contains(api.getId()));
+    }
+
+    @Test
+    void getCandidates_givenCaptureAllPathVariable_shouldMatchRemainingSegments() {
+        ResourceInfo files = resourceInfo("/files/{*path}", "GET");
+        ResourcePathIndex index = givenIndex(files);
+        assertTrue(index.getCandidates("GET", "/files").contains(files.getId()));
+        assertTrue(index.getCandidates("GET", "/files/a/b").contains(files.getId()));
+        assertFalse(index.getCandidates("GET", "/other/a").contains(files.getId()));
+    }
+
+    @Test
+    void getCandidates_givenUnsupportedPattern_shouldAlwaysReturnResource() {
+        ResourceInfo regex = resourceInfo("/api/{path: .*}", "GET");
+        ResourcePathIndex index = givenIndex(regex);
+        assertTrue(index.getCandidates("GET", "/other").contains(regex.getId()));
+    }
+
+    private ResourcePathIndex givenIndex(ResourceInfo... resourceInfos) {
+        ResourcePathIndex index = new ResourcePathIndex();
+        Arrays.stream(resourceInfos).forEach(index::add);
+        return index;
+    }
+
+    private ResourceInfo resourceInfo(String pattern, String... httpMethods) {
+        return ResourceInfos.of(new ResourcePath() {
+            @Override public ResourcePath combine(ResourcePath other) { return this; }
+            @Override public List<String> getPatterns() { return Arrays.asList(pattern); }
+            @Override public boolean matches(String path) { return true; }
+        }, httpMethods);
+    }
+}
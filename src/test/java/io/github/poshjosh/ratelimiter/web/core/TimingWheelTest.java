@@ -0,0 +1,77 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final class TestNode extends TimingWheel.Node {
+        private final long deadline;
+        private long firedAt = -1;
+        private TestNode(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    @Test
+    void advance_shouldFireEachNodeAtItsDeadline() {
+        TimingWheel<TestNode> wheel = new TimingWheel<>(5);
+        List<TestNode> nodes = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            TestNode node = new TestNode(6 + random.nextInt(300_000));
+            wheel.schedule(node, node.deadline);
+            nodes.add(node);
+        }
+        for (long tick = 6; tick <= 300_006; tick += 1 + random.nextInt(50)) {
+            final long now = tick;
+            wheel.advance(now, node -> node.firedAt = now);
+        }
+        wheel.advance(300_006, node -> node.firedAt = 300_006);
+        assertEquals(0, wheel.size());
+        for (TestNode node : nodes) {
+            assertTrue(node.firedAt >= node.deadline && node.firedAt < node.deadline + 51,
+                    "deadline: " + node.deadline + ", fired at: " + node.firedAt);
+        }
+    }
+
+    @Test
+    void advance_givenDeadlineBeyondSpan_shouldFireAtDeadline() {
+        TimingWheel<TestNode> wheel = new TimingWheel<>(0);
+        TestNode node = new TestNode(20_000_000);
+        wheel.schedule(node, node.deadline);
+        wheel.advance(19_999_999, n -> n.firedAt = 0);
+        assertEquals(-1, node.firedAt);
+        wheel.advance(20_000_000, n -> n.firedAt = 20_000_000);
+        assertEquals(20_000_000, node.firedAt);
+    }
+
+    @Test
+    void cancel_shouldNotFire() {
+        TimingWheel<TestNode> wheel = new TimingWheel<>(0);
+        TestNode node = new TestNode(10);
+        wheel.schedule(node, node.deadline);
+        wheel.cancel(node);
+        wheel.advance(100, n -> n.firedAt = 100);
+        assertEquals(-1, node.firedAt);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedule_givenScheduledNode_shouldReschedule() {
+        TimingWheel<TestNode> wheel = new TimingWheel<>(0);
+        TestNode node = new TestNode(10);
+        wheel.schedule(node, 10);
+        wheel.schedule(node, 5000);
+        wheel.advance(4999, n -> n.firedAt = 4999);
+        assertEquals(-1, node.firedAt);
+        wheel.advance(5000, n -> n.firedAt = 5000);
+        assertEquals(5000, node.firedAt);
+        assertEquals(0, wheel.size());
+    }
+}
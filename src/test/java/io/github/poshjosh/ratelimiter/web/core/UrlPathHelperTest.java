@@ -3,8 +3,11 @@ package io.github.poshjosh.ratelimiter.web.core;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -26,7 +29,7 @@ class UrlPathHelperTest {
         when(request.getContextPath()).then(invocationOnMock -> contextPath);
         when(request.getServletPath()).then(invocationOnMock -> servletPath);
         when(request.getRequestUri()).then(invocationOnMock -> contextPath + pathWithinApplication());
-        when(request.getCharacterEncoding(anyString())).then(invocationOnMock -> encoding);
+        when(request.getCharacterEncoding(any())).then(invocationOnMock -> encoding);
     }
 
     private String pathWithinServlet() {
@@ -117,6 +120,75 @@ class UrlPathHelperTest {
         assertEquals(pathWithinApplication().replace("%3F", "?"), pathWithinApp);
     }
 
+    @Test
+    void shouldRemoveSemicolonContentAndDuplicateSlashes() {
+        appPath = appPath + ";jsessionid=S%3F+ID/";
+        String pathWithinApp = getUrlPathHelper().getPathWithinApplication(request);
+        assertEquals(pathWithinApplication().replace(";jsessionid=S%3F+ID/", ""), pathWithinApp);
+    }
+
+    @Test
+    void normalize_givenNothingToChange_shouldReturnSameInstance() {
+        String path = "/app/users/123";
+        assertSame(path, UrlPathHelper.normalize(path, StandardCharsets.UTF_8, true));
+    }
+
+    @Test
+    void normalize_shouldDecodeLikeURLDecoder() throws Exception {
+        for (String path : new String[]{"/a%3F+b", "/caf%C3%A9/%E2%82%AC", "%2F%2Fa", "/a+b/%20"}) {
+            assertEquals(URLDecoder.decode(path, "UTF-8").replaceAll("/+", "/"),
+                    UrlPathHelper.normalize(path, StandardCharsets.UTF_8, true), path);
+        }
+        assertEquals("//a b", UrlPathHelper.normalize("//a+b", StandardCharsets.UTF_8, false));
+    }
+
+    @Test
+    void normalize_givenSemicolonContent_shouldRemoveIt() {
+        assertEquals("/a/b", UrlPathHelper.normalize("/a;x=1//b;jsessionid=2", StandardCharsets.UTF_8, true));
+        assertEquals("/a;b", UrlPathHelper.normalize("/a%3Bb", StandardCharsets.UTF_8, true));
+    }
+
+    @Test
+    void normalize_givenInvalidEscape_shouldThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> UrlPathHelper.normalize("/a%zz", StandardCharsets.UTF_8, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> UrlPathHelper.normalize("/a%2", StandardCharsets.UTF_8, true));
+    }
+
+    @Test
+    void getPathWithinServlet_givenPathCache_shouldReturnCachedPath() {
+        UrlPathHelper urlPathHelper = new UrlPathHelper(appPath, 10);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(pathWithinServlet(), urlPathHelper.getPathWithinServlet(request));
+        }
+        assertEquals(1, urlPathHelper.getPathCache().getHitCount());
+        contextPath = "/other-context";
+        assertEquals(pathWithinServlet(), urlPathHelper.getPathWithinServlet(request));
+    }
+
+    @Test
+    void getPathWithinServlet_givenManyUnsupportedOrRespelledEncodings_shouldNotCacheThem() {
+        UrlPathHelper urlPathHelper = getUrlPathHelper();
+        for (int i = 0; i < 1000; i++) {
+            encoding = "bogus-" + i;
+            assertEquals(pathWithinServlet(), urlPathHelper.getPathWithinServlet(request));
+            encoding = (i & 1) == 0 ? "uTf-8" : "UtF-8";
+            assertEquals(pathWithinServlet(), urlPathHelper.getPathWithinServlet(request));
+        }
+        assertEquals(0, urlPathHelper.getCharsetCacheSize());
+    }
+
+    @Test
+    void getPathWithinServlet_givenDeclaredEncodings_shouldCacheThem() {
+        UrlPathHelper urlPathHelper = getUrlPathHelper();
+        for (String each : new String[]{"UTF-8", "utf-8", "UTF8", "UTF-8"}) {
+            encoding = each;
+            assertEquals(pathWithinServlet(), urlPathHelper.getPathWithinServlet(request));
+        }
+        assertEquals(3, urlPathHelper.getCharsetCacheSize());
+    }
+
     private UrlPathHelper getUrlPathHelper() {
         return new UrlPathHelper(appPath);
     }
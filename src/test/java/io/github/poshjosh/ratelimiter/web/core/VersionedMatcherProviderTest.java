@@ -0,0 +1,88 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.matcher.Matcher;
+import io.github.poshjosh.ratelimiter.matcher.Matchers;
+import io.github.poshjosh.ratelimiter.model.Rate;
+import io.github.poshjosh.ratelimiter.model.RateConfig;
+import io.github.poshjosh.ratelimiter.model.RateSource;
+import io.github.poshjosh.ratelimiter.model.Rates;
+import io.github.poshjosh.ratelimiter.util.MatcherProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class VersionedMatcherProviderTest {
+
+    private final RequestInfo request = mock(RequestInfo.class);
+    private MatcherProvider<RequestInfo> delegate;
+    private VersionedMatcherProvider provider;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void beforeEach() {
+        delegate = mock(MatcherProvider.class);
+        when(delegate.createMainMatcher(any(RateConfig.class)))
+                .then(invocation -> matcherOf(((RateConfig)invocation.getArgument(0)).getId()));
+        when(delegate.createSubMatchers(any(RateConfig.class)))
+                .then(invocation -> Collections.singletonList(
+                        matcherOf(((RateConfig)invocation.getArgument(0)).getId() + "-sub")));
+        provider = new VersionedMatcherProvider(delegate);
+    }
+
+    @Test
+    void shouldSuffixMatchesWithVersionOfRates() {
+        final String version = VersionedMatcherProvider.version(rates("a", 1));
+        assertEquals("a#" + version, provider.createMainMatcher(config("a", 1)).match(request));
+        assertEquals("a-sub#" + version, provider.createSubMatchers(config("a", 1)).get(0).match(request));
+    }
+
+    @Test
+    void givenChangedRates_shouldChangeMatches() {
+        assertNotEquals(provider.createMainMatcher(config("a", 1)).match(request),
+                provider.createMainMatcher(config("a", 2)).match(request));
+    }
+
+    @Test
+    void givenSameRatesReachedByDifferentHistories_shouldMatchSameKeys() {
+        // A node which started on the old rates, then reloaded the new rates
+        provider.createMainMatcher(config("a", 1));
+        final Object reloaded = provider.createMainMatcher(config("a", 2)).match(request);
+
+        // A node which started on the new rates
+        final VersionedMatcherProvider started = new VersionedMatcherProvider(delegate);
+        assertEquals(reloaded, started.createMainMatcher(config("a", 2)).match(request));
+        assertEquals(provider.createSubMatchers(config("a", 2)).get(0).match(request),
+                started.createSubMatchers(config("a", 2)).get(0).match(request));
+    }
+
+    @Test
+    void version_givenEqualRates_shouldBeEqual() {
+        assertEquals(VersionedMatcherProvider.version(rates("a", 1)),
+                VersionedMatcherProvider.version(rates("a", 1)));
+        assertEquals(16, VersionedMatcherProvider.version(rates("a", 1)).length());
+    }
+
+    @Test
+    void givenNoMatch_shouldNotVersion() {
+        final Matcher<RequestInfo> matcher = provider.createMainMatcher(config("a", 2));
+        when(request.getRequestUri()).thenReturn("no-match");
+        assertEquals(Matchers.NO_MATCH, matcher.match(request));
+    }
+
+    private static Matcher<RequestInfo> matcherOf(String result) {
+        return request -> "no-match".equals(request.getRequestUri()) ? Matchers.NO_MATCH : result;
+    }
+
+    private static RateConfig config(String id, long permitsPerSecond) {
+        return RateConfig.of(RateSource.of(id, true), rates(id, permitsPerSecond));
+    }
+
+    private static Rates rates(String id, long permitsPerSecond) {
+        return Rates.of(id, Rate.ofSeconds(permitsPerSecond));
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.poshjosh.ratelimiter.web.core;
+
+import io.github.poshjosh.ratelimiter.expression.Expression;
+import io.github.poshjosh.ratelimiter.expression.Operator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WebExpressionMatcherTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reloadRangeFiles_givenModifiedFile_shouldMatchNewRanges() throws IOException {
+        Path file = dir.resolve("ranges.cidr");
+        Files.write(file, Collections.singletonList("10.0.0.0/8"), StandardCharsets.UTF_8);
+        WebExpressionMatcher matcher = new WebExpressionMatcher();
+        Object ranges = matcher.parseRight(ipInExpression("file:" + file));
+        assertTrue(matcher.resolve(IpAddress.ofNullable("10.1.1.1"), Operator.IN, ranges));
+
+        Files.write(file, Collections.singletonList("192.168.0.0/16"), StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(
+                Files.getLastModifiedTime(file).toMillis() + 10_000));
+        matcher.reloadRangeFiles();
+
+        assertFalse(matcher.resolve(IpAddress.ofNullable("10.1.1.1"), Operator.IN, ranges));
+        assertTrue(matcher.resolve(IpAddress.ofNullable("192.168.1.1"), Operator.IN, ranges));
+    }
+
+    @Test
+    void reloadRangeFiles_givenInvalidModifiedFile_shouldKeepPreviousRanges() throws IOException {
+        Path file = dir.resolve("ranges.cidr");
+        Files.write(file, Collections.singletonList("10.0.0.0/8"), StandardCharsets.UTF_8);
+        WebExpressionMatcher matcher = new WebExpressionMatcher();
+        Object ranges = matcher.parseRight(ipInExpression("file:" + file));
+
+        Files.write(file, Collections.singletonList("10.0.0.0/40"), StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(
+                Files.getLastModifiedTime(file).toMillis() + 10_000));
+        assertThrows(IllegalArgumentException.class, matcher::reloadRangeFiles);
+
+        assertTrue(matcher.resolve(IpAddress.ofNullable("10.1.1.1"), Operator.IN, ranges));
+    }
+
+    @Test
+    void resolve_givenSingleRole_shouldMatchIfUserInRole() {
+        WebExpressionMatcher matcher = new WebExpressionMatcher();
+        Expression<String> expression = userRoleExpression(Operator.EQUALS, "GUEST");
+        assertTrue(resolve(matcher, expression, givenUserInRoles("GUEST")));
+        assertFalse(resolve(matcher, expression, givenUserInRoles("ADMIN")));
+    }
+
+    @Test
+    void resolve_givenOrRoleList_shouldMatchIfUserInAnyRole() {
+        WebExpressionMatcher matcher = new WebExpressionMatcher();
+        Expression<String> expression = userRoleExpression(Operator.EQUALS, "[GUEST | ADMIN]");
+        assertTrue(resolve(matcher, expression, givenUserInRoles("ADMIN")));
+        assertTrue(resolve(matcher, expression, givenUserInRoles("GUEST", "USER")));
+        assertFalse(resolve(matcher, expression, givenUserInRoles("USER")));
+        assertFalse(resolve(matcher, expression, givenUserInRoles()));
+    }
+
+    @Test
+    void resolve_givenNotEqualsRole_shouldMatchIfUserNotInRole() {
+        WebExpressionMatcher matcher = new WebExpressionMatcher();
+        Expression<String> expression = userRoleExpression(Operator.NOT_EQUALS, "[GUEST | ADMIN]");
+        assertFalse(resolve(matcher, expression, givenUserInRoles("GUEST")));
+        assertTrue(resolve(matcher, expression, givenUserInRoles("USER")));
+    }
+
+    @Test
+    void parseRight_givenAndRoleList_shouldThrow() {
+        WebExpressionMatcher matcher = new WebExpressionMatcher();
+        Expression<String> expression = userRoleExpression(Operator.EQUALS, "[GUEST & ADMIN]");
+        assertThrows(UnsupportedOperationException.class, () -> matcher.parseRight(expression));
+    }
+
+    private static boolean resolve(WebExpressionMatcher matcher, Expression<String> expression,
+            RequestInfo request) {
+        return matcher.resolve(matcher.parseLeft(request, expression),
+                expression.getOperator(), matcher.parseRight(expression));
+    }
+
+    private static RequestInfo givenUserInRoles(String... roles) {
+        RequestInfo request = mock(RequestInfo.class);
+        for (String role : roles) {
+            when(request.isUserInRole(role)).thenReturn(true);
+        }
+        return request;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression<String> userRoleExpression(Operator operator, String right) {
+        Expression<String> expression = mock(Expression.class);
+        when(expression.requireLeft()).thenReturn(WebExpressionKey.USER_ROLE);
+        when(expression.getOperator()).thenReturn(operator);
+        when(expression.getRightOrDefault(any())).thenReturn(right);
+        return expression;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression<String> ipInExpression(String right) {
+        Expression<String> expression = mock(Expression.class);
+        when(expression.requireLeft()).thenReturn(WebExpressionKey.IP);
+        when(expression.getOperator()).thenReturn(Operator.IN);
+        when(expression.getRightOrDefault(any())).thenReturn(right);
+        return expression;
+    }
+}
@@ -3,7 +3,10 @@ package io.github.poshjosh.ratelimiter.web.core;
 import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfoProvider;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 class WebRateLimiterContextTest {
 
@@ -18,4 +21,14 @@ class WebRateLimiterContextTest {
                 .build();
         assertNotNull(config);
     }
+
+    @Test void givenOtherImplementation_shouldDefaultMethodsAddedSinceItWasWritten() {
+        WebRateLimiterContext context = mock(WebRateLimiterContext.class, CALLS_REAL_METHODS);
+        assertFalse(context.getMetricsListenerOptional().isPresent());
+        assertFalse(context.getClientIpResolverOptional().isPresent());
+        assertFalse(context.getExpressionMatcherOptional().isPresent());
+        assertEquals(SessionIdMode.CREATE_SESSION, context.getSessionIdMode());
+        assertThrows(UnsupportedOperationException.class,
+                () -> context.withRates(Collections.emptyList()));
+    }
 }
\ No newline at end of file
@@ -1,12 +1,28 @@
 package io.github.poshjosh.ratelimiter.web.core;
 
 import io.github.poshjosh.ratelimiter.annotations.Rate;
+import io.github.poshjosh.ratelimiter.annotations.RateCondition;
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.matcher.Matchers;
+import io.github.poshjosh.ratelimiter.model.Rates;
+import io.github.poshjosh.ratelimiter.store.BandwidthsStore;
 import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfoProvider;
+import io.github.poshjosh.ratelimiter.web.core.util.ResourceInfos;
+import io.github.poshjosh.ratelimiter.web.core.util.ResourcePath;
+import io.github.poshjosh.ratelimiter.web.core.util.WebRateLimitProperties;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 @Rate("1/s")
 class WebRateLimiterRegistryTest {
@@ -32,6 +48,224 @@ class WebRateLimiterRegistryTest {
         assertTrue(givenRegistry().register(getClass()).isRegistered(getClass()));
     }
 
+    @Test
+    void reload_shouldKeepConfiguredClass() {
+        WebRateLimiterRegistry registry = givenRegistry();
+        registry.reload(Collections.emptyList());
+        assertTrue(registry.isRegistered(getClass()));
+    }
+
+    @Test
+    void reload_givenChangedLimit_shouldLimitByNewLimit() {
+        WebRateLimiterRegistry registry = givenRegistry(Collections.singletonList(rates("a", 1)));
+        RequestInfo request = givenRequest("/a");
+        assertTrue(registry.tryAcquire(request));
+        assertFalse(registry.tryAcquire(request));
+
+        registry.reload(Collections.singletonList(rates("a", 2)));
+
+        assertTrue(registry.tryAcquire(request));
+    }
+
+    @Test
+    void reload_givenOtherIdChangedToEqualRates_shouldKeepStateOfUnchangedId() {
+        WebRateLimiterRegistry registry = givenRegistry(Arrays.asList(rates("a", 1), rates("b", 2)));
+        RequestInfo request = givenRequest("/a");
+        assertTrue(registry.tryAcquire(request));
+        assertFalse(registry.tryAcquire(request));
+
+        registry.reload(Arrays.asList(rates("a", 1), rates("b", 1)));
+
+        assertFalse(registry.tryAcquire(request));
+        assertTrue(registry.tryAcquire(givenRequest("/b")));
+    }
+
+    @Test
+    void givenSameRatesReachedByDifferentHistories_shouldUseSameStoreKeys() {
+        RecordingStore reloadedStore = new RecordingStore();
+        WebRateLimiterRegistry reloaded =
+                givenRegistry(Collections.singletonList(rates("a", 1)), reloadedStore);
+        reloaded.reload(Collections.singletonList(rates("a", 2)));
+        reloadedStore.keys.clear();
+        reloaded.tryAcquire(givenRequest("/a"));
+
+        RecordingStore startedStore = new RecordingStore();
+        WebRateLimiterRegistry started =
+                givenRegistry(Collections.singletonList(rates("a", 2)), startedStore);
+        started.tryAcquire(givenRequest("/a"));
+
+        assertFalse(startedStore.keys.isEmpty());
+        assertEquals(startedStore.keys, reloadedStore.keys);
+    }
+
+    @Test
+    void givenNoMatchCache_shouldCacheOnlyRequestsNotMatched() {
+        DefaultWebRateLimiterRegistry registry = givenNoMatchCachingRegistry(Limited.class);
+        NoMatchCache cache = registry.getNoMatchCache();
+        assertNotNull(cache);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(registry.isWithinLimit(givenRequest("GET", "/limited")));
+            assertNotNull(registry.getRateLimiterOrDefault(givenRequest("GET", "/limited"), null));
+        }
+        assertEquals(0, cache.size());
+
+        assertTrue(registry.isWithinLimit(givenRequest("GET", "/other")));
+        assertTrue(registry.tryAcquire(givenRequest("GET", "/other")));
+        assertNull(registry.getRateLimiterOrDefault(givenRequest("GET", "/another"), null));
+        assertNull(registry.getRateLimiterOrDefault(givenRequest("GET", "/another"), null));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void givenRateCondition_shouldDisableNoMatchCache() {
+        assertNull(givenNoMatchCachingRegistry(Limited.class, Conditional.class).getNoMatchCache());
+    }
+
+    @Test
+    void givenConfiguredMatcher_shouldDisableNoMatchCache() {
+        WebRateLimiterContext context = WebRateLimiterContext.builder()
+                .resourceInfoProvider(PATH_OF_CLASS)
+                .properties(givenNoMatchCachingProperties(Limited.class))
+                .configurer(matchers -> matchers.register(Limited.class.getName(),
+                        request -> Matchers.NO_MATCH))
+                .build();
+        assertNull(((DefaultWebRateLimiterRegistry)WebRateLimiterRegistries.of(context)).getNoMatchCache());
+    }
+
+    @Test
+    void registerOrDeregister_shouldReplaceNoMatchCache() {
+        DefaultWebRateLimiterRegistry registry = givenNoMatchCachingRegistry(Limited.class);
+        NoMatchCache initial = registry.getNoMatchCache();
+        registry.register(Registered.class);
+        NoMatchCache registered = registry.getNoMatchCache();
+        assertNotNull(registered);
+        assertNotSame(initial, registered);
+        registry.deregister(Registered.class);
+        assertNotSame(registered, registry.getNoMatchCache());
+    }
+
+    @Test
+    void reload_shouldKeepRegisteredSourcesAndNotCacheTheirRequests() {
+        DefaultWebRateLimiterRegistry registry = givenNoMatchCachingRegistry(Limited.class);
+        registry.register(Registered.class);
+
+        registry.reload(givenNoMatchCachingProperties(Limited.class));
+
+        assertTrue(registry.isRegistered(Registered.class));
+        NoMatchCache cache = registry.getNoMatchCache();
+        assertNotNull(cache);
+        RequestInfo request = givenRequest("GET", "/registered");
+        assertTrue(registry.tryAcquire(request));
+        assertFalse(registry.tryAcquire(request));
+        assertEquals(0, cache.size());
+    }
+
+    @Rate("1/s")
+    static class Limited { }
+
+    @Rate("1/s")
+    @RateCondition("web.request.header[X-Api-Key] !=")
+    static class Conditional { }
+
+    @Rate("1/s")
+    static class Registered { }
+
+    /** Each class is a resource at path {@code /<lower case simple name of class>}, for GET. */
+    private static final ResourceInfoProvider PATH_OF_CLASS = source -> {
+        if (!(source.getSource() instanceof Class)) {
+            return ResourceInfos.none();
+        }
+        String path = '/' + ((Class<?>)source.getSource()).getSimpleName().toLowerCase(Locale.ROOT);
+        return ResourceInfos.of(new ExactPath(path), "GET");
+    };
+
+    private static final class ExactPath implements ResourcePath {
+        private final String path;
+        private ExactPath(String path) {
+            this.path = path;
+        }
+        @Override public ResourcePath combine(ResourcePath other) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public List<String> getPatterns() {
+            return Collections.singletonList(path);
+        }
+        @Override public boolean matches(String path) {
+            return this.path.equals(path);
+        }
+    }
+
+    private static DefaultWebRateLimiterRegistry givenNoMatchCachingRegistry(Class<?>... classes) {
+        WebRateLimiterContext context = WebRateLimiterContext.builder()
+                .resourceInfoProvider(PATH_OF_CLASS)
+                .properties(givenNoMatchCachingProperties(classes))
+                .build();
+        return (DefaultWebRateLimiterRegistry)WebRateLimiterRegistries.of(context);
+    }
+
+    private static WebRateLimitProperties givenNoMatchCachingProperties(Class<?>... classes) {
+        return new WebRateLimitProperties() {
+            @Override public List<Class<?>> getResourceClasses() {
+                return Arrays.asList(classes);
+            }
+            @Override public List<String> getResourcePackages() {
+                return Collections.emptyList();
+            }
+            @Override public int getNoMatchCacheSize() {
+                return 8;
+            }
+        };
+    }
+
+    private static RequestInfo givenRequest(String method, String uri) {
+        RequestInfo request = givenRequest(uri);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getContextPath()).thenReturn("");
+        when(request.getServletPath()).thenReturn("");
+        return request;
+    }
+
+    private static final class RecordingStore implements BandwidthsStore<String> {
+        private final Map<String, Bandwidth> bandwidths = new ConcurrentHashMap<>();
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+        @Override public Bandwidth get(String key) {
+            keys.add(key);
+            return bandwidths.get(key);
+        }
+        @Override public void put(String key, Bandwidth bandwidth) {
+            keys.add(key);
+            bandwidths.put(key, bandwidth);
+        }
+    }
+
+    private static Rates rates(String id, long permitsPerSecond) {
+        return Rates.of(id, io.github.poshjosh.ratelimiter.model.Rate.ofSeconds(permitsPerSecond));
+    }
+
+    private static RequestInfo givenRequest(String uri) {
+        RequestInfo request = mock(RequestInfo.class);
+        when(request.getRequestUri()).thenReturn(uri);
+        return request;
+    }
+
+    /** Each id limits requests to path {@code /<id>}, keyed by the id. */
+    private static WebRateLimiterRegistry givenRegistry(List<Rates> rates) {
+        return givenRegistry(rates, BandwidthsStore.ofDefaults());
+    }
+
+    private static WebRateLimiterRegistry givenRegistry(List<Rates> rates, BandwidthsStore<String> store) {
+        WebRateLimiterContext config = WebRateLimiterContext.builder()
+                .resourceInfoProvider(ResourceInfoProvider.NONE)
+                .rates(rates)
+                .store(store)
+                .configurer(matchers -> rates.forEach(each -> matchers.register(each.getId(),
+                        request -> ('/' + each.getId()).equals(request.getRequestUri()) ?
+                                each.getId() : Matchers.NO_MATCH)))
+                .build();
+        return WebRateLimiterRegistries.of(config);
+    }
+
     private WebRateLimiterRegistry givenRegistry() {
         WebRateLimiterContext config = WebRateLimiterContext.builder()
                 .resourceInfoProvider(ResourceInfoProvider.NONE)
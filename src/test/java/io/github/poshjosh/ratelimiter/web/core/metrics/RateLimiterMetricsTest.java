@@ -0,0 +1,83 @@
+package io.github.poshjosh.ratelimiter.web.core.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterMetricsTest {
+
+    @Test
+    void logHistogram_shouldResolveValuesWithin25Percent() {
+        final Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            final long value = random.nextLong() >>> (1 + random.nextInt(63));
+            final int index = LogHistogram.indexOf(value);
+            assertTrue(index >= 0 && index < LogHistogram.BUCKET_COUNT, "index: " + index);
+            final long highest = LogHistogram.highestValueAt(index);
+            assertTrue(highest >= value, value + " > " + highest);
+            assertTrue(highest - value <= value / 4, value + " is not within 25% of " + highest);
+        }
+    }
+
+    @Test
+    void logHistogram_shouldReportPercentiles() {
+        LogHistogram histogram = new LogHistogram();
+        IntStream.rangeClosed(1, 1000).forEach(histogram::record);
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(500.5, snapshot.getMean(), 0.001);
+        assertEquals(500, snapshot.getValueAtPercentile(50), 125);
+        assertEquals(990, snapshot.getValueAtPercentile(99), 10);
+        assertEquals(1000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    void logHistogram_givenNoValues_shouldReportZero() {
+        HistogramSnapshot snapshot = new LogHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+    }
+
+    @Test
+    void snapshot_shouldContainRecordedValues() {
+        RateLimiterMetrics metrics = new RateLimiterMetrics();
+        metrics.onRequest(true, 100);
+        metrics.onRequest(false, 200);
+        metrics.onMatch("rate-a", true, 10);
+        metrics.onMatch("rate-a", false, 20);
+        metrics.onAcquire("rate-a", 2, true, 30);
+        metrics.onAcquire("rate-a", 1, false, 40);
+        metrics.onStoreAccess("get", 50);
+        metrics.onPathCacheLookup(true);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getRequestTimes().getCount());
+        assertEquals(1, snapshot.getRequestsWithinLimit());
+        assertEquals(1, snapshot.getRequestsBeyondLimit());
+        assertEquals(2, snapshot.getMatchTimes().get("rate-a").getCount());
+        assertEquals(1, snapshot.getMatchCounts().get("rate-a"));
+        assertEquals(2, snapshot.getPermitsGranted().get("rate-a"));
+        assertEquals(1, snapshot.getPermitsDenied().get("rate-a"));
+        assertEquals(50, snapshot.getStoreTimes().get("get").getMax());
+        assertEquals(1, snapshot.getPathCacheHits());
+        assertEquals(0, snapshot.getPathCacheMisses());
+    }
+
+    @Test
+    void onAcquire_givenMoreThanMaxKeys_shouldRecordFurtherKeysTogether() {
+        RateLimiterMetrics metrics = new RateLimiterMetrics(2);
+        IntStream.range(0, 100).forEach(i -> metrics.onAcquire("client-" + i, 1, i % 2 == 0, 10));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.getPermitsGranted().size());
+        assertEquals(1, snapshot.getPermitsGranted().get("client-0"));
+        assertEquals(1, snapshot.getPermitsDenied().get("client-1"));
+        assertEquals(49, snapshot.getPermitsGranted().get(RateLimiterMetrics.OTHER_KEYS));
+        assertEquals(49, snapshot.getPermitsDenied().get(RateLimiterMetrics.OTHER_KEYS));
+        assertEquals(98, snapshot.getAcquireTimes().get(RateLimiterMetrics.OTHER_KEYS).getCount());
+    }
+}
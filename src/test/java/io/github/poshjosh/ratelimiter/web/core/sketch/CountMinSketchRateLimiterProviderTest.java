@@ -0,0 +1,122 @@
+package io.github.poshjosh.ratelimiter.web.core.sketch;
+
+import io.github.poshjosh.ratelimiter.RateLimiter;
+import io.github.poshjosh.ratelimiter.RateLimiterProvider;
+import io.github.poshjosh.ratelimiter.model.Operator;
+import io.github.poshjosh.ratelimiter.model.Rate;
+import io.github.poshjosh.ratelimiter.model.Rates;
+import io.github.poshjosh.ratelimiter.util.Ticker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CountMinSketchRateLimiterProviderTest {
+
+    private final AtomicLong nowMicros = new AtomicLong();
+    private RateLimiterProvider delegate;
+    private CountMinSketchRateLimiterProvider provider;
+
+    @BeforeEach
+    void beforeEach() {
+        Ticker ticker = mock(Ticker.class);
+        when(ticker.elapsedMicros()).then(invocation -> nowMicros.get());
+        doAnswer(invocation -> nowMicros.addAndGet(invocation.getArgument(0)))
+                .when(ticker).sleepMicrosWithoutInterruption(anyLong());
+        delegate = mock(RateLimiterProvider.class);
+        provider = new CountMinSketchRateLimiterProvider(delegate, ticker, 0.001, 0.01);
+    }
+
+    @Test
+    void getRateLimiter_givenUnmarkedRate_shouldUseDelegate() {
+        Rate rate = Rate.ofSeconds(5);
+        RateLimiter expected = mock(RateLimiter.class);
+        when(delegate.getRateLimiter("a", rate)).thenReturn(expected);
+        assertSame(expected, provider.getRateLimiter("a", rate));
+    }
+
+    @Test
+    void tryAcquire_shouldLimitEachKeySeparately() {
+        Rate rate = givenSketchedRate(3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(provider.getRateLimiter("a", rate).tryAcquire(1));
+        }
+        assertFalse(provider.getRateLimiter("a", rate).tryAcquire(1));
+        assertTrue(provider.getRateLimiter("b", rate).tryAcquire(1));
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void tryAcquire_shouldAllowAgainOnceWindowHasSlidPast() {
+        Rate rate = givenSketchedRate(3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(provider.getRateLimiter("a", rate).tryAcquire(1));
+        }
+        // Half of the previous window is still covered, so half its permits count
+        nowMicros.addAndGet(TimeUnit.MILLISECONDS.toMicros(1500));
+        assertTrue(provider.getRateLimiter("a", rate).tryAcquire(1));
+        assertFalse(provider.getRateLimiter("a", rate).tryAcquire(1));
+        nowMicros.addAndGet(TimeUnit.SECONDS.toMicros(2));
+        assertTrue(provider.getRateLimiter("a", rate).tryAcquire(3));
+    }
+
+    @Test
+    void tryAcquire_givenTimeout_shouldWaitUntilAvailable() {
+        Rate rate = givenSketchedRate(1);
+        assertTrue(provider.getRateLimiter("a", rate).tryAcquire(1));
+        assertFalse(provider.getRateLimiter("a", rate).tryAcquire(1, 100, TimeUnit.MILLISECONDS));
+        assertTrue(provider.getRateLimiter("a", rate).tryAcquire(1, 2, TimeUnit.SECONDS));
+        assertTrue(nowMicros.get() >= TimeUnit.SECONDS.toMicros(1));
+    }
+
+    @Test
+    void tryAcquire_givenTwoLimitsWithOperatorOr_shouldLimitOnceAnyLimitIsExceeded() {
+        Rates rates = givenSketchedRates(Operator.OR);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(provider.getRateLimiter("a", rates).tryAcquire(1));
+        }
+        assertFalse(provider.getRateLimiter("a", rates).tryAcquire(1));
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void tryAcquire_givenTwoLimitsWithOperatorAnd_shouldLimitOnlyOnceAllLimitsAreExceeded() {
+        Rates rates = givenSketchedRates(Operator.AND);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(provider.getRateLimiter("a", rates).tryAcquire(1));
+        }
+        assertFalse(provider.getRateLimiter("a", rates).tryAcquire(1));
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void getSizeBytes_shouldBeFixedRegardlessOfKeys() {
+        Rate rate = givenSketchedRate(10);
+        provider.getRateLimiter("a", rate).tryAcquire(1);
+        final long size = provider.getSizeBytes();
+        for (int i = 0; i < 100_000; i++) {
+            provider.getRateLimiter("client-" + i, rate).tryAcquire(1);
+        }
+        assertEquals(size, provider.getSizeBytes());
+    }
+
+    /** 3 permits per second and 5 permits per minute, combined by the given operator. */
+    private Rates givenSketchedRates(Operator operator) {
+        Rates rates = mock(Rates.class);
+        when(rates.getAllLimits()).thenReturn(Arrays.asList(givenSketchedRate(3),
+                Rate.of(5, Duration.ofMinutes(1)).factoryClass(CountMinSketchBandwidthFactory.class)));
+        when(rates.getOperator()).thenReturn(operator);
+        return rates;
+    }
+
+    private Rate givenSketchedRate(long permitsPerSecond) {
+        return Rate.ofSeconds(permitsPerSecond).factoryClass(CountMinSketchBandwidthFactory.class);
+    }
+}
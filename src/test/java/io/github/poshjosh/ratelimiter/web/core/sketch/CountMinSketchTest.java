@@ -0,0 +1,48 @@
+package io.github.poshjosh.ratelimiter.web.core.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinSketchTest {
+
+    @Test
+    void estimate_givenNoCounts_shouldReturnZero() {
+        CountMinSketch sketch = new CountMinSketch(CountMinSketch.width(0.01), CountMinSketch.depth(0.01));
+        assertEquals(0, sketch.estimate(CountMinSketch.hash("a")));
+    }
+
+    @Test
+    void estimate_shouldNeverBeBelowTrueCount_andRarelyExceedErrorBound() {
+        final double epsilon = 0.001;
+        final double delta = 0.01;
+        CountMinSketch sketch = new CountMinSketch(CountMinSketch.width(epsilon), CountMinSketch.depth(delta));
+        int [] counts = new int[50_000];
+        Random random = new Random(11);
+        long total = 0;
+        for (int i = 0; i < 200_000; i++) {
+            // Skewed, as traffic per client usually is
+            int key = (int) (counts.length * Math.pow(random.nextDouble(), 3));
+            sketch.add(CountMinSketch.hash("client-" + key), 1);
+            counts[key]++;
+            total++;
+        }
+        int exceeded = 0;
+        for (int key = 0; key < counts.length; key++) {
+            int estimate = sketch.estimate(CountMinSketch.hash("client-" + key));
+            assertTrue(estimate >= counts[key], "key: " + key);
+            if (estimate - counts[key] > epsilon * total) {
+                ++exceeded;
+            }
+        }
+        assertTrue(exceeded <= delta * counts.length, "exceeded: " + exceeded);
+    }
+
+    @Test
+    void width_givenInvalidEpsilon_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> CountMinSketch.width(0));
+        assertThrows(IllegalArgumentException.class, () -> CountMinSketch.depth(1));
+    }
+}
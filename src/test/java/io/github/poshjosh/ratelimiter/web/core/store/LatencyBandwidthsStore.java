@@ -0,0 +1,79 @@
+package io.github.poshjosh.ratelimiter.web.core.store;
+
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.store.BandwidthsStore;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-process stand-in for a remote store, which sleeps for a configurable latency on each
+ * round trip, and counts round trips and records the threads which made them.
+ */
+final class LatencyBandwidthsStore implements BandwidthsStore<String> {
+
+    private final Map<String, Bandwidth> map = new ConcurrentHashMap<>();
+    private final LongAdder gets = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final Set<Thread> callers = ConcurrentHashMap.newKeySet();
+    private volatile long latencyNanos;
+
+    LatencyBandwidthsStore(long latency, TimeUnit unit) {
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    void setLatency(long latency, TimeUnit unit) {
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    @Override public Bandwidth get(String key) {
+        roundTrip();
+        gets.increment();
+        return map.get(key);
+    }
+
+    @Override public void put(String key, Bandwidth bandwidth) {
+        roundTrip();
+        puts.increment();
+        map.put(key, bandwidth);
+    }
+
+    /** @return The stored bandwidth, without the latency of a round trip */
+    Bandwidth peek(String key) {
+        return map.get(key);
+    }
+
+    long getGets() {
+        return gets.sum();
+    }
+
+    long getPuts() {
+        return puts.sum();
+    }
+
+    /** @return true if the thread has made any round trip to this store */
+    boolean isCalledBy(Thread thread) {
+        return callers.contains(thread);
+    }
+
+    private void roundTrip() {
+        callers.add(Thread.currentThread());
+        final long latency = latencyNanos;
+        if (latency <= 0) {
+            return;
+        }
+        final long deadline = System.nanoTime() + latency;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package io.github.poshjosh.ratelimiter.web.core.store;
+
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.util.Ticker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedBandwidthsSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restore_shouldRestoreWrittenEntriesOntoCurrentTicker() {
+        OffHeapBandwidthsStore before = givenStore();
+        for (int i = 0; i < 100; i++) {
+            before.put("key-" + i, new TestBandwidth(5_000_000 + i));
+        }
+        assertEquals(100, new MappedBandwidthsSnapshot(before, file(), ticker(5_000_000)).write());
+
+        OffHeapBandwidthsStore after = givenStore();
+        assertEquals(100, new MappedBandwidthsSnapshot(after, file(), ticker(1_000_000)).restore());
+
+        assertEquals(100, after.size());
+        // Shifted back by the 4 seconds the new ticker is behind, and by the little time passed
+        final long restored = ((TestBandwidth)after.get("key-7")).nextFreeMicros;
+        assertTrue(restored <= 1_000_007 && restored > 1_000_007 - 60_000_000, "restored: " + restored);
+    }
+
+    @Test
+    void restore_givenKeyFilter_shouldRestoreOnlyAcceptedKeys() {
+        OffHeapBandwidthsStore before = givenStore();
+        before.put("kept", new TestBandwidth(1));
+        before.put("dropped", new TestBandwidth(2));
+        new MappedBandwidthsSnapshot(before, file(), ticker(0)).close();
+
+        OffHeapBandwidthsStore after = givenStore();
+        assertEquals(1, new MappedBandwidthsSnapshot(after, file(), ticker(0)).restore("kept"::equals));
+        assertNotNull(after.get("kept"));
+        assertNull(after.get("dropped"));
+    }
+
+    @Test
+    void restore_givenNoSnapshotOrAnotherLayout_shouldRestoreNothing() {
+        OffHeapBandwidthsStore store = givenStore();
+        assertEquals(0, new MappedBandwidthsSnapshot(store, file(), ticker(0)).restore());
+
+        store.put("a", new TestBandwidth(1));
+        new MappedBandwidthsSnapshot(store, file(), ticker(0)).write();
+        OffHeapBandwidthsStore otherLayout = new OffHeapBandwidthsStore(16, 32, 1, new TestCodec());
+        assertEquals(0, new MappedBandwidthsSnapshot(otherLayout, file(), ticker(0)).restore());
+        assertEquals(0, otherLayout.size());
+    }
+
+    @Test
+    void restore_givenCorruptRecords_shouldSkipInvalidAndRehashKeys() throws IOException {
+        OffHeapBandwidthsStore before = givenStore();
+        before.put("a", new TestBandwidth(1));
+        before.put("b", new TestBandwidth(2));
+        before.put("c", new TestBandwidth(3));
+        new MappedBandwidthsSnapshot(before, file(), ticker(0)).write();
+
+        // Header of 64 bytes, then records: used, referenced, key length, hash, value, key
+        final int recordSize = before.getRecordSize();
+        try (FileChannel channel = FileChannel.open(file(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < 3; i++) {
+                final long at = 64 + (long) i * recordSize;
+                final ByteBuffer key = ByteBuffer.allocate(1);
+                channel.read(key, at + 16);
+                final ByteBuffer corrupt = ByteBuffer.allocate(Integer.BYTES);
+                switch (key.get(0)) {
+                    case 'a': corrupt.putShort(0, (short) (before.getMaxKeyBytes() + 1)).limit(2); break;
+                    case 'b': corrupt.putShort(0, (short) -1).limit(2); break;
+                    default: corrupt.putInt(0, 0xBADC0DE); channel.write(corrupt, at + 4); continue;
+                }
+                channel.write(corrupt, at + 2);
+            }
+        }
+
+        OffHeapBandwidthsStore after = givenStore();
+        assertEquals(1, new MappedBandwidthsSnapshot(after, file(), ticker(0)).restore());
+        assertEquals(1, after.size());
+        assertNull(after.get("a"));
+        assertNull(after.get("b"));
+        assertNotNull(after.get("c"));
+    }
+
+    private Path file() {
+        return dir.resolve("bandwidths.snapshot");
+    }
+
+    private static Ticker ticker(long micros) {
+        return () -> micros * 1000;
+    }
+
+    private static OffHeapBandwidthsStore givenStore() {
+        return new OffHeapBandwidthsStore(256, OffHeapBandwidthsStore.DEFAULT_MAX_KEY_BYTES, 4, new TestCodec());
+    }
+
+    private static final class TestCodec implements BandwidthCodec {
+        @Override public int size() { return Long.BYTES; }
+        @Override public boolean supports(Bandwidth bandwidth) {
+            return bandwidth instanceof TestBandwidth;
+        }
+        @Override public void encode(Bandwidth bandwidth, ByteBuffer buffer, int offset) {
+            buffer.putLong(offset, ((TestBandwidth)bandwidth).nextFreeMicros);
+        }
+        @Override public Bandwidth decode(ByteBuffer buffer, int offset) {
+            return new TestBandwidth(buffer.getLong(offset));
+        }
+        @Override public void shift(ByteBuffer buffer, int offset, long micros) {
+            buffer.putLong(offset, buffer.getLong(offset) + micros);
+        }
+    }
+
+    private static final class TestBandwidth implements Bandwidth {
+        private final long nextFreeMicros;
+        private TestBandwidth(long nextFreeMicros) {
+            this.nextFreeMicros = nextFreeMicros;
+        }
+        @Override public double getPermitsPerSecond() { return 1; }
+        @Override public long queryEarliestAvailable(long nowMicros) { return nextFreeMicros; }
+        @Override public long reserveEarliestAvailable(int permits, long nowMicros) { return nextFreeMicros; }
+        @Override public Bandwidth with(long nowMicros) { return this; }
+    }
+}
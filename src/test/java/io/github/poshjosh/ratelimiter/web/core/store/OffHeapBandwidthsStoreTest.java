@@ -0,0 +1,131 @@
+package io.github.poshjosh.ratelimiter.web.core.store;
+
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class OffHeapBandwidthsStoreTest {
+
+    @Test
+    void get_givenNoPut_shouldReturnNull() {
+        OffHeapBandwidthsStore store = givenStore(16);
+        assertNull(store.get("a"));
+    }
+
+    @Test
+    void put_shouldBeReadableAsEqualBandwidth() {
+        OffHeapBandwidthsStore store = givenStore(16);
+        store.put("a", new TestBandwidth(7));
+        store.put("b", new TestBandwidth(9));
+        assertEquals(7, ((TestBandwidth)store.get("a")).nextFreeMicros);
+        assertEquals(9, ((TestBandwidth)store.get("b")).nextFreeMicros);
+        assertEquals(2, store.size());
+        assertEquals(0, store.getOnHeapCount());
+    }
+
+    @Test
+    void put_givenExistingKey_shouldReplace() {
+        OffHeapBandwidthsStore store = givenStore(16);
+        store.put("a", new TestBandwidth(7));
+        store.put("a", new TestBandwidth(8));
+        assertEquals(8, ((TestBandwidth)store.get("a")).nextFreeMicros);
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void put_givenMoreKeysThanMaxEntries_shouldEvictAndRetainRecentlyRead() {
+        OffHeapBandwidthsStore store = givenStore(100);
+        store.put("hot", new TestBandwidth(1));
+        for (int i = 0; i < 1000; i++) {
+            store.put("key-" + i, new TestBandwidth(i));
+            assertNotNull(store.get("hot"));
+        }
+        assertTrue(store.size() <= 100, "size: " + store.size());
+        assertTrue(store.getEvictionCount() >= 900, "evictions: " + store.getEvictionCount());
+        assertEquals(999, ((TestBandwidth)store.get("key-999")).nextFreeMicros);
+    }
+
+    @Test
+    void put_givenRandomPutsAndEvictions_shouldNeverReturnAnotherKeysBandwidth() {
+        OffHeapBandwidthsStore store = new OffHeapBandwidthsStore(
+                64, OffHeapBandwidthsStore.DEFAULT_MAX_KEY_BYTES, 4, new TestCodec());
+        Map<String, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            String key = "client-" + random.nextInt(200);
+            if (random.nextBoolean()) {
+                store.put(key, new TestBandwidth(i));
+                expected.put(key, (long)i);
+            } else {
+                TestBandwidth found = (TestBandwidth)store.get(key);
+                if (found != null) {
+                    assertEquals(expected.get(key), found.nextFreeMicros, key);
+                }
+            }
+        }
+    }
+
+    @Test
+    void put_givenUnsupportedBandwidth_shouldKeepOnHeap() {
+        OffHeapBandwidthsStore store = givenStore(16);
+        store.put("a", new TestBandwidth(7));
+        Bandwidth unsupported = mock(Bandwidth.class);
+        store.put("a", unsupported);
+        assertSame(unsupported, store.get("a"));
+        assertEquals(1, store.getOnHeapCount());
+        assertEquals(1, store.size());
+        store.put("a", new TestBandwidth(8));
+        assertEquals(8, ((TestBandwidth)store.get("a")).nextFreeMicros);
+        assertEquals(0, store.getOnHeapCount());
+    }
+
+    @Test
+    void put_givenKeyLongerThanMax_shouldKeepOnHeap() {
+        OffHeapBandwidthsStore store = new OffHeapBandwidthsStore(16, 4, 1, new TestCodec());
+        store.put("long-key", new TestBandwidth(7));
+        assertEquals(7, ((TestBandwidth)store.get("long-key")).nextFreeMicros);
+        assertEquals(1, store.getOnHeapCount());
+    }
+
+    @Test
+    void new_givenSegmentsNotPowerOf2_shouldThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new OffHeapBandwidthsStore(16, 16, 3, new TestCodec()));
+    }
+
+    private OffHeapBandwidthsStore givenStore(int maxEntries) {
+        return new OffHeapBandwidthsStore(maxEntries, OffHeapBandwidthsStore.DEFAULT_MAX_KEY_BYTES,
+                1, new TestCodec());
+    }
+
+    private static final class TestCodec implements BandwidthCodec {
+        @Override public int size() { return Long.BYTES; }
+        @Override public boolean supports(Bandwidth bandwidth) {
+            return bandwidth instanceof TestBandwidth;
+        }
+        @Override public void encode(Bandwidth bandwidth, ByteBuffer buffer, int offset) {
+            buffer.putLong(offset, ((TestBandwidth)bandwidth).nextFreeMicros);
+        }
+        @Override public Bandwidth decode(ByteBuffer buffer, int offset) {
+            return new TestBandwidth(buffer.getLong(offset));
+        }
+    }
+
+    private static final class TestBandwidth implements Bandwidth {
+        private final long nextFreeMicros;
+        private TestBandwidth(long nextFreeMicros) {
+            this.nextFreeMicros = nextFreeMicros;
+        }
+        @Override public double getPermitsPerSecond() { return 1; }
+        @Override public long queryEarliestAvailable(long nowMicros) { return nextFreeMicros; }
+        @Override public long reserveEarliestAvailable(int permits, long nowMicros) { return nextFreeMicros; }
+        @Override public Bandwidth with(long nowMicros) { return this; }
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.poshjosh.ratelimiter.web.core.store;
+
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidths;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmoothBandwidthCodecTest {
+
+    private final BandwidthCodec codec = BandwidthCodec.ofDefaults();
+
+    @Test
+    void decode_givenEncodedBurstyBandwidth_shouldPreserveState() {
+        Bandwidth bandwidth = Bandwidths.bursty(5, 0, 1);
+        assertPreservesState(bandwidth);
+    }
+
+    @Test
+    void decode_givenEncodedWarmingUpBandwidth_shouldPreserveState() {
+        Bandwidth bandwidth = Bandwidths.warmingUp(5, 0, 1, TimeUnit.SECONDS, 3);
+        assertPreservesState(bandwidth);
+    }
+
+    @Test
+    void shift_shouldMoveEarliestAvailableByMicros() {
+        Bandwidth bandwidth = Bandwidths.bursty(5, 0, 1);
+        bandwidth.reserveEarliestAvailable(3, 1_000);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(codec.size());
+        codec.encode(bandwidth, buffer, 0);
+        codec.shift(buffer, 0, 10_000_000);
+        assertEquals(bandwidth.queryEarliestAvailable(2_000) + 10_000_000,
+                codec.decode(buffer, 0).queryEarliestAvailable(10_002_000));
+    }
+
+    private void assertPreservesState(Bandwidth bandwidth) {
+        assertTrue(codec.supports(bandwidth));
+        bandwidth.reserveEarliestAvailable(3, 1_000);
+        final long expected = bandwidth.queryEarliestAvailable(2_000);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(codec.size() + 4);
+        codec.encode(bandwidth, buffer, 4);
+        Bandwidth decoded = codec.decode(buffer, 4);
+
+        assertEquals(bandwidth.getClass(), decoded.getClass());
+        assertEquals(bandwidth.getPermitsPerSecond(), decoded.getPermitsPerSecond(), 0.0001);
+        assertEquals(expected, decoded.queryEarliestAvailable(2_000));
+        assertEquals(bandwidth.reserveEarliestAvailable(1, 3_000),
+                decoded.reserveEarliestAvailable(1, 3_000));
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.poshjosh.ratelimiter.web.core.store;
+
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidth;
+import io.github.poshjosh.ratelimiter.bandwidths.Bandwidths;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class WriteBehindBandwidthsStoreTest {
+
+    private final LatencyBandwidthsStore backingStore = new LatencyBandwidthsStore(2, TimeUnit.MILLISECONDS);
+
+    private WriteBehindBandwidthsStore<String> store;
+
+    @AfterEach
+    void afterEach() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void put_shouldBeReadableLocallyAtOnce() {
+        store = givenStore(100, Duration.ofSeconds(10), 100);
+        Bandwidth bandwidth = mock(Bandwidth.class);
+        store.put("a", bandwidth);
+        assertSame(bandwidth, store.get("a"));
+        assertEquals(0, backingStore.getGets());
+    }
+
+    @Test
+    void get_givenKeyMissingLocally_shouldReadThroughOnce() {
+        store = givenStore(100, Duration.ofSeconds(10), 100);
+        Bandwidth bandwidth = mock(Bandwidth.class);
+        backingStore.put("a", bandwidth);
+        assertSame(bandwidth, store.get("a"));
+        assertSame(bandwidth, store.get("a"));
+        assertEquals(1, backingStore.getGets());
+    }
+
+    @Test
+    void put_givenRepeatedUpdates_shouldCoalesceWrites() {
+        store = givenStore(100, Duration.ofMillis(50), 100);
+        Bandwidth last = null;
+        for (int i = 0; i < 1000; i++) {
+            last = mock(Bandwidth.class);
+            store.put("key-" + (i % 3), last);
+        }
+        store.flush();
+        assertTrue(backingStore.getPuts() < 1000 / 10, "puts: " + backingStore.getPuts());
+        assertSame(last, backingStore.peek("key-0"));
+    }
+
+    @Test
+    void put_shouldReachBackingStoreWithinMaxDelayPlusWriteTime() throws InterruptedException {
+        store = givenStore(100, Duration.ofMillis(50), 100);
+        Bandwidth bandwidth = mock(Bandwidth.class);
+        store.put("a", bandwidth);
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2000);
+        while (backingStore.peek("a") == null && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertSame(bandwidth, backingStore.peek("a"));
+        assertEquals(1, store.getKeysWritten());
+    }
+
+    @Test
+    void put_shouldNotWaitForBackingStore() {
+        store = givenStore(100, Duration.ofMillis(50), 1000);
+        final Bandwidth bandwidth = mock(Bandwidth.class);
+        final int count = 200;
+        for (int i = 0; i < count; i++) {
+            store.put("key-" + i, bandwidth);
+        }
+        assertFalse(backingStore.isCalledBy(Thread.currentThread()));
+        assertEquals(0, store.getWritesThrough());
+        store.close();
+        assertEquals(count, backingStore.getPuts());
+    }
+
+    @Test
+    void put_givenQueueFull_shouldWriteThrough() {
+        store = givenStore(1, Duration.ofMillis(1), 1);
+        backingStore.setLatency(20, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10; i++) {
+            store.put("key-" + i, mock(Bandwidth.class));
+        }
+        assertTrue(store.getWritesThrough() > 0);
+        store.close();
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(backingStore.peek("key-" + i), "key-" + i);
+        }
+    }
+
+    @Test
+    void close_shouldWritePendingUpdates() {
+        store = givenStore(100, Duration.ofSeconds(10), 100);
+        Bandwidth bandwidth = mock(Bandwidth.class);
+        store.put("a", bandwidth);
+        store.close();
+        assertSame(bandwidth, backingStore.peek("a"));
+    }
+
+    @Test
+    void put_givenSmoothBandwidth_shouldWriteCopyAsOfUpdate() {
+        store = givenStore(100, Duration.ofSeconds(10), 100);
+        Bandwidth bandwidth = Bandwidths.bursty(1, 0, 1);
+        bandwidth.reserveEarliestAvailable(1, 0);
+        store.put("a", bandwidth);
+        final long expected = bandwidth.queryEarliestAvailable(0);
+        bandwidth.reserveEarliestAvailable(5, 0); // Updated after the put, but before the write
+        store.flush();
+        Bandwidth written = backingStore.peek("a");
+        assertNotSame(bandwidth, written);
+        assertEquals(expected, written.queryEarliestAvailable(0));
+    }
+
+    @Test
+    void get_givenMoreThanMaxKeys_shouldEvictWrittenKeys() {
+        store = new WriteBehindBandwidthsStore<>(backingStore, 100, Duration.ofSeconds(10), 100, 10);
+        for (int i = 0; i < 20; i++) {
+            store.put("key-" + i, mock(Bandwidth.class));
+        }
+        assertEquals(0, store.getKeysEvicted(), "Dirty keys must not be evicted");
+        store.flush();
+        store.put("key-20", mock(Bandwidth.class));
+        assertEquals(11, store.getKeysEvicted());
+        final long gets = backingStore.getGets();
+        for (int i = 0; i <= 20; i++) {
+            assertNotNull(store.get("key-" + i), "key-" + i);
+        }
+        assertTrue(backingStore.getGets() > gets);
+    }
+
+    private WriteBehindBandwidthsStore<String> givenStore(int maxBatchSize, Duration maxDelay, int queueCapacity) {
+        return new WriteBehindBandwidthsStore<>(backingStore, maxBatchSize, maxDelay, queueCapacity);
+    }
+}
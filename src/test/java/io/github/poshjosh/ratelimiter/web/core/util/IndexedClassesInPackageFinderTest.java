@@ -0,0 +1,93 @@
+package io.github.poshjosh.ratelimiter.web.core.util;
+
+import io.github.poshjosh.ratelimiter.util.ClassesInPackageFinder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class IndexedClassesInPackageFinderTest {
+
+    static class Indexed { }
+
+    static class IndexedToo { }
+
+    @Test
+    void givenNoIndex_shouldReturnEmpty() {
+        assertFalse(IndexedClassesInPackageFinder.of(new URLClassLoader(new URL[0], null)).isPresent());
+    }
+
+    @Test
+    void findClasses_shouldReturnIndexedClassesOfPackageOnly(@TempDir Path dir) throws IOException {
+        final ClassesInPackageFinder finder = givenIndex(dir,
+                "# comment", Indexed.class.getName(), IndexedToo.class.getName(),
+                "io.github.poshjosh.ratelimiter.web.coreX.Other", "java.lang.String");
+        final List<Class<?>> found = finder.findClasses(
+                "io.github.poshjosh.ratelimiter.web.core", clazz -> true);
+        assertEquals(Arrays.asList(Indexed.class, IndexedToo.class), found);
+    }
+
+    @Test
+    void findClasses_shouldApplyFilter(@TempDir Path dir) throws IOException {
+        final ClassesInPackageFinder finder = givenIndex(dir,
+                Indexed.class.getName(), IndexedToo.class.getName());
+        assertEquals(Arrays.asList(IndexedToo.class), finder.findClasses(
+                "io.github.poshjosh.ratelimiter", clazz -> clazz == IndexedToo.class));
+    }
+
+    @Test
+    void findClasses_givenMissingClass_shouldSkipIt(@TempDir Path dir) throws IOException {
+        final ClassesInPackageFinder finder = givenIndex(dir,
+                "io.github.poshjosh.ratelimiter.web.core.util.Missing", Indexed.class.getName());
+        assertEquals(Arrays.asList(Indexed.class), finder.findClasses(
+                "io.github.poshjosh.ratelimiter.web.core.util", clazz -> true));
+    }
+
+    @Test
+    void findClasses_givenPackageNotIndexed_shouldUseFallback(@TempDir Path dir) throws IOException {
+        final ClassesInPackageFinder fallback = mock(ClassesInPackageFinder.class);
+        when(fallback.findClasses(eq("com.example"), any()))
+                .thenReturn(Collections.singletonList(String.class));
+        final ClassesInPackageFinder finder = givenIndex(dir, fallback, Indexed.class.getName());
+        assertEquals(Arrays.asList(String.class), finder.findClasses("com.example", clazz -> true));
+        assertEquals(Arrays.asList(Indexed.class), finder.findClasses(
+                "io.github.poshjosh.ratelimiter.web.core.util", clazz -> true));
+        verify(fallback, never()).findClasses(eq("io.github.poshjosh.ratelimiter.web.core.util"), any());
+    }
+
+    @Test
+    void ofDefaults_givenIndexNotEnabled_shouldNotReadIndex() {
+        assertFalse(IndexedClassesInPackageFinder.ofDefaults() instanceof IndexedClassesInPackageFinder);
+    }
+
+    private ClassesInPackageFinder givenIndex(Path dir, String... lines) throws IOException {
+        return givenIndex(dir, mock(ClassesInPackageFinder.class), lines);
+    }
+
+    private ClassesInPackageFinder givenIndex(Path dir, ClassesInPackageFinder fallback,
+            String... lines) throws IOException {
+        final Path index = dir.resolve(IndexedClassesInPackageFinder.INDEX_LOCATION);
+        Files.createDirectories(index.getParent());
+        Files.write(index, Arrays.asList(lines), StandardCharsets.UTF_8);
+        final ClassLoader classLoader = new URLClassLoader(
+                new URL[]{dir.toUri().toURL()}, getClass().getClassLoader());
+        final Optional<ClassesInPackageFinder> finder =
+                IndexedClassesInPackageFinder.of(classLoader, fallback);
+        assertTrue(finder.isPresent());
+        return finder.get();
+    }
+}